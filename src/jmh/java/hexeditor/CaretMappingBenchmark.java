@@ -0,0 +1,50 @@
+package hexeditor;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static hexeditor.HexEditor.AREA_NUMBER_OF_LINES;
+import static hexeditor.HexEditor.AREA_RAW_SYMBOLS_IN_LINE;
+
+/**
+ * Mapping between byte cells and points of the symbol pane, done on every caret move and mouse click.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CaretMappingBenchmark {
+    private static final int WINDOW_SIZE = AREA_NUMBER_OF_LINES * AREA_RAW_SYMBOLS_IN_LINE;
+
+    private final ByteAreaView symbols = new ByteAreaView(ByteAreaView.Column.SYMBOL);
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private final Point[] points = new Point[WINDOW_SIZE];
+    private int next = 0;
+
+    @Setup
+    public void fill(){
+        new Random(1).nextBytes(window);
+        symbols.setWindow(window, window.length);
+        for (int index = 0; index < WINDOW_SIZE; ++index)
+            points[index] = symbols.cellBounds(index).getLocation();
+    }
+
+    @Benchmark
+    public Rectangle cellBounds(){
+        next = (next + 37) % WINDOW_SIZE;
+        return symbols.cellBounds(next);
+    }
+
+    @Benchmark
+    public int positionAt(){
+        next = (next + 37) % WINDOW_SIZE;
+        return symbols.positionAt(points[next]);
+    }
+
+    @Benchmark
+    public void windowIndex(){
+        symbols.bytesChanged(window.length, 0, window.length);
+    }
+}
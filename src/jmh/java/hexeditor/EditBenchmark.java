@@ -0,0 +1,52 @@
+package hexeditor;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single byte insertions and removals at random offsets, the edits made by typing into the hex pane.
+ * Every iteration starts from an unedited file, so the piece count grows only within an iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EditBenchmark {
+    @Param({"1048576", "67108864", "1073741824", "4294967296"})
+    public long fileSize;
+
+    private PieceTable content;
+    private final byte[] data = {0x5a};
+
+    @Setup(Level.Iteration)
+    public void open() throws IOException {
+        content = SyntheticFile.open(fileSize);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws IOException {
+        content.close();
+    }
+
+    @Benchmark
+    public void insertByte(){
+        content.insert(ThreadLocalRandom.current().nextLong(content.length()), data);
+    }
+
+    /**
+     * Removes a byte and types it back, otherwise a small file would run out of bytes within an iteration.
+     */
+    @Benchmark
+    public void removeAndInsertByte(){
+        long offset = ThreadLocalRandom.current().nextLong(content.length());
+        content.delete(offset, 1);
+        content.insert(offset, data);
+    }
+
+    @Benchmark
+    public void replaceByte(){
+        content.replace(ThreadLocalRandom.current().nextLong(content.length()), data);
+    }
+}
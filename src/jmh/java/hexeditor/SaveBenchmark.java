@@ -0,0 +1,47 @@
+package hexeditor;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving a copy of the whole file after a few edits: original spans are transferred, edited ones written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class SaveBenchmark {
+    private static final int EDITS = 100;
+
+    @Param({"1048576", "67108864", "1073741824", "4294967296"})
+    public long fileSize;
+
+    private PieceTable content;
+    private Path original;
+    private Path copy;
+
+    @Setup
+    public void open() throws IOException {
+        original = SyntheticFile.of(fileSize);
+        copy = original.resolveSibling(original.getFileName() + ".copy");
+        content = new PieceTable(original);
+        for (int i = 0; i < EDITS; ++i)
+            content.insert(fileSize / EDITS * i, new byte[]{(byte) i});
+    }
+
+    @TearDown
+    public void close() throws IOException {
+        content.close();
+        Files.deleteIfExists(copy);
+    }
+
+    @Benchmark
+    public long saveCopy() throws IOException {
+        return new FileSaver(content, original).save(copy, (done, total) -> {});
+    }
+}
@@ -0,0 +1,44 @@
+package hexeditor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Files of pseudo random bytes for the benchmarks. They are written once into the temp directory
+ * and reused by later runs, as writing several gigabytes takes longer than the benchmarks themselves.
+ */
+final class SyntheticFile {
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final String DIRECTORY_PROPERTY = "hexeditor.benchmarkDir";
+
+    private SyntheticFile(){
+    }
+
+    static Path of(long size) throws IOException {
+        Path directory = Paths.get(System.getProperty(DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir")));
+        Path file = directory.resolve("hexeditor-benchmark-" + size + ".bin");
+        if (Files.exists(file) && Files.size(file) == size) return file;
+        byte[] block = new byte[BLOCK_SIZE];
+        new Random(size).nextBytes(block);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE
+                , StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long written = 0; written < size; written += BLOCK_SIZE) {
+                ByteBuffer data = ByteBuffer.wrap(block, 0, (int) Math.min(BLOCK_SIZE, size - written));
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+        }
+        return file;
+    }
+
+    static PieceTable open(long size) throws IOException {
+        return new PieceTable(of(size));
+    }
+}
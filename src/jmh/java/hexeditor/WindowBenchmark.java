@@ -0,0 +1,58 @@
+package hexeditor;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static hexeditor.HexEditor.AREA_NUMBER_OF_LINES;
+import static hexeditor.HexEditor.AREA_RAW_SYMBOLS_IN_LINE;
+import static hexeditor.HexEditor.HEX_AREA_SYMBOLS_IN_LINE;
+
+/**
+ * Building a window of the view at a random offset: reading it from the edit buffer and formatting its rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WindowBenchmark {
+    @Param({"1048576", "67108864", "1073741824", "4294967296"})
+    public long fileSize;
+
+    private PieceTable content;
+    private final byte[] window = new byte[AREA_NUMBER_OF_LINES * AREA_RAW_SYMBOLS_IN_LINE];
+    private final char[] rowChars = new char[HEX_AREA_SYMBOLS_IN_LINE];
+
+    @Setup
+    public void open() throws IOException {
+        content = SyntheticFile.open(fileSize);
+    }
+
+    @TearDown
+    public void close() throws IOException {
+        content.close();
+    }
+
+    @Benchmark
+    public int readWindow() throws IOException {
+        return content.read(randomRowOffset(), window, 0, window.length);
+    }
+
+    @Benchmark
+    public void buildWindow(Blackhole blackhole) throws IOException {
+        int length = content.read(randomRowOffset(), window, 0, window.length);
+        for (int first = 0; first < length; first += AREA_RAW_SYMBOLS_IN_LINE) {
+            int end = Math.min(length, first + AREA_RAW_SYMBOLS_IN_LINE);
+            blackhole.consume(ByteFormatter.formatHexRow(window, first, end, rowChars, 0));
+            for (int index = first; index < end; ++index)
+                blackhole.consume(ByteFormatter.formatSymbol(window[index] & 0xff, rowChars, 0));
+        }
+    }
+
+    private long randomRowOffset(){
+        long rows = Math.max(1, (fileSize - window.length) / AREA_RAW_SYMBOLS_IN_LINE);
+        return ThreadLocalRandom.current().nextLong(rows) * AREA_RAW_SYMBOLS_IN_LINE;
+    }
+}
@@ -0,0 +1,161 @@
+package hexeditor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds the ranges where two contents differ. Both are split into chunks compared in parallel on a fork/join
+ * pool: a vectorized equality check clears identical chunks at the speed of reading them, and only chunks
+ * which differ are walked for the exact ranges. Once the range budget is used up, a differing chunk
+ * is reported as one range.
+ */
+public class BinaryDiff {
+    static final int CHUNK_SIZE = 1024 * 1024;
+    static final int MAX_RANGES = 1_000_000;
+
+    private final PieceTable left;
+    private final PieceTable right;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<byte[][]> buffers = ThreadLocal.withInitial(() -> new byte[2][CHUNK_SIZE]);
+    private final AtomicInteger rangeBudget = new AtomicInteger(MAX_RANGES);
+    private final AtomicLong compared = new AtomicLong();
+    private volatile boolean cancelled = false;
+
+    public BinaryDiff(PieceTable left, PieceTable right){
+        this(left, right, ForkJoinPool.commonPool());
+    }
+
+    public BinaryDiff(PieceTable left, PieceTable right, ForkJoinPool pool){
+        this.left = left;
+        this.right = right;
+        this.pool = pool;
+    }
+
+    /**
+     * Compares the contents and reports the compared bytes of the shorter one. The tail of the longer content
+     * is one range. A cancelled comparison returns the ranges found so far.
+     */
+    public DiffRanges compare(ProgressListener listener) throws IOException {
+        long leftLength = left.length();
+        long rightLength = right.length();
+        long common = Math.min(leftLength, rightLength);
+        int chunks = (int) ((common + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        long[][] chunkRanges = new long[chunks][];
+        try {
+            pool.invoke(new ChunkTask(0, chunks, common, chunkRanges, listener));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return collect(chunkRanges, common, Math.max(leftLength, rightLength));
+    }
+
+    public void cancel(){
+        cancelled = true;
+    }
+
+    public boolean isCancelled(){
+        return cancelled;
+    }
+
+    /**
+     * Joins the ranges of all chunks in order, merging ranges which touch across a chunk boundary.
+     */
+    private static DiffRanges collect(long[][] chunkRanges, long common, long longest){
+        int total = common < longest ? 1 : 0;
+        for (long[] ranges: chunkRanges)
+            if (ranges != null) total += ranges.length / 2;
+        long[] starts = new long[total];
+        long[] ends = new long[total];
+        int count = 0;
+        for (long[] ranges: chunkRanges) {
+            if (ranges == null) continue;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (count > 0 && ends[count - 1] == ranges[i]) {
+                    ends[count - 1] = ranges[i + 1];
+                    continue;
+                }
+                starts[count] = ranges[i];
+                ends[count++] = ranges[i + 1];
+            }
+        }
+        if (common < longest) {
+            if (count > 0 && ends[count - 1] == common) {
+                ends[count - 1] = longest;
+            } else {
+                starts[count] = common;
+                ends[count++] = longest;
+            }
+        }
+        return new DiffRanges(starts, ends, count);
+    }
+
+    private class ChunkTask extends RecursiveAction {
+        private final int first;
+        private final int end;
+        private final long length;
+        private final long[][] chunkRanges;
+        private final ProgressListener listener;
+
+        ChunkTask(int first, int end, long length, long[][] chunkRanges, ProgressListener listener){
+            this.first = first;
+            this.end = end;
+            this.length = length;
+            this.chunkRanges = chunkRanges;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void compute(){
+            if (cancelled) return;
+            if (end - first > 1) {
+                int middle = (first + end) >>> 1;
+                invokeAll(new ChunkTask(first, middle, length, chunkRanges, listener)
+                        , new ChunkTask(middle, end, length, chunkRanges, listener));
+                return;
+            }
+            try {
+                compareChunk(first);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void compareChunk(int chunk) throws IOException {
+            long start = (long) chunk * CHUNK_SIZE;
+            int size = (int) Math.min(CHUNK_SIZE, length - start);
+            byte[][] buffer = buffers.get();
+            left.read(start, buffer[0], 0, size);
+            right.read(start, buffer[1], 0, size);
+            if (!Arrays.equals(buffer[0], 0, size, buffer[1], 0, size))
+                chunkRanges[chunk] = differingRanges(buffer[0], buffer[1], size, start);
+            if (listener != null) listener.progress(compared.addAndGet(size), length);
+        }
+
+        /**
+         * Returns start and end pairs of the differing runs, jumping over equal bytes with a vectorized mismatch.
+         */
+        private long[] differingRanges(byte[] a, byte[] b, int size, long start){
+            long[] ranges = new long[16];
+            int count = 0;
+            int index = 0;
+            while (index < size) {
+                int skipped = Arrays.mismatch(a, index, size, b, index, size);
+                if (skipped < 0) break;
+                int runStart = index + skipped;
+                int runEnd = runStart + 1;
+                while (runEnd < size && a[runEnd] != b[runEnd]) ++runEnd;
+                if (count == ranges.length) ranges = Arrays.copyOf(ranges, count * 2);
+                ranges[count++] = start + runStart;
+                ranges[count++] = start + runEnd;
+                index = runEnd;
+            }
+            if (rangeBudget.addAndGet(-count / 2) < 0) return new long[]{ranges[0], ranges[count - 1]};
+            return Arrays.copyOf(ranges, count);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package hexeditor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Arrays;
+
+import static hexeditor.HexEditor.AREA_RAW_SYMBOLS_IN_LINE;
+import static hexeditor.HexEditor.AREA_SYMBOLS_AS_BOX;
+import static hexeditor.HexEditor.AREA_SYMBOLS_AS_NUMBER;
+import static hexeditor.HexEditor.HEX_AREA_SYMBOLS_FOR_RAW;
+import static hexeditor.HexEditor.HEX_AREA_SYMBOLS_IN_LINE;
+
+/**
+ * Paints one column of the editor, hex codes or symbols, straight from a window of bytes.
+ * Glyph metrics are measured once per font and only the rows intersecting the clip are drawn.
+ */
+public class ByteAreaView extends JComponent implements Scrollable {
+    enum Column { HEX, SYMBOL }
+
+    private static final Color SYMBOL_AS_NUMBER_COLOR = Color.BLUE;
+    private static final Color SYMBOL_AS_BOX_COLOR = new Color(0, 100, 0);
+    private static final Color CARET_CELL_COLOR = Color.GRAY;
+    private static final Color HIGHLIGHT_COLOR = new Color(255, 200, 200);
+    private static final Color SELECTION_COLOR = new Color(190, 210, 255);
+    private static final int TEXT_INSET = 3;
+    private static final Color LOADING_COLOR = Color.GRAY;
+    private static final String LOADING_TEXT = "Loading...";
+    //a window read faster than this never shows the placeholder
+    private static final int LOADING_DELAY_MS = 150;
+    private static final int SYMBOL_ROW_COLUMNS = AREA_RAW_SYMBOLS_IN_LINE * ByteFormatter.SYMBOL_MAX_WIDTH;
+
+    private final Column column;
+    private byte[] data = new byte[0];
+    private int length = 0;
+    private int caretByte = 0;
+    private int caretNibble = 0;
+    private boolean[] highlights;
+    private int selectionFrom = 0;
+    private int selectionTo = 0;
+    //symbol column only: text column of every byte within its row, and the byte under every text column of a row
+    private int[] cellColumns = new int[AREA_RAW_SYMBOLS_IN_LINE];
+    private int[] columnBytes = new int[SYMBOL_ROW_COLUMNS];
+
+    private Runnable afterPaint;
+    private long lastPaintNanos = 0;
+    private boolean loading = false;
+    private final Timer loadingTimer = new Timer(LOADING_DELAY_MS, event -> {
+        loading = true;
+        repaint();
+    });
+
+    private int charWidth;
+    private int rowHeight;
+    private int ascent;
+    private final char[] rowChars = new char[HEX_AREA_SYMBOLS_IN_LINE];
+
+    ByteAreaView(Column column){
+        this.column = column;
+        setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        setBackground(Color.WHITE);
+        setForeground(Color.BLACK);
+        setOpaque(true);
+        setFocusable(true);
+        loadingTimer.setRepeats(false);
+    }
+
+    @Override
+    public void setFont(Font font){
+        super.setFont(font);
+        FontMetrics metrics = getFontMetrics(font);
+        charWidth = metrics.charWidth('0');
+        rowHeight = metrics.getHeight();
+        ascent = metrics.getAscent();
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Shows the first {@code length} bytes of {@code data}. The array is not copied.
+     */
+    void setWindow(byte[] data, int length){
+        boolean resized = rowCount(length) != rowCount(this.length);
+        this.data = data;
+        this.length = length;
+        int rows = rowCount(data.length);
+        if (cellColumns.length != rows * AREA_RAW_SYMBOLS_IN_LINE) {
+            cellColumns = new int[rows * AREA_RAW_SYMBOLS_IN_LINE];
+            columnBytes = new int[rows * SYMBOL_ROW_COLUMNS];
+        }
+        indexSymbolRows(0);
+        if (resized) revalidate();
+        repaint();
+    }
+
+    /**
+     * Repaints bytes [from, to) of the window after they were changed in place, {@code length} is the new
+     * window length. Symbols of the changed bytes may change their width, so the rest of their rows is repainted too.
+     */
+    void bytesChanged(int length, int from, int to){
+        boolean resized = rowCount(length) != rowCount(this.length);
+        this.length = length;
+        //bytes after an insertion or a removal move, so every row from the first changed one is indexed again
+        indexSymbolRows(from / AREA_RAW_SYMBOLS_IN_LINE);
+        if (resized) revalidate();
+        if (to - from == 1 && column == Column.HEX) {
+            repaint(cellBounds(from));
+            return;
+        }
+        int firstRow = from / AREA_RAW_SYMBOLS_IN_LINE;
+        int lastRow = Math.max(firstRow, (to - 1) / AREA_RAW_SYMBOLS_IN_LINE);
+        repaint(0, TEXT_INSET + firstRow * rowHeight, getWidth(), (lastRow - firstRow + 1) * rowHeight);
+    }
+
+    void setCaret(int caretByte, int caretNibble){
+        if (caretByte == this.caretByte && caretNibble == this.caretNibble) return;
+        repaint(cellBounds(this.caretByte));
+        this.caretByte = caretByte;
+        this.caretNibble = caretNibble;
+        repaint(cellBounds(caretByte));
+    }
+
+    /**
+     * Paints the background of the bytes set in the mask, which is indexed like the window and not copied.
+     * Null clears the highlighting.
+     */
+    void setHighlights(boolean[] highlights){
+        this.highlights = highlights;
+        repaint();
+    }
+
+    /**
+     * Paints the background of the window bytes in [from, to), an empty range clears the selection.
+     */
+    void setSelection(int from, int to){
+        if (to <= from) from = to = 0;
+        if (from == selectionFrom && to == selectionTo) return;
+        selectionFrom = from;
+        selectionTo = to;
+        repaint();
+    }
+
+    /**
+     * Marks the window as being read. A placeholder replaces the bytes if the read takes noticeably long.
+     */
+    void setLoading(boolean pending){
+        if (pending) {
+            if (!loading) loadingTimer.restart();
+            return;
+        }
+        loadingTimer.stop();
+        if (loading) {
+            loading = false;
+            repaint();
+        }
+    }
+
+    /**
+     * Runs the action once the next paint of the component is done.
+     */
+    void runAfterPaint(Runnable action){
+        afterPaint = action;
+        repaint();
+    }
+
+    long getLastPaintNanos(){
+        return lastPaintNanos;
+    }
+
+    int getRowHeight(){
+        return rowHeight;
+    }
+
+    /**
+     * Bounds of the byte cell in the window, including the gap after a hex code.
+     */
+    Rectangle cellBounds(int index){
+        int row = index / AREA_RAW_SYMBOLS_IN_LINE;
+        int width = column == Column.HEX ? HEX_AREA_SYMBOLS_FOR_RAW : symbolWidth(index);
+        return new Rectangle(TEXT_INSET + cellColumn(index) * charWidth, TEXT_INSET + row * rowHeight
+                , width * charWidth, rowHeight);
+    }
+
+    /**
+     * Position under the point: a caret position of the hex layout for the hex column, a byte index for the symbol one.
+     */
+    int positionAt(Point point){
+        int row = Math.max(0, Math.min(rowCount(length) - 1, (point.y - TEXT_INSET) / rowHeight));
+        int textColumn = Math.max(0, (point.x - TEXT_INSET) / charWidth);
+        if (column == Column.HEX)
+            return row * HEX_AREA_SYMBOLS_IN_LINE + Math.min(textColumn, HEX_AREA_SYMBOLS_IN_LINE - 1);
+        return columnBytes[row * SYMBOL_ROW_COLUMNS + Math.min(textColumn, SYMBOL_ROW_COLUMNS - 1)];
+    }
+
+    @Override
+    public Dimension getPreferredSize(){
+        int columns = column == Column.HEX
+                ? HEX_AREA_SYMBOLS_IN_LINE
+                : AREA_RAW_SYMBOLS_IN_LINE * ByteFormatter.SYMBOL_MAX_WIDTH;
+        Insets insets = getInsets();
+        return new Dimension(columns * charWidth + 2 * TEXT_INSET + insets.left + insets.right
+                , rowCount(length) * rowHeight + 2 * TEXT_INSET + insets.top + insets.bottom);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g){
+        long paintStart = System.nanoTime();
+        paintWindow(g);
+        lastPaintNanos = System.nanoTime() - paintStart;
+        if (afterPaint != null) {
+            Runnable action = afterPaint;
+            afterPaint = null;
+            SwingUtilities.invokeLater(action);
+        }
+    }
+
+    private void paintWindow(Graphics g){
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        g.setFont(getFont());
+        if (loading) {
+            g.setColor(LOADING_COLOR);
+            g.drawString(LOADING_TEXT, TEXT_INSET, TEXT_INSET + ascent);
+            return;
+        }
+        int firstRow = Math.max(0, (clip.y - TEXT_INSET) / rowHeight);
+        int lastRow = Math.min(rowCount(length) - 1, (clip.y + clip.height - TEXT_INSET) / rowHeight);
+        for (int row = firstRow; row <= lastRow; ++row)
+            paintRow(g, row);
+        if (hasFocus()) paintCaret(g);
+    }
+
+    private void paintRow(Graphics g, int row){
+        int first = row * AREA_RAW_SYMBOLS_IN_LINE;
+        int end = Math.min(length, first + AREA_RAW_SYMBOLS_IN_LINE);
+        int y = TEXT_INSET + row * rowHeight;
+        if (highlights != null) {
+            g.setColor(HIGHLIGHT_COLOR);
+            for (int index = first; index < end && index < highlights.length; ++index) {
+                if (!highlights[index]) continue;
+                Rectangle cell = cellBounds(index);
+                g.fillRect(cell.x, cell.y, cell.width, rowHeight);
+            }
+        }
+        int selectedFirst = Math.max(first, selectionFrom);
+        int selectedEnd = Math.min(end, selectionTo);
+        if (selectedFirst < selectedEnd) {
+            Rectangle firstCell = cellBounds(selectedFirst);
+            Rectangle lastCell = cellBounds(selectedEnd - 1);
+            g.setColor(SELECTION_COLOR);
+            g.fillRect(firstCell.x, firstCell.y, lastCell.x + lastCell.width - firstCell.x, rowHeight);
+        }
+        if (caretByte >= first && caretByte < end) {
+            Rectangle caretCell = cellBounds(caretByte);
+            g.setColor(CARET_CELL_COLOR);
+            g.fillRect(caretCell.x, caretCell.y, column == Column.HEX ? 2 * charWidth : caretCell.width, rowHeight);
+        }
+        if (column == Column.HEX) {
+            int count = ByteFormatter.formatHexRow(data, first, end, rowChars, 0);
+            g.setColor(getForeground());
+            g.drawChars(rowChars, 0, count, TEXT_INSET, y + ascent);
+            return;
+        }
+        int x = TEXT_INSET;
+        for (int index = first; index < end; ++index) {
+            int c = data[index] & 0xff;
+            int count = ByteFormatter.formatSymbol(c, rowChars, 0);
+            g.setColor(symbolColor(c));
+            g.drawChars(rowChars, 0, count, x, y + ascent);
+            x += count * charWidth;
+        }
+    }
+
+    private void paintCaret(Graphics g){
+        int x = TEXT_INSET + cellColumn(caretByte) * charWidth;
+        if (column == Column.HEX) x += caretNibble * charWidth;
+        int y = TEXT_INSET + caretByte / AREA_RAW_SYMBOLS_IN_LINE * rowHeight;
+        g.setColor(getForeground());
+        g.drawLine(x, y, x, y + rowHeight - 1);
+    }
+
+    private Color symbolColor(int c){
+        if (c < AREA_SYMBOLS_AS_NUMBER) return SYMBOL_AS_NUMBER_COLOR;
+        if (c > AREA_SYMBOLS_AS_BOX) return SYMBOL_AS_BOX_COLOR;
+        return getForeground();
+    }
+
+    private int symbolWidth(int index){
+        return index < length ? ByteFormatter.symbolWidth(data[index]) : 1;
+    }
+
+    /**
+     * Text column of the byte cell within its row.
+     */
+    private int cellColumn(int index){
+        if (column == Column.HEX) return index % AREA_RAW_SYMBOLS_IN_LINE * HEX_AREA_SYMBOLS_FOR_RAW;
+        return index < cellColumns.length ? cellColumns[index] : index % AREA_RAW_SYMBOLS_IN_LINE;
+    }
+
+    /**
+     * Rebuilds the symbol layout of the rows starting from {@code firstRow}: prefix sums of the symbol widths
+     * give the column of every byte, and the columns past the last symbol of a row point to its last byte.
+     */
+    private void indexSymbolRows(int firstRow){
+        if (column != Column.SYMBOL) return;
+        int rows = cellColumns.length / AREA_RAW_SYMBOLS_IN_LINE;
+        for (int row = firstRow; row < rows; ++row) {
+            int first = row * AREA_RAW_SYMBOLS_IN_LINE;
+            int end = Math.min(length, first + AREA_RAW_SYMBOLS_IN_LINE);
+            int columns = row * SYMBOL_ROW_COLUMNS;
+            int textColumn = 0;
+            for (int index = first; index < first + AREA_RAW_SYMBOLS_IN_LINE; ++index) {
+                cellColumns[index] = textColumn;
+                int width = symbolWidth(index);
+                if (index < end - 1)
+                    for (int i = 0; i < width; ++i) columnBytes[columns + textColumn + i] = index;
+                else if (index == end - 1 || index == first && end <= first)
+                    Arrays.fill(columnBytes, columns + textColumn, columns + SYMBOL_ROW_COLUMNS, index);
+                textColumn += width;
+            }
+        }
+    }
+
+    private static int rowCount(int length){
+        return Math.max(1, (length + AREA_RAW_SYMBOLS_IN_LINE - 1) / AREA_RAW_SYMBOLS_IN_LINE);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize(){
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction){
+        return orientation == SwingConstants.VERTICAL ? rowHeight : charWidth;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction){
+        return orientation == SwingConstants.VERTICAL
+                ? Math.max(rowHeight, visibleRect.height - rowHeight)
+                : Math.max(charWidth, visibleRect.width - charWidth);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth(){
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight(){
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package hexeditor;
+
+import static hexeditor.HexEditor.AREA_SYMBOLS_AS_BOX;
+import static hexeditor.HexEditor.AREA_SYMBOLS_AS_NUMBER;
+import static hexeditor.HexEditor.HEX_AREA_SYMBOLS_FOR_RAW;
+
+/**
+ * Text representation of bytes taken from precomputed tables. Every method writes into
+ * a caller-supplied array, so formatting a byte allocates nothing.
+ */
+public final class ByteFormatter {
+    static final int SYMBOL_MAX_WIDTH = 3;
+    static final char SYMBOL_BOX = '\u25FB';
+    private static final String HEX_PREFIX = "0x";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] HEX_TABLE = new char[256 * 2];
+    private static final char[] SYMBOL_TABLE = new char[256 * SYMBOL_MAX_WIDTH];
+    private static final byte[] SYMBOL_WIDTHS = new byte[256];
+
+    static {
+        for (int c = 0; c < 256; ++c) {
+            HEX_TABLE[c * 2] = HEX_DIGITS[c >> 4];
+            HEX_TABLE[c * 2 + 1] = HEX_DIGITS[c & 0x0f];
+            String symbol;
+            if (c < AREA_SYMBOLS_AS_NUMBER) symbol = "\\" + c;
+            else if (c > AREA_SYMBOLS_AS_BOX) symbol = String.valueOf(SYMBOL_BOX);
+            else symbol = String.valueOf((char) c);
+            symbol.getChars(0, symbol.length(), SYMBOL_TABLE, c * SYMBOL_MAX_WIDTH);
+            SYMBOL_WIDTHS[c] = (byte) symbol.length();
+        }
+    }
+
+    private ByteFormatter(){
+    }
+
+    /**
+     * Writes two hex digits of the byte and returns their count.
+     */
+    public static int formatHex(int b, char[] target, int offset){
+        int index = (b & 0xff) * 2;
+        target[offset] = HEX_TABLE[index];
+        target[offset + 1] = HEX_TABLE[index + 1];
+        return 2;
+    }
+
+    /**
+     * Writes hex codes of {@code data[from, to)} separated by spaces and returns the count of written chars.
+     */
+    public static int formatHexRow(byte[] data, int from, int to, char[] target, int offset){
+        int position = offset;
+        for (int i = from; i < to; ++i) {
+            formatHex(data[i], target, position);
+            target[position + 2] = ' ';
+            position += HEX_AREA_SYMBOLS_FOR_RAW;
+        }
+        return position - offset;
+    }
+
+    /**
+     * Writes the symbol of the byte shown in the symbol pane and returns its width.
+     */
+    public static int formatSymbol(int b, char[] target, int offset){
+        int c = b & 0xff;
+        int width = SYMBOL_WIDTHS[c];
+        System.arraycopy(SYMBOL_TABLE, c * SYMBOL_MAX_WIDTH, target, offset, width);
+        return width;
+    }
+
+    public static int symbolWidth(int b){
+        return SYMBOL_WIDTHS[b & 0xff];
+    }
+
+    /**
+     * Parses an offset written in hex with a "0x" prefix or in decimal, underscores may group the digits.
+     */
+    public static long parseOffset(String text){
+        String offset = text.trim().replace("_", "");
+        if (offset.regionMatches(true, 0, HEX_PREFIX, 0, HEX_PREFIX.length()))
+            return Long.parseLong(offset.substring(HEX_PREFIX.length()), 16);
+        return Long.parseLong(offset);
+    }
+
+    /**
+     * Parses hex codes like "DE AD BE EF" or "deadbeef", whitespace between the codes is ignored.
+     */
+    public static byte[] parseHexBytes(String text){
+        String codes = text.replaceAll("\\s", "");
+        if (codes.length() % 2 != 0) throw new IllegalArgumentException("Bytes need two hex digits each: " + codes);
+        byte[] bytes = new byte[codes.length() / 2];
+        for (int i = 0; i < bytes.length; ++i) {
+            int high = hexDigit(codes.charAt(i * 2));
+            int low = hexDigit(codes.charAt(i * 2 + 1));
+            if (high < 0 || low < 0)
+                throw new IllegalArgumentException("Not a hex code: " + codes.substring(i * 2, i * 2 + 2));
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * Whether the text looks like bytes copied from the hex pane: two or more hex codes, one space between them.
+     * Words which happen to be hex digits, like "cafe", and lone codes, like "12", don't.
+     */
+    public static boolean isHexCopy(String text){
+        return text.matches("\\p{XDigit}{2}( \\p{XDigit}{2})+");
+    }
+
+    /**
+     * Value of a hex digit or -1 when the char isn't one.
+     */
+    public static int hexDigit(char c){
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+}
@@ -0,0 +1,271 @@
+package hexeditor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entropy and byte class densities (zeros, printable ASCII, high bytes) of every block of the content, each
+ * scaled to 0-255 and kept in a byte array. Blocks are computed in parallel and can be shown while the rest
+ * is still being computed. A finished overview of an unedited file is saved to a small sidecar index.
+ */
+public class ByteOverview {
+    static final int MAX_BLOCKS = 1 << 16;
+    static final int MIN_BLOCK_SIZE = 4096;
+    private static final int MAX_BLOCK_SIZE = 1 << 30;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int SIDECAR_MAGIC = 0x48584f56;
+    private static final int SIDECAR_VERSION = 1;
+
+    private final int blockSize;
+    private long length;
+    private int blockCount;
+    private byte[] entropy;
+    private byte[] zeros;
+    private byte[] ascii;
+    private byte[] high;
+    private boolean[] computed;
+    private final AtomicInteger computedCount = new AtomicInteger();
+    //counts edits, so a block computed while an edit came in isn't stored
+    private int version = 0;
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+    private volatile boolean cancelled = false;
+
+    public ByteOverview(long length){
+        this(length, blockSizeFor(length));
+    }
+
+    ByteOverview(long length, int blockSize){
+        this.blockSize = blockSize;
+        this.length = length;
+        this.blockCount = blocksFor(length);
+        this.entropy = new byte[blockCount];
+        this.zeros = new byte[blockCount];
+        this.ascii = new byte[blockCount];
+        this.high = new byte[blockCount];
+        this.computed = new boolean[blockCount];
+    }
+
+    /**
+     * Smallest power of two block size which keeps the number of blocks within {@link #MAX_BLOCKS}.
+     */
+    static int blockSizeFor(long length){
+        long size = MIN_BLOCK_SIZE;
+        while (size < MAX_BLOCK_SIZE && (length + size - 1) / size > MAX_BLOCKS) size <<= 1;
+        return (int) size;
+    }
+
+    public synchronized int blockCount(){
+        return blockCount;
+    }
+
+    public int blockSize(){
+        return blockSize;
+    }
+
+    public synchronized long length(){
+        return length;
+    }
+
+    public synchronized boolean isComputed(int block){
+        return block < blockCount && computed[block];
+    }
+
+    public synchronized boolean isComplete(){
+        return computedCount.get() == blockCount;
+    }
+
+    /**
+     * Values of the block as {entropy, zeros, ascii, high}, each 0-255, or null while it's not computed.
+     */
+    public synchronized int[] values(int block){
+        if (block >= blockCount || !computed[block]) return null;
+        return new int[]{entropy[block] & 0xff, zeros[block] & 0xff, ascii[block] & 0xff, high[block] & 0xff};
+    }
+
+    /**
+     * Computes every block which isn't computed yet in parallel on the pool.
+     */
+    public void compute(PieceTable content, ForkJoinPool pool) throws IOException {
+        cancelled = false;
+        try {
+            pool.invoke(new BlockTask(content, 0, blockCount()));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public void cancel(){
+        cancelled = true;
+    }
+
+    /**
+     * Drops the blocks the edit touched and moves the blocks behind it along with their bytes. When those
+     * bytes moved by whole blocks the values move with them, otherwise every block behind the edit holds
+     * other bytes and is computed again.
+     */
+    public synchronized void contentEdited(long offset, long removedLength, long insertedLength, long newLength){
+        ++version;
+        long delta = insertedLength - removedLength;
+        int newCount = blocksFor(newLength);
+        byte[][] oldValues = {entropy, zeros, ascii, high};
+        boolean[] oldComputed = computed;
+        entropy = new byte[newCount];
+        zeros = new byte[newCount];
+        ascii = new byte[newCount];
+        high = new byte[newCount];
+        computed = new boolean[newCount];
+        //blocks ending before the edit keep their bytes
+        copyBlocks(oldValues, oldComputed, 0, 0, (int) Math.min(offset / blockSize, Math.min(blockCount, newCount)));
+        if (delta % blockSize == 0) {
+            //the blocks behind the inserted bytes hold the ones which were behind the removed bytes
+            int from = (int) ((offset + insertedLength + blockSize - 1) / blockSize);
+            int shift = (int) (delta / blockSize);
+            int to = (int) Math.min(newCount, (long) blockCount + shift);
+            if (from < to) copyBlocks(oldValues, oldComputed, from - shift, from, to - from);
+        }
+        blockCount = newCount;
+        length = newLength;
+        int count = 0;
+        for (boolean done: computed)
+            if (done) ++count;
+        computedCount.set(count);
+    }
+
+    private void copyBlocks(byte[][] oldValues, boolean[] oldComputed, int from, int to, int count){
+        System.arraycopy(oldValues[0], from, entropy, to, count);
+        System.arraycopy(oldValues[1], from, zeros, to, count);
+        System.arraycopy(oldValues[2], from, ascii, to, count);
+        System.arraycopy(oldValues[3], from, high, to, count);
+        System.arraycopy(oldComputed, from, computed, to, count);
+    }
+
+    /**
+     * Writes the overview of the file with the given size and modification time, read back by {@link #load}.
+     */
+    public synchronized void save(Path sidecar, long fileSize, long modified) throws IOException {
+        Files.createDirectories(sidecar.toAbsolutePath().getParent());
+        Path temp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(SIDECAR_MAGIC);
+            out.writeInt(SIDECAR_VERSION);
+            out.writeLong(fileSize);
+            out.writeLong(modified);
+            out.writeInt(blockSize);
+            out.writeInt(blockCount);
+            out.write(entropy, 0, blockCount);
+            out.write(zeros, 0, blockCount);
+            out.write(ascii, 0, blockCount);
+            out.write(high, 0, blockCount);
+        }
+        Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a complete overview saved for the file with the given size and modification time, or returns null.
+     */
+    public static ByteOverview load(Path sidecar, long fileSize, long modified){
+        if (!Files.isReadable(sidecar)) return null;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(sidecar))) {
+            if (in.readInt() != SIDECAR_MAGIC || in.readInt() != SIDECAR_VERSION) return null;
+            if (in.readLong() != fileSize || in.readLong() != modified) return null;
+            int blockSize = in.readInt();
+            int blockCount = in.readInt();
+            ByteOverview overview = new ByteOverview(fileSize, blockSize);
+            if (blockSize != blockSizeFor(fileSize) || blockCount != overview.blockCount) return null;
+            in.readFully(overview.entropy);
+            in.readFully(overview.zeros);
+            in.readFully(overview.ascii);
+            in.readFully(overview.high);
+            Arrays.fill(overview.computed, true);
+            overview.computedCount.set(blockCount);
+            return overview;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private int blocksFor(long contentLength){
+        return (int) ((contentLength + blockSize - 1) / blockSize);
+    }
+
+    private synchronized int version(){
+        return version;
+    }
+
+    private synchronized void store(int block, int blockVersion, long blockLength, int[] counts){
+        if (block >= blockCount || computed[block] || blockVersion != version) return;
+        double entropyBits = 0;
+        int asciiCount = 0;
+        int highCount = 0;
+        for (int c = 0; c < counts.length; ++c) {
+            if (counts[c] == 0) continue;
+            double p = (double) counts[c] / blockLength;
+            entropyBits -= p * Math.log(p);
+            if (c >= HexEditor.AREA_SYMBOLS_AS_NUMBER && c <= HexEditor.AREA_SYMBOLS_AS_BOX) asciiCount += counts[c];
+            if (c >= 0x80) highCount += counts[c];
+        }
+        entropy[block] = (byte) Math.round(entropyBits / Math.log(2) / 8 * 255);
+        zeros[block] = scaled(counts[0], blockLength);
+        ascii[block] = scaled(asciiCount, blockLength);
+        high[block] = scaled(highCount, blockLength);
+        computed[block] = true;
+        computedCount.incrementAndGet();
+    }
+
+    private static byte scaled(long count, long total){
+        return (byte) (total == 0 ? 0 : count * 255 / total);
+    }
+
+    private class BlockTask extends RecursiveAction {
+        private final PieceTable content;
+        private final int first;
+        private final int end;
+
+        BlockTask(PieceTable content, int first, int end){
+            this.content = content;
+            this.first = first;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute(){
+            if (cancelled) return;
+            if (end - first > 1) {
+                int middle = (first + end) >>> 1;
+                invokeAll(new BlockTask(content, first, middle), new BlockTask(content, middle, end));
+                return;
+            }
+            if (isComputed(first)) return;
+            try {
+                computeBlock(first);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void computeBlock(int block) throws IOException {
+            int blockVersion = version();
+            int[] counts = new int[256];
+            byte[] buffer = buffers.get();
+            long start = (long) block * blockSize;
+            long end = Math.min(length(), start + blockSize);
+            long position = start;
+            while (position < end && !cancelled) {
+                int read = content.read(position, buffer, 0, (int) Math.min(buffer.length, end - position));
+                if (read <= 0) break;
+                for (int i = 0; i < read; ++i) ++counts[buffer[i] & 0xff];
+                position += read;
+            }
+            if (!cancelled) store(block, blockVersion, position - start, counts);
+        }
+    }
+}
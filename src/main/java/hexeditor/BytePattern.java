@@ -0,0 +1,81 @@
+package hexeditor;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sequence of bytes to look for, where some positions may match any byte. Matching uses
+ * Boyer-Moore-Horspool with the bad character shifts limited by the last wildcard position.
+ */
+public class BytePattern {
+    private static final String WILDCARD = "??";
+
+    private final byte[] bytes;
+    private final boolean[] wildcards;
+    private final int[] shifts = new int[256];
+
+    public BytePattern(byte[] bytes, boolean[] wildcards){
+        if (bytes.length == 0) throw new IllegalArgumentException("Pattern is empty");
+        this.bytes = bytes;
+        this.wildcards = wildcards;
+        int last = bytes.length - 1;
+        int lastWildcard = -1;
+        for (int i = 0; i < last; ++i)
+            if (wildcards[i]) lastWildcard = i;
+        int maxShift = last - lastWildcard;
+        for (int c = 0; c < shifts.length; ++c) shifts[c] = maxShift;
+        for (int i = lastWildcard + 1; i < last; ++i)
+            shifts[bytes[i] & 0xff] = last - i;
+    }
+
+    /**
+     * Parses hex codes like "DE AD ?? EF" or "dead??ef", where "??" matches any byte.
+     */
+    public static BytePattern fromHex(String text){
+        String codes = text.replaceAll("\\s", "");
+        if (codes.isEmpty() || codes.length() % 2 != 0)
+            throw new IllegalArgumentException("Hex pattern needs two digits for every byte: " + text);
+        byte[] bytes = new byte[codes.length() / 2];
+        boolean[] wildcards = new boolean[bytes.length];
+        for (int i = 0; i < bytes.length; ++i) {
+            String code = codes.substring(i * 2, i * 2 + 2);
+            if (code.equals(WILDCARD)) {
+                wildcards[i] = true;
+                continue;
+            }
+            int high = ByteFormatter.hexDigit(code.charAt(0));
+            int low = ByteFormatter.hexDigit(code.charAt(1));
+            if (high < 0 || low < 0) throw new IllegalArgumentException("Not a hex code: " + code);
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return new BytePattern(bytes, wildcards);
+    }
+
+    public static BytePattern fromText(String text, Charset charset){
+        byte[] bytes = text.getBytes(charset);
+        return new BytePattern(bytes, new boolean[bytes.length]);
+    }
+
+    public static BytePattern fromAscii(String text){
+        return fromText(text, StandardCharsets.ISO_8859_1);
+    }
+
+    public int length(){
+        return bytes.length;
+    }
+
+    /**
+     * Returns the start of the first match lying entirely in {@code data[from, to)} or -1.
+     */
+    public int indexIn(byte[] data, int from, int to){
+        int last = bytes.length - 1;
+        int position = from;
+        while (position + last < to) {
+            int i = last;
+            while (i >= 0 && (wildcards[i] || bytes[i] == data[position + i])) --i;
+            if (i < 0) return position;
+            position += shifts[data[position + last] & 0xff];
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,50 @@
+package hexeditor;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Checksum values per range of the content. An overwrite drops the ranges it touches, an edit which
+ * changes the length also drops every range behind it, since their bytes moved.
+ */
+public class ChecksumCache implements PieceTable.EditListener {
+    private final Map<Range, Map<Checksums.Algorithm, String>> values = new HashMap<>();
+
+    public synchronized Map<Checksums.Algorithm, String> get(long from, long to){
+        return values.get(new Range(from, to));
+    }
+
+    public synchronized void put(long from, long to, Map<Checksums.Algorithm, String> rangeValues){
+        values.put(new Range(from, to), rangeValues);
+    }
+
+    @Override
+    public synchronized void contentEdited(long offset, long removedLength, long insertedLength){
+        long touchedEnd = removedLength == insertedLength ? offset + removedLength : Long.MAX_VALUE;
+        for (Iterator<Range> ranges = values.keySet().iterator(); ranges.hasNext(); ) {
+            Range range = ranges.next();
+            if (range.to > offset && range.from < touchedEnd) ranges.remove();
+        }
+    }
+
+    private static class Range {
+        final long from;
+        final long to;
+
+        Range(long from, long to){
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object other){
+            return other instanceof Range && ((Range) other).from == from && ((Range) other).to == to;
+        }
+
+        @Override
+        public int hashCode(){
+            return Long.hashCode(from) * 31 + Long.hashCode(to);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package hexeditor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * CRC32, CRC32C, MD5, SHA-1 and SHA-256 of a range of the edited content. Values are cached per range
+ * until an edit touches it, so asking again for an unchanged range doesn't read the file.
+ */
+public class ChecksumDialog extends JDialog {
+    private static final int PROGRESS_BAR_MAXIMUM = 1000;
+
+    private HexEditor editor;
+    private JTextField fromField = new JTextField("0", 14);
+    private JTextField toField = new JTextField(14);
+    private Map<Checksums.Algorithm, JTextField> valueFields = new EnumMap<>(Checksums.Algorithm.class);
+    private JLabel checksumStatus = new JLabel(" ");
+    private JProgressBar progressBar = new JProgressBar(0, PROGRESS_BAR_MAXIMUM);
+    private final IoExecutor checksumTasks = new IoExecutor("hexeditor-checksums");
+
+    private PieceTable cachedContent;
+    private ChecksumCache cache;
+    private Checksums checksums;
+    private Future<?> pendingChecksums;
+
+    public ChecksumDialog(HexEditor editor){
+        super(editor.getMainFrame(), "Checksums", false);
+        this.editor = editor;
+
+        JButton wholeFileButton = new JButton("Whole file");
+        wholeFileButton.addActionListener(event -> selectWholeFile());
+        JButton computeButton = new JButton("Compute");
+        computeButton.addActionListener(event -> compute());
+        JButton stopButton = new JButton("Stop");
+        stopButton.addActionListener(event -> stop());
+
+        JPanel range = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        range.add(new JLabel("From"));
+        range.add(fromField);
+        range.add(new JLabel("To"));
+        range.add(toField);
+        range.add(wholeFileButton);
+        range.add(computeButton);
+        range.add(stopButton);
+
+        JPanel values = new JPanel(new GridBagLayout());
+        GridBagConstraints constraints = new GridBagConstraints();
+        constraints.insets = new Insets(2, 5, 2, 5);
+        constraints.anchor = GridBagConstraints.WEST;
+        for (Checksums.Algorithm algorithm: Checksums.Algorithm.values()) {
+            JTextField valueField = new JTextField(64);
+            valueField.setEditable(false);
+            valueField.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            valueFields.put(algorithm, valueField);
+            constraints.gridy = algorithm.ordinal();
+            constraints.gridx = 0;
+            values.add(new JLabel(algorithm.toString()), constraints);
+            constraints.gridx = 1;
+            values.add(valueField, constraints);
+        }
+
+        JPanel status = new JPanel(new BorderLayout());
+        status.add(checksumStatus, BorderLayout.CENTER);
+        status.add(progressBar, BorderLayout.EAST);
+
+        getContentPane().add(range, BorderLayout.NORTH);
+        getContentPane().add(values, BorderLayout.CENTER);
+        getContentPane().add(status, BorderLayout.SOUTH);
+        getRootPane().setDefaultButton(computeButton);
+        pack();
+        setLocationRelativeTo(editor.getMainFrame());
+    }
+
+    @Override
+    public void setVisible(boolean visible){
+        if (visible && toField.getText().isEmpty()) selectWholeFile();
+        super.setVisible(visible);
+    }
+
+    /**
+     * Sets the range to compute, end exclusive.
+     */
+    void setRange(long from, long to){
+        fromField.setText(String.format("0x%X", from));
+        toField.setText(String.format("0x%X", to));
+    }
+
+    /**
+     * Stops the running computation, its values would mix bytes from before and after the edit.
+     */
+    void contentEdited(){
+        if (pendingChecksums != null) {
+            stop();
+            checksumStatus.setText("Stopped by an edit");
+        }
+    }
+
+    private void selectWholeFile(){
+        PieceTable content = editor.getEditBuffer();
+        setRange(0, content == null ? 0 : content.length());
+    }
+
+    private void compute(){
+        PieceTable content = editor.getEditBuffer();
+        if (content == null) return;
+        long from;
+        long to;
+        try {
+            from = ByteFormatter.parseOffset(fromField.getText());
+            to = ByteFormatter.parseOffset(toField.getText());
+        } catch (NumberFormatException ex) {
+            checksumStatus.setText("Not an offset: " + ex.getMessage());
+            return;
+        }
+        to = Math.min(to, content.length());
+        from = Math.max(0, Math.min(from, to));
+        stop();
+        if (content != cachedContent) {
+            if (cachedContent != null) cachedContent.removeEditListener(cache);
+            cachedContent = content;
+            cache = new ChecksumCache();
+            content.addEditListener(cache);
+        }
+        Map<Checksums.Algorithm, String> cached = cache.get(from, to);
+        if (cached != null) {
+            showValues(cached);
+            checksumStatus.setText(String.format("%d bytes, cached", to - from));
+            return;
+        }
+        showValues(null);
+        Checksums newChecksums = new Checksums(content);
+        checksums = newChecksums;
+        long rangeFrom = from;
+        long rangeTo = to;
+        long start = System.nanoTime();
+        checksumStatus.setText("Computing...");
+        pendingChecksums = checksumTasks.submit(progress -> newChecksums.compute(rangeFrom, rangeTo, progress)
+                , new IoExecutor.IoCallback<Map<Checksums.Algorithm, String>>(){
+            @Override
+            public void done(Map<Checksums.Algorithm, String> values){
+                pendingChecksums = null;
+                if (newChecksums.isCancelled()) return;
+                cache.put(rangeFrom, rangeTo, values);
+                showValues(values);
+                long elapsed = Math.max(1, System.nanoTime() - start);
+                checksumStatus.setText(String.format("%d bytes in %d ms (%.1f MB/s)"
+                        , rangeTo - rangeFrom, elapsed / 1_000_000, (rangeTo - rangeFrom) * 1000.0 / elapsed));
+            }
+
+            @Override
+            public void failed(Exception ex){
+                pendingChecksums = null;
+                checksumStatus.setText("Checksums failed: " + ex);
+            }
+        }, (done, total) ->
+                progressBar.setValue(total == 0 ? PROGRESS_BAR_MAXIMUM : (int) (done * PROGRESS_BAR_MAXIMUM / total)));
+    }
+
+    private void stop(){
+        if (checksums != null) checksums.cancel();
+        if (pendingChecksums != null) {
+            pendingChecksums.cancel(false);
+            checksumStatus.setText("Stopped");
+        }
+        pendingChecksums = null;
+    }
+
+    private void showValues(Map<Checksums.Algorithm, String> values){
+        for (Map.Entry<Checksums.Algorithm, JTextField> field: valueFields.entrySet())
+            field.getValue().setText(values == null ? "" : values.get(field.getKey()));
+    }
+}
@@ -0,0 +1,216 @@
+package hexeditor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Computes checksums and hashes of a range of the edited content, streaming it in chunks. CRCs are
+ * computed over segments in parallel and the segment values combined, like zlib's crc32_combine does.
+ * Digests can't be split, so every digest streams the range on a thread of its own.
+ */
+public class Checksums {
+    static final int CHUNK_SIZE = 1024 * 1024;
+    static final long SEGMENT_SIZE = 8L * CHUNK_SIZE;
+    private static final long CRC32_POLYNOMIAL = 0xEDB88320L;
+    private static final long CRC32C_POLYNOMIAL = 0x82F63B78L;
+
+    public enum Algorithm {
+        CRC32("CRC32"), CRC32C("CRC32C"), MD5("MD5"), SHA_1("SHA-1"), SHA_256("SHA-256");
+
+        private final String displayName;
+
+        Algorithm(String displayName){
+            this.displayName = displayName;
+        }
+
+        @Override
+        public String toString(){
+            return displayName;
+        }
+    }
+
+    private final PieceTable content;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+    private volatile boolean cancelled = false;
+
+    public Checksums(PieceTable content){
+        this(content, ForkJoinPool.commonPool());
+    }
+
+    public Checksums(PieceTable content, ForkJoinPool pool){
+        this.content = content;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns every algorithm's value for [from, to) as lower case hex. Progress counts the bytes
+     * processed by all algorithms together.
+     */
+    public Map<Algorithm, String> compute(long from, long to, ProgressListener listener) throws IOException {
+        long end = Math.min(to, content.length());
+        long start = Math.min(from, end);
+        AtomicLong processed = new AtomicLong();
+        //both CRCs share a read, every digest reads on its own
+        long total = (end - start) * 4;
+        LongConsumer progress = bytes -> {
+            long done = processed.addAndGet(bytes);
+            if (listener != null) listener.progress(done, total);
+        };
+        ForkJoinTask<long[]> crcs = pool.submit(new CrcTask(start, end, progress));
+        Map<Algorithm, ForkJoinTask<byte[]>> digests = new EnumMap<>(Algorithm.class);
+        for (Algorithm algorithm: new Algorithm[]{Algorithm.MD5, Algorithm.SHA_1, Algorithm.SHA_256})
+            digests.put(algorithm, pool.submit(() -> digest(algorithm, start, end, progress)));
+        Map<Algorithm, String> values = new EnumMap<>(Algorithm.class);
+        try {
+            long[] crc = crcs.join();
+            values.put(Algorithm.CRC32, String.format("%08x", crc[0]));
+            values.put(Algorithm.CRC32C, String.format("%08x", crc[1]));
+            for (Map.Entry<Algorithm, ForkJoinTask<byte[]>> digest: digests.entrySet())
+                values.put(digest.getKey(), toHex(digest.getValue().join()));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return values;
+    }
+
+    public void cancel(){
+        cancelled = true;
+    }
+
+    public boolean isCancelled(){
+        return cancelled;
+    }
+
+    private byte[] digest(Algorithm algorithm, long from, long to, LongConsumer progress){
+        try {
+            MessageDigest digest = MessageDigest.getInstance(algorithm.toString());
+            byte[] buffer = new byte[CHUNK_SIZE];
+            for (long position = from; position < to && !cancelled; ) {
+                int length = content.read(position, buffer, 0, (int) Math.min(buffer.length, to - position));
+                if (length <= 0) break;
+                digest.update(buffer, 0, length);
+                position += length;
+                progress.accept(length);
+            }
+            return digest.digest();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * CRC32 and CRC32C of a range with its length, from segments computed in parallel.
+     */
+    private class CrcTask extends RecursiveTask<long[]> {
+        private final long start;
+        private final long end;
+        private final LongConsumer progress;
+
+        CrcTask(long start, long end, LongConsumer progress){
+            this.start = start;
+            this.end = end;
+            this.progress = progress;
+        }
+
+        @Override
+        protected long[] compute(){
+            if (end - start > SEGMENT_SIZE && !cancelled) {
+                long middle = start + (end - start) / 2 / SEGMENT_SIZE * SEGMENT_SIZE;
+                if (middle == start) middle += SEGMENT_SIZE;
+                CrcTask head = new CrcTask(start, middle, progress);
+                CrcTask tail = new CrcTask(middle, end, progress);
+                tail.fork();
+                long[] headCrc = head.compute();
+                long[] tailCrc = tail.join();
+                return new long[]{
+                        combine(headCrc[0], tailCrc[0], tailCrc[2], CRC32_POLYNOMIAL),
+                        combine(headCrc[1], tailCrc[1], tailCrc[2], CRC32C_POLYNOMIAL),
+                        headCrc[2] + tailCrc[2]};
+            }
+            try {
+                return segmentCrc();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private long[] segmentCrc() throws IOException {
+            CRC32 crc32 = new CRC32();
+            CRC32C crc32c = new CRC32C();
+            byte[] buffer = buffers.get();
+            long position = start;
+            while (position < end && !cancelled) {
+                int length = content.read(position, buffer, 0, (int) Math.min(buffer.length, end - position));
+                if (length <= 0) break;
+                crc32.update(buffer, 0, length);
+                crc32c.update(buffer, 0, length);
+                position += length;
+                progress.accept(2L * length);
+            }
+            return new long[]{crc32.getValue(), crc32c.getValue(), position - start};
+        }
+    }
+
+    /**
+     * CRC of two concatenated blocks from the CRCs of both and the length of the second one, for a reflected
+     * polynomial. Appending the zeros of the second block is applied by squaring an operator matrix over GF(2).
+     */
+    static long combine(long crc1, long crc2, long length2, long polynomial){
+        if (length2 <= 0) return crc1;
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = polynomial;
+        long row = 1;
+        for (int n = 1; n < 32; ++n) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd);
+        square(odd, even);
+        long length = length2;
+        do {
+            square(even, odd);
+            if ((length & 1) != 0) crc1 = times(even, crc1);
+            length >>= 1;
+            if (length == 0) break;
+            square(odd, even);
+            if ((length & 1) != 0) crc1 = times(odd, crc1);
+            length >>= 1;
+        } while (length != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long times(long[] matrix, long vector){
+        long sum = 0;
+        for (int i = 0; vector != 0; ++i, vector >>>= 1)
+            if ((vector & 1) != 0) sum ^= matrix[i];
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix){
+        for (int n = 0; n < 32; ++n)
+            square[n] = times(matrix, matrix[n]);
+    }
+
+    private static String toHex(byte[] bytes){
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; ++i) {
+            ByteFormatter.formatHex(bytes[i] & 0xff, hex, i * 2);
+        }
+        return new String(hex).toLowerCase();
+    }
+}
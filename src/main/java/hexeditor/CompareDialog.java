@@ -0,0 +1,207 @@
+package hexeditor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Future;
+
+import static hexeditor.HexEditor.AREA_NUMBER_OF_LINES;
+import static hexeditor.HexEditor.AREA_RAW_SYMBOLS_IN_LINE;
+
+/**
+ * Compares the opened file with another one. The other file is shown in panes of its own which follow
+ * the window of the editor, and the differing bytes are highlighted on both sides.
+ */
+public class CompareDialog extends JDialog {
+    private static final int PROGRESS_BAR_MAXIMUM = 1000;
+
+    private HexEditor editor;
+    private ByteAreaView hexArea = new ByteAreaView(ByteAreaView.Column.HEX);
+    private ByteAreaView symbolArea = new ByteAreaView(ByteAreaView.Column.SYMBOL);
+    private JLabel compareStatus = new JLabel(" ");
+    private JProgressBar progressBar = new JProgressBar(0, PROGRESS_BAR_MAXIMUM);
+    private final IoExecutor compareTasks = new IoExecutor("hexeditor-compare");
+    private final IoExecutor windowLoader = new IoExecutor("hexeditor-compare-view");
+
+    private PieceTable other;
+    //the shown content the differences belong to
+    private PieceTable compared;
+    private DiffRanges differences;
+    private BinaryDiff diff;
+    private Future<?> pendingCompare;
+    private Future<?> pendingLoad;
+    private final byte[] window = new byte[AREA_NUMBER_OF_LINES * AREA_RAW_SYMBOLS_IN_LINE];
+    private final boolean[] differenceMask = new boolean[window.length];
+
+    public CompareDialog(HexEditor editor){
+        super(editor.getMainFrame(), "Compare", false);
+        this.editor = editor;
+
+        JButton openButton = new JButton("Compare with...");
+        openButton.addActionListener(event -> {
+            final JFileChooser fc = new JFileChooser();
+            if (fc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION)
+                compareWith(fc.getSelectedFile().toPath());});
+        JButton previousButton = new JButton("Previous");
+        previousButton.addActionListener(event -> goToDifference(false));
+        JButton nextButton = new JButton("Next");
+        nextButton.addActionListener(event -> goToDifference(true));
+        JButton stopButton = new JButton("Stop");
+        stopButton.addActionListener(event -> stopCompare());
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(openButton);
+        controls.add(previousButton);
+        controls.add(nextButton);
+        controls.add(stopButton);
+
+        JPanel panes = new JPanel(new GridLayout(1, 2));
+        panes.add(new JScrollPane(hexArea));
+        panes.add(new JScrollPane(symbolArea));
+
+        JPanel status = new JPanel(new BorderLayout());
+        status.add(compareStatus, BorderLayout.CENTER);
+        status.add(progressBar, BorderLayout.EAST);
+
+        getContentPane().add(controls, BorderLayout.NORTH);
+        getContentPane().add(panes, BorderLayout.CENTER);
+        getContentPane().add(status, BorderLayout.SOUTH);
+        editor.addWindowMoveListener(this::loadWindow);
+        editor.addWindowMoveListener(() -> {
+            if (compared != null && editor.getEditBuffer() != compared)
+                dropDifferences("Another file shown, compare again");
+        });
+        pack();
+        setLocationRelativeTo(editor.getMainFrame());
+    }
+
+    /**
+     * Drops the differences, they would point to moved bytes after an edit.
+     */
+    void contentEdited(){
+        if (differences == null && pendingCompare == null) return;
+        dropDifferences("Content edited, compare again");
+    }
+
+    private void dropDifferences(String status){
+        stopCompare();
+        if (pendingCompare != null) pendingCompare.cancel(false);
+        pendingCompare = null;
+        compared = null;
+        showDifferences(null);
+        compareStatus.setText(status);
+    }
+
+    private void compareWith(Path path){
+        if (editor.getEditBuffer() == null || pendingCompare != null) return;
+        showDifferences(null);
+        compareStatus.setText("Opening " + path.getFileName() + "...");
+        pendingCompare = compareTasks.submit(progress -> editor.openBackgroundBuffer(path)
+                , new IoExecutor.IoCallback<PieceTable>(){
+            @Override
+            public void done(PieceTable opened){
+                pendingCompare = null;
+                closeOther();
+                other = opened;
+                compare();
+            }
+
+            @Override
+            public void failed(Exception ex){
+                pendingCompare = null;
+                compareStatus.setText("Can't open " + path.getFileName() + ": " + ex);
+            }
+        });
+    }
+
+    private void compare(){
+        PieceTable content = editor.getEditBuffer();
+        if (content == null || other == null) return;
+        BinaryDiff newDiff = new BinaryDiff(content, other);
+        diff = newDiff;
+        compared = content;
+        long compareStart = System.nanoTime();
+        compareStatus.setText("Comparing...");
+        pendingCompare = compareTasks.submit(progress -> newDiff.compare(progress), new IoExecutor.IoCallback<DiffRanges>(){
+            @Override
+            public void done(DiffRanges ranges){
+                pendingCompare = null;
+                String text = ranges.count() + " differing ranges in "
+                        + (System.nanoTime() - compareStart) / 1_000_000 + " ms";
+                compareStatus.setText(newDiff.isCancelled() ? text + ", stopped" : text);
+                showDifferences(ranges);
+                loadWindow();
+            }
+
+            @Override
+            public void failed(Exception ex){
+                pendingCompare = null;
+                compareStatus.setText("Compare failed: " + ex);
+            }
+        }, (done, total) ->
+                progressBar.setValue(total == 0 ? PROGRESS_BAR_MAXIMUM : (int) (done * PROGRESS_BAR_MAXIMUM / total)));
+    }
+
+    /**
+     * Stops a running comparison, the differences found so far are still shown.
+     */
+    private void stopCompare(){
+        if (diff != null) diff.cancel();
+    }
+
+    private void showDifferences(DiffRanges ranges){
+        differences = ranges;
+        editor.showDifferences(ranges);
+        if (ranges == null) {
+            hexArea.setHighlights(null);
+            symbolArea.setHighlights(null);
+        }
+    }
+
+    private void goToDifference(boolean forward){
+        if (differences == null) return;
+        long caret = editor.getCaretOffset();
+        int index = forward ? differences.next(caret) : differences.previous(caret);
+        if (index < 0) {
+            compareStatus.setText(forward ? "No more differences" : "No previous differences");
+            return;
+        }
+        compareStatus.setText(String.format("Difference %d of %d at 0x%X", index + 1, differences.count()
+                , differences.start(index)));
+        editor.goToOffset(differences.start(index));
+    }
+
+    /**
+     * Shows the window of the other file at the offset of the editor window.
+     */
+    private void loadWindow(){
+        if (other == null) return;
+        if (pendingLoad != null) pendingLoad.cancel(false);
+        PieceTable content = other;
+        long offset = editor.getWindowOffset();
+        pendingLoad = windowLoader.submit(progress -> {
+            byte[] section = new byte[window.length];
+            return Arrays.copyOf(section, content.read(offset, section, 0, section.length));
+        }, section -> {
+            if (content != other) return;
+            pendingLoad = null;
+            System.arraycopy(section, 0, window, 0, section.length);
+            hexArea.setWindow(window, section.length);
+            symbolArea.setWindow(window, section.length);
+            boolean marked = differences != null && differences.mark(offset, section.length, differenceMask);
+            hexArea.setHighlights(marked ? differenceMask : null);
+            symbolArea.setHighlights(marked ? differenceMask : null);
+        });
+    }
+
+    private void closeOther(){
+        try {
+            if (other != null) other.close();
+            other = null;
+        } catch (IOException ex) {
+            System.err.println(ex);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package hexeditor;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, non-overlapping ranges [start, end) where two contents differ, kept in two primitive arrays.
+ */
+public class DiffRanges {
+    private final long[] starts;
+    private final long[] ends;
+    private final int count;
+
+    DiffRanges(long[] starts, long[] ends, int count){
+        this.starts = starts;
+        this.ends = ends;
+        this.count = count;
+    }
+
+    public int count(){
+        return count;
+    }
+
+    public long start(int index){
+        return starts[index];
+    }
+
+    public long end(int index){
+        return ends[index];
+    }
+
+    /**
+     * Index of the first range starting after the offset, or -1.
+     */
+    public int next(long offset){
+        int index = firstStartAbove(offset);
+        return index < count ? index : -1;
+    }
+
+    /**
+     * Index of the last range starting before the offset, or -1.
+     */
+    public int previous(long offset){
+        return firstStartAbove(offset - 1) - 1;
+    }
+
+    /**
+     * Marks the bytes of [from, from + length) which lie in a range, the mask is indexed from {@code from}.
+     * Returns false when no byte is marked.
+     */
+    public boolean mark(long from, int length, boolean[] mask){
+        Arrays.fill(mask, 0, length, false);
+        long to = from + length;
+        boolean marked = false;
+        //the range before the first one starting past from may still reach into the span
+        for (int index = Math.max(0, firstStartAbove(from) - 1); index < count && starts[index] < to; ++index) {
+            long start = Math.max(from, starts[index]);
+            long end = Math.min(to, ends[index]);
+            if (start >= end) continue;
+            Arrays.fill(mask, (int) (start - from), (int) (end - from), true);
+            marked = true;
+        }
+        return marked;
+    }
+
+    private int firstStartAbove(long offset){
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= offset) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,281 @@
+package hexeditor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Undo and redo history of an edit buffer. A step keeps the offset of an edit with the pieces it removed
+ * and inserted rather than the bytes: the original file and the add buffer never change, so a few longs
+ * describe any number of old and new bytes, and undoing a step of any length is one piece table splice.
+ * <p>
+ * Keystrokes typed next to each other within a second make one step. Steps are kept in memory up to a limit,
+ * older ones go to an append-only log on disk and are read back from its end when undo gets to them.
+ * Everything runs on the thread which edits, the event dispatch thread in the editor.
+ */
+public class EditJournal implements PieceTable.EditRecorder {
+    static final long DEFAULT_MEMORY_LIMIT = 16L * 1024 * 1024;
+    private static final long COALESCE_NANOS = 1_000_000_000L;
+    //rough size of a step object with its arrays, besides the pieces
+    private static final long STEP_OVERHEAD = 96;
+
+    private static final class Step {
+        final long offset;
+        final long[] removed;
+        final long[] inserted;
+        final boolean typing;
+        final long time;
+
+        Step(long offset, long[] removed, long[] inserted, boolean typing, long time){
+            this.offset = offset;
+            this.removed = removed;
+            this.inserted = inserted;
+            this.typing = typing;
+            this.time = time;
+        }
+
+        long memory(){
+            return STEP_OVERHEAD + 8L * (removed.length + inserted.length);
+        }
+    }
+
+    private final PieceTable content;
+    private final long memoryLimit;
+    private final ArrayDeque<Step> undoSteps = new ArrayDeque<>();
+    private final ArrayDeque<Step> redoSteps = new ArrayDeque<>();
+    private long memory = 0;
+    private FileChannel spill;
+    private int spilledSteps = 0;
+
+    public EditJournal(PieceTable content, long memoryLimit){
+        this.content = content;
+        this.memoryLimit = memoryLimit;
+    }
+
+    @Override
+    public void recorded(long offset, long[] removedPieces, long[] insertedPieces, boolean restored){
+        //undo and redo restore steps of their own
+        if (restored) return;
+        long now = System.nanoTime();
+        long removedLength = PieceTable.piecesLength(removedPieces);
+        long insertedLength = PieceTable.piecesLength(insertedPieces);
+        boolean typing = removedLength <= 1 && insertedLength <= 1;
+        clearRedo();
+        Step last = undoSteps.peekLast();
+        Step step = null;
+        if (typing && last != null && last.typing && now - last.time < COALESCE_NANOS)
+            step = coalesce(last, offset, removedPieces, removedLength, insertedPieces, now);
+        if (step != null) {
+            memory -= undoSteps.pollLast().memory();
+        } else {
+            step = new Step(offset, removedPieces, insertedPieces, typing, now);
+        }
+        undoSteps.addLast(step);
+        memory += step.memory();
+        spillOldSteps();
+    }
+
+    public boolean canUndo(){
+        return !undoSteps.isEmpty() || spilledSteps > 0;
+    }
+
+    public boolean canRedo(){
+        return !redoSteps.isEmpty();
+    }
+
+    /**
+     * Undoes the last step and returns its offset, or -1 when there is nothing to undo.
+     */
+    public long undo(){
+        Step step = undoSteps.pollLast();
+        if (step != null) {
+            memory -= step.memory();
+        } else {
+            step = readSpilledStep();
+            if (step == null) return -1;
+        }
+        content.restore(step.offset, PieceTable.piecesLength(step.inserted), step.removed);
+        redoSteps.addLast(step);
+        memory += step.memory();
+        return step.offset;
+    }
+
+    /**
+     * Redoes the last undone step and returns its offset, or -1 when there is nothing to redo.
+     */
+    public long redo(){
+        Step step = redoSteps.pollLast();
+        if (step == null) return -1;
+        content.restore(step.offset, PieceTable.piecesLength(step.removed), step.inserted);
+        //a redone step isn't extended by the typing which follows
+        undoSteps.addLast(new Step(step.offset, step.removed, step.inserted, false, 0));
+        spillOldSteps();
+        return step.offset;
+    }
+
+    long memoryUsed(){
+        return memory;
+    }
+
+    int spilledSteps(){
+        return spilledSteps;
+    }
+
+    /**
+     * Drops the history and deletes the log.
+     */
+    public void close(){
+        undoSteps.clear();
+        redoSteps.clear();
+        memory = 0;
+        spilledSteps = 0;
+        try {
+            if (spill != null) spill.close();
+        } catch (IOException ex) {
+            System.err.println(ex);
+        }
+        spill = null;
+    }
+
+    /**
+     * Joins a keystroke to the step before it when it continues it: typing or overwriting right after it,
+     * changing a byte it inserted, or deleting forward or backward from where it deleted. Returns null otherwise.
+     */
+    private static Step coalesce(Step last, long offset, long[] removed, long removedLength, long[] inserted
+            , long now){
+        long lastInserted = PieceTable.piecesLength(last.inserted);
+        if (offset == last.offset + lastInserted)
+            return new Step(last.offset, concat(last.removed, removed), concat(last.inserted, inserted), true, now);
+        if (offset >= last.offset && offset + removedLength <= last.offset + lastInserted) {
+            long at = offset - last.offset;
+            long[] merged = concat(concat(slice(last.inserted, 0, at), inserted)
+                    , slice(last.inserted, at + removedLength, lastInserted));
+            return new Step(last.offset, last.removed, merged, true, now);
+        }
+        if (lastInserted == 0 && inserted.length == 0 && offset + removedLength == last.offset)
+            return new Step(offset, concat(removed, last.removed), inserted, true, now);
+        return null;
+    }
+
+    /**
+     * Joins two piece lists, merging the pieces where they meet if the second one continues the first.
+     */
+    static long[] concat(long[] first, long[] second){
+        if (first.length == 0) return second;
+        if (second.length == 0) return first;
+        long lastStart = first[first.length - 2];
+        long lastLength = first[first.length - 1];
+        boolean continues = lastStart < 0 ? second[0] == lastStart - lastLength : second[0] == lastStart + lastLength;
+        long[] joined = Arrays.copyOf(first, first.length + second.length - (continues ? 2 : 0));
+        if (continues) {
+            joined[first.length - 1] += second[1];
+            System.arraycopy(second, 2, joined, first.length, second.length - 2);
+        } else {
+            System.arraycopy(second, 0, joined, first.length, second.length);
+        }
+        return joined;
+    }
+
+    /**
+     * Pieces covering [from, to) of the bytes the pieces describe.
+     */
+    static long[] slice(long[] pieces, long from, long to){
+        long[] sliced = new long[pieces.length];
+        int count = 0;
+        long position = 0;
+        for (int i = 0; i < pieces.length && position < to; i += 2) {
+            long end = position + pieces[i + 1];
+            long cutFrom = Math.max(from, position);
+            long cutTo = Math.min(to, end);
+            if (cutFrom < cutTo) {
+                long skipped = cutFrom - position;
+                //added pieces have their start bit-inverted, so moving it forward goes down
+                sliced[count++] = pieces[i] < 0 ? pieces[i] - skipped : pieces[i] + skipped;
+                sliced[count++] = cutTo - cutFrom;
+            }
+            position = end;
+        }
+        return Arrays.copyOf(sliced, count);
+    }
+
+    private void clearRedo(){
+        for (Step step: redoSteps)
+            memory -= step.memory();
+        redoSteps.clear();
+    }
+
+    /**
+     * Moves the oldest steps to the log until the history fits the memory limit again.
+     */
+    private void spillOldSteps(){
+        while (memory > memoryLimit && undoSteps.size() > 1) {
+            Step oldest = undoSteps.pollFirst();
+            memory -= oldest.memory();
+            try {
+                writeSpilledStep(oldest);
+            } catch (IOException ex) {
+                //without the log the history loses its oldest steps, everything newer stays undoable
+                System.err.println(ex);
+            }
+        }
+    }
+
+    /**
+     * A record is the offset, both piece counts and the pieces, then its own length so the log reads backwards.
+     */
+    private void writeSpilledStep(Step step) throws IOException {
+        if (spill == null) {
+            Path log = Files.createTempFile("hexeditor-undo", ".log");
+            spill = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE
+                    , StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        int length = 8 + 4 + 4 + 8 * (step.removed.length + step.inserted.length);
+        ByteBuffer record = ByteBuffer.allocate(length + 4);
+        record.putLong(step.offset).putInt(step.removed.length).putInt(step.inserted.length);
+        for (long value: step.removed) record.putLong(value);
+        for (long value: step.inserted) record.putLong(value);
+        record.putInt(length).flip();
+        long position = spill.size();
+        while (record.hasRemaining())
+            position += spill.write(record, position);
+        ++spilledSteps;
+    }
+
+    private Step readSpilledStep(){
+        if (spilledSteps == 0) return null;
+        try {
+            long end = spill.size();
+            ByteBuffer trailer = ByteBuffer.allocate(4);
+            readFully(trailer, end - 4);
+            int length = trailer.flip().getInt();
+            long start = end - 4 - length;
+            ByteBuffer record = ByteBuffer.allocate(length);
+            readFully(record, start);
+            record.flip();
+            long offset = record.getLong();
+            long[] removed = new long[record.getInt()];
+            long[] inserted = new long[record.getInt()];
+            for (int i = 0; i < removed.length; ++i) removed[i] = record.getLong();
+            for (int i = 0; i < inserted.length; ++i) inserted[i] = record.getLong();
+            spill.truncate(start);
+            --spilledSteps;
+            return new Step(offset, removed, inserted, false, 0);
+        } catch (IOException ex) {
+            System.err.println(ex);
+            spilledSteps = 0;
+            return null;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = spill.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Undo log is truncated");
+        }
+    }
+}
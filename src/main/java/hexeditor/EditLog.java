@@ -0,0 +1,297 @@
+package hexeditor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the edits to a file, kept next to it until the edits are saved, so they survive a crash.
+ * It mirrors the piece table: the bytes appended to the add buffer and every edit as its offset, removed
+ * length and inserted pieces. Replaying it on the unchanged original rebuilds the content, in time which
+ * depends on the size of the log and not on the size of the file.
+ * <p>
+ * Edits are queued on the thread which makes them and written by a thread of the log, which syncs
+ * everything queued since its last sync at once: a burst of keystrokes costs one sync, and typing
+ * never waits for the disk.
+ */
+public class EditLog implements PieceTable.EditRecorder {
+    static final String LOG_SUFFIX = ".hexwal";
+    private static final int MAGIC = 0x4858574c;
+    private static final int VERSION = 1;
+    //magic, version, size and modification time of the original
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+    private static final byte ADDED_RECORD = 'A';
+    private static final byte EDIT_RECORD = 'E';
+    //type and payload length before the payload, its checksum after it
+    private static final int RECORD_OVERHEAD = 1 + 4 + 4;
+    //a large insertion is logged as many records of at most this many added bytes
+    static final int MAX_ADDED_RECORD = 1024 * 1024;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final Path log;
+    private final PieceTable content;
+    private final long originalSize;
+    private final long originalModified;
+    private final ExecutorService writer;
+    private final Object queueLock = new Object();
+    //records not written yet: {added start, length} or {offset, removed length, pieces...} after an edit marker
+    private List<long[]> queue = new ArrayList<>();
+    private boolean flushQueued = false;
+    private long loggedAddLength;
+    private FileChannel channel;
+    private volatile long syncedRecords = 0;
+
+    /**
+     * Starts logging the edits of the content opened from the file, continuing its log if it was replayed.
+     * Nothing is written until the first edit.
+     */
+    public EditLog(Path file, PieceTable content) throws IOException {
+        this.log = logFor(file);
+        this.content = content;
+        originalSize = Files.size(file);
+        originalModified = Files.getLastModifiedTime(file).toMillis();
+        loggedAddLength = content.addedLength();
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hexeditor-edit-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static Path logFor(Path file){
+        Path absolute = file.toAbsolutePath();
+        return absolute.resolveSibling(absolute.getFileName() + LOG_SUFFIX);
+    }
+
+    /**
+     * Whether the file has a log of edits which weren't saved.
+     */
+    public static boolean exists(Path file){
+        return Files.isRegularFile(logFor(file));
+    }
+
+    public static void delete(Path file) throws IOException {
+        Files.deleteIfExists(logFor(file));
+    }
+
+    @Override
+    public void recorded(long offset, long[] removedPieces, long[] insertedPieces, boolean restored){
+        long addLength = content.addedLength();
+        long[] edit = new long[3 + insertedPieces.length];
+        edit[0] = EDIT_RECORD;
+        edit[1] = offset;
+        edit[2] = PieceTable.piecesLength(removedPieces);
+        System.arraycopy(insertedPieces, 0, edit, 3, insertedPieces.length);
+        synchronized (queueLock) {
+            //added bytes never change, so the writer copies them when it gets to them
+            if (addLength > loggedAddLength)
+                queue.add(new long[]{ADDED_RECORD, loggedAddLength, addLength - loggedAddLength});
+            loggedAddLength = addLength;
+            queue.add(edit);
+            if (!flushQueued) {
+                flushQueued = true;
+                writer.execute(this::flush);
+            }
+        }
+    }
+
+    /**
+     * Count of records on the disk for sure.
+     */
+    long syncedRecords(){
+        return syncedRecords;
+    }
+
+    /**
+     * Writes the queued records and syncs them. Records queued meanwhile wait for the next flush,
+     * which takes them all.
+     */
+    private void flush(){
+        List<long[]> batch;
+        synchronized (queueLock) {
+            batch = queue;
+            queue = new ArrayList<>();
+            flushQueued = false;
+        }
+        if (batch.isEmpty()) return;
+        try {
+            if (channel == null) openChannel();
+            int records = 0;
+            for (long[] record: batch) {
+                if (record[0] == ADDED_RECORD) {
+                    records += writeAdded(record[1], record[2]);
+                } else {
+                    write(editRecord(record));
+                    ++records;
+                }
+            }
+            channel.force(false);
+            syncedRecords += records;
+        } catch (IOException ex) {
+            System.err.println(ex);
+        }
+    }
+
+    private void openChannel() throws IOException {
+        if (Files.exists(log)) {
+            channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return;
+        }
+        channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(originalSize).putLong(originalModified).flip();
+        write(header);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Writes the added bytes as records of at most {@link #MAX_ADDED_RECORD} bytes and returns their count.
+     */
+    private int writeAdded(long start, long length) throws IOException {
+        int records = 0;
+        for (long done = 0; done < length; ++records) {
+            ByteBuffer data = content.addedBytes(start + done, Math.min(length - done, MAX_ADDED_RECORD));
+            ByteBuffer record = startRecord(ADDED_RECORD, 8 + data.remaining());
+            record.putLong(start + done);
+            done += data.remaining();
+            write(finishRecord(record.put(data)));
+        }
+        return records;
+    }
+
+    private static ByteBuffer editRecord(long[] edit){
+        int pieces = edit.length - 3;
+        ByteBuffer record = startRecord(EDIT_RECORD, 8 + 8 + 4 + 8 * pieces);
+        record.putLong(edit[1]).putLong(edit[2]).putInt(pieces);
+        for (int i = 3; i < edit.length; ++i) record.putLong(edit[i]);
+        return finishRecord(record);
+    }
+
+    private static ByteBuffer startRecord(byte type, int payloadLength){
+        return ByteBuffer.allocate(RECORD_OVERHEAD + payloadLength).put(type).putInt(payloadLength);
+    }
+
+    private static ByteBuffer finishRecord(ByteBuffer record){
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        return record.putInt((int) crc.getValue()).flip();
+    }
+
+    /**
+     * Replays the log of the file on its content as opened from the file and returns the count of edits.
+     * The edits reach the recorders as new ones, so a journal attached to the content can undo them.
+     * A log of another version of the file is refused with an exception. A record torn by the crash ends
+     * the log and is cut off, so logging can continue after it.
+     */
+    public static int replay(Path file, PieceTable content) throws IOException {
+        Path log = logFor(file);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (!readFully(channel, header, 0) || header.flip().getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("Not an edit log: " + log);
+            long originalSize = Files.size(file);
+            if (header.getLong() != originalSize || header.getLong() != Files.getLastModifiedTime(file).toMillis())
+                throw new IOException("The file was changed after its edits were logged: " + file);
+            long position = HEADER_SIZE;
+            int edits = 0;
+            ByteBuffer prefix = ByteBuffer.allocate(5);
+            long size = channel.size();
+            while (position + RECORD_OVERHEAD <= size) {
+                prefix.clear();
+                if (!readFully(channel, prefix, position)) break;
+                byte type = prefix.get(0);
+                int payloadLength = prefix.getInt(1);
+                if (payloadLength < 0 || position + RECORD_OVERHEAD + payloadLength > size) break;
+                ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + payloadLength);
+                if (!readFully(channel, record, position) || !checked(record)) break;
+                record.position(5);
+                if (type == ADDED_RECORD) {
+                    long start = record.getLong();
+                    if (start != content.addedLength()) break;
+                    content.appendAdded(record.array(), record.position(), payloadLength - 8);
+                } else if (type == EDIT_RECORD) {
+                    long offset = record.getLong();
+                    long removedLength = record.getLong();
+                    long[] pieces = new long[record.getInt()];
+                    for (int i = 0; i < pieces.length; ++i) pieces[i] = record.getLong();
+                    if (offset > content.length() || !inBounds(pieces, originalSize, content.addedLength())) break;
+                    content.splice(offset, removedLength, pieces);
+                    ++edits;
+                } else {
+                    break;
+                }
+                position += record.capacity();
+            }
+            if (position < size) channel.truncate(position);
+            return edits;
+        }
+    }
+
+    private static boolean inBounds(long[] pieces, long originalSize, long addedLength){
+        for (int i = 0; i < pieces.length; i += 2) {
+            long start = pieces[i] < 0 ? ~pieces[i] : pieces[i];
+            if (pieces[i + 1] < 0 || start + pieces[i + 1] > (pieces[i] < 0 ? addedLength : originalSize)) return false;
+        }
+        return pieces.length % 2 == 0;
+    }
+
+    private static boolean checked(ByteBuffer record){
+        int end = record.capacity() - 4;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, end);
+        return record.getInt(end) == (int) crc.getValue();
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes what's queued and stops logging, the log stays for a replay.
+     */
+    public void close(){
+        stop();
+    }
+
+    /**
+     * Stops logging and deletes the log, once the edits are saved or shouldn't be recovered.
+     */
+    public void discard(){
+        stop();
+        try {
+            Files.deleteIfExists(log);
+        } catch (IOException ex) {
+            System.err.println(ex);
+        }
+    }
+
+    private void stop(){
+        writer.shutdown();
+        try {
+            writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException ex) {
+            System.err.println(ex);
+        }
+    }
+}
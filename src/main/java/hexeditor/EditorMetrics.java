@@ -0,0 +1,147 @@
+package hexeditor;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies of view loads, edits, saves and caret syncs, I/O counters and cache statistics of the editor.
+ * Every operation is also a flight recorder event, and the whole set is readable through JMX.
+ */
+public class EditorMetrics implements EditorMetricsMXBean {
+    static final String OBJECT_NAME = "hexeditor:type=EditorMetrics";
+
+    enum Operation { VIEW_LOAD, EDIT, SAVE, CARET_SYNC }
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final LongAdder bytesWritten = new LongAdder();
+    //bytes read from files while they were watched before, the watched one counts its own since it's watched
+    private final LongAdder closedBytesRead = new LongAdder();
+    private volatile long watchedBytesRead = 0;
+    private volatile PieceTable content;
+    private volatile WindowPrefetcher prefetcher;
+
+    public EditorMetrics(){
+        for (Operation operation: Operation.values())
+            latencies.put(operation, new LatencyHistogram());
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, a failure only costs the JMX view.
+     */
+    void register(){
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException ex) {
+            System.err.println(ex);
+        }
+    }
+
+    Sample begin(Operation operation){
+        return new Sample(operation);
+    }
+
+    /**
+     * Takes cache statistics from the shown file from now on, null when no file is shown.
+     */
+    void watch(PieceTable content, WindowPrefetcher prefetcher){
+        PieceTable previous = this.content;
+        if (previous != null) closedBytesRead.add(previous.getOriginal().getBytesRead() - watchedBytesRead);
+        watchedBytesRead = content == null ? 0 : content.getOriginal().getBytesRead();
+        this.content = content;
+        this.prefetcher = prefetcher;
+    }
+
+    void addBytesWritten(long bytes){
+        bytesWritten.add(bytes);
+    }
+
+    @Override
+    public LatencyHistogram.Summary getViewLoads(){
+        return latencies.get(Operation.VIEW_LOAD).summary();
+    }
+
+    @Override
+    public LatencyHistogram.Summary getEdits(){
+        return latencies.get(Operation.EDIT).summary();
+    }
+
+    @Override
+    public LatencyHistogram.Summary getSaves(){
+        return latencies.get(Operation.SAVE).summary();
+    }
+
+    @Override
+    public LatencyHistogram.Summary getCaretSyncs(){
+        return latencies.get(Operation.CARET_SYNC).summary();
+    }
+
+    @Override
+    public long getBytesRead(){
+        PieceTable current = content;
+        return closedBytesRead.sum() + (current == null ? 0 : current.getOriginal().getBytesRead() - watchedBytesRead);
+    }
+
+    @Override
+    public long getBytesWritten(){
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getPageCacheHits(){
+        PieceTable current = content;
+        return current == null ? 0 : current.getOriginal().getHits();
+    }
+
+    @Override
+    public long getPageCacheMisses(){
+        PieceTable current = content;
+        return current == null ? 0 : current.getOriginal().getMisses();
+    }
+
+    @Override
+    public long getPageCacheBytes(){
+        PieceTable current = content;
+        return current == null ? 0 : current.getOriginal().getCachedBytes();
+    }
+
+    @Override
+    public long getPrefetchHits(){
+        WindowPrefetcher current = prefetcher;
+        return current == null ? 0 : current.getHits();
+    }
+
+    @Override
+    public long getPrefetchMisses(){
+        WindowPrefetcher current = prefetcher;
+        return current == null ? 0 : current.getMisses();
+    }
+
+    /**
+     * One running operation. It may end on another thread than it began on, but only once.
+     */
+    final class Sample {
+        private final Operation operation;
+        private final OperationEvent event = new OperationEvent();
+        private final long start;
+
+        private Sample(Operation operation){
+            this.operation = operation;
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        void end(long bytes){
+            latencies.get(operation).record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation.name();
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+}
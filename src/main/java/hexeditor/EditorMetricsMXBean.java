@@ -0,0 +1,28 @@
+package hexeditor;
+
+/**
+ * Performance counters of the editor, registered as {@code hexeditor:type=EditorMetrics}.
+ */
+public interface EditorMetricsMXBean {
+    LatencyHistogram.Summary getViewLoads();
+
+    LatencyHistogram.Summary getEdits();
+
+    LatencyHistogram.Summary getSaves();
+
+    LatencyHistogram.Summary getCaretSyncs();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getPageCacheHits();
+
+    long getPageCacheMisses();
+
+    long getPageCacheBytes();
+
+    long getPrefetchHits();
+
+    long getPrefetchMisses();
+}
@@ -0,0 +1,124 @@
+package hexeditor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Writes the edited content of a file. Spans which are still in the original file are sent with
+ * {@link FileChannel#transferTo} and only the edited spans come from the add buffer. A new file is written
+ * next to the target, synced and moved over it, unless the edits only overwrite bytes of the same file:
+ * then just the edited spans are written in place.
+ */
+public class FileSaver {
+    private static final String NEW_FILE_POSTFIX = ".hexn";
+    private static final String TEMP_FILE_POSTFIX = ".tmp";
+
+    private final PieceTable content;
+    private final Path original;
+
+    public FileSaver(PieceTable content, Path original){
+        this.content = content;
+        this.original = original;
+    }
+
+    /**
+     * Saves the content to the target and returns the number of written bytes.
+     */
+    public long save(Path target, ProgressListener listener) throws IOException {
+        if (Files.exists(target) && Files.isSameFile(target, original) && isOverwriteOnly())
+            return patchInPlace(listener);
+        return writeSibling(target, listener);
+    }
+
+    boolean isOverwriteOnly() throws IOException {
+        if (content.length() != content.getOriginal().size()) return false;
+        boolean[] shifted = {false};
+        content.forEachPiece((added, start, length, offset) -> {
+            if (!added && start != offset) shifted[0] = true;
+        });
+        return !shifted[0];
+    }
+
+    private long patchInPlace(ProgressListener listener) throws IOException {
+        long[] dirty = {0, 0};
+        content.forEachPiece((added, start, length, offset) -> {
+            if (added) dirty[1] += length;
+        });
+        try (FileChannel channel = FileChannel.open(original, StandardOpenOption.WRITE)) {
+            content.forEachPiece((added, start, length, offset) -> {
+                if (!added) return;
+                long position = offset;
+                for (long done = 0; done < length; ) {
+                    ByteBuffer data = content.addedBytes(start + done, length - done);
+                    done += data.remaining();
+                    while (data.hasRemaining()) {
+                        position += channel.write(data, position);
+                    }
+                }
+                dirty[0] += length;
+                listener.progress(dirty[0], dirty[1]);
+            });
+            channel.force(false);
+        }
+        return dirty[0];
+    }
+
+    private long writeSibling(Path target, ProgressListener listener) throws IOException {
+        Path absoluteTarget = target.toAbsolutePath();
+        Path sibling = Files.createTempFile(absoluteTarget.getParent()
+                , absoluteTarget.getFileName().toString(), NEW_FILE_POSTFIX + TEMP_FILE_POSTFIX);
+        long total = content.length();
+        long[] written = {0};
+        try {
+            if (Files.exists(absoluteTarget)) copyPermissions(absoluteTarget, sibling);
+            try (FileChannel channel = FileChannel.open(sibling, StandardOpenOption.WRITE)) {
+                content.forEachPiece((added, start, length, offset) -> {
+                    if (added) {
+                        for (long done = 0; done < length; ) {
+                            ByteBuffer data = content.addedBytes(start + done, length - done);
+                            done += data.remaining();
+                            while (data.hasRemaining()) {
+                                channel.write(data);
+                            }
+                        }
+                    } else {
+                        content.getOriginal().transferTo(start, length, channel);
+                    }
+                    written[0] += length;
+                    listener.progress(written[0], total);
+                });
+                channel.force(true);
+            }
+            try {
+                Files.move(sibling, absoluteTarget, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(sibling, absoluteTarget, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(absoluteTarget.getParent());
+        } finally {
+            Files.deleteIfExists(sibling);
+        }
+        return written[0];
+    }
+
+    /**
+     * Syncs the directory so the rename which put the new file in place survives a crash.
+     */
+    private static void syncDirectory(Path directory){
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            //directories can't be opened or synced on some platforms, like Windows
+        }
+    }
+
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        try {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+        } catch (UnsupportedOperationException ex) {
+            //permissions of a new file are left as they are on file systems without POSIX attributes
+        }
+    }
+}
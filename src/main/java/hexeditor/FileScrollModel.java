@@ -0,0 +1,52 @@
+package hexeditor;
+
+/**
+ * Maps rows of the whole file to values of a scrollbar. Files with more rows than an int scrollbar can hold
+ * are scaled, so every scrollbar unit covers the same number of rows and all the math stays in longs.
+ */
+public class FileScrollModel {
+    //half the int range, so that value plus extent never overflows
+    static final int UNIT_LIMIT = Integer.MAX_VALUE / 2;
+
+    private long rows = 0;
+    private long rowsPerUnit = 1;
+
+    public void setRows(long rows){
+        this.rows = Math.max(0, rows);
+        this.rowsPerUnit = Math.max(1, (this.rows + UNIT_LIMIT - 1) / UNIT_LIMIT);
+    }
+
+    public long getRows(){
+        return rows;
+    }
+
+    public int toValue(long row){
+        return (int) (Math.max(0, Math.min(row, rows)) / rowsPerUnit);
+    }
+
+    /**
+     * First row covered by the scrollbar value.
+     */
+    public long toRow(int value){
+        return Math.min(rows, Math.max(0, value) * rowsPerUnit);
+    }
+
+    /**
+     * Scrollbar units covering the given number of visible rows, at least one.
+     */
+    public int extent(int visibleRows){
+        return (int) Math.max(1, visibleRows / rowsPerUnit);
+    }
+
+    public int maximum(int visibleRows){
+        return toValue(rows) + extent(visibleRows);
+    }
+
+    /**
+     * Offset of the row {@code lines} rows away from the row at {@code offset}, not before the start of the file.
+     */
+    static long moveRows(long offset, int lines){
+        long moved = offset + (long) lines * HexEditor.AREA_RAW_SYMBOLS_IN_LINE;
+        return moved > 0 ? moved : 0;
+    }
+}
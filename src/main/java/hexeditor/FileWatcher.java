@@ -0,0 +1,105 @@
+package hexeditor;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Watches the directories of the open files and tells the listener, on the event dispatch thread, which of
+ * the files were written or replaced by other programs. The events of a burst, like the writes of a logger,
+ * are told once. Without a watch service for the file system nothing is told.
+ */
+public class FileWatcher {
+    //events coming within this time after the first one are told together
+    private static final long COALESCE_MS = 100;
+
+    private final Consumer<Path> listener;
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private final Map<Path, Integer> files = new HashMap<>();
+    private WatchService service;
+    private Thread thread;
+
+    public FileWatcher(Consumer<Path> listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Starts watching the file, a file watched twice is watched until it's unwatched twice.
+     */
+    public synchronized void watch(Path file){
+        Path path = file.toAbsolutePath().normalize();
+        files.merge(path, 1, Integer::sum);
+        Path directory = path.getParent();
+        if (directory == null || directories.containsKey(directory)) return;
+        try {
+            if (service == null) start();
+            directories.put(directory, directory.register(service, StandardWatchEventKinds.ENTRY_CREATE
+                    , StandardWatchEventKinds.ENTRY_MODIFY));
+        } catch (IOException | UnsupportedOperationException ex) {
+            System.err.println(ex);
+        }
+    }
+
+    public synchronized void unwatch(Path file){
+        Path path = file.toAbsolutePath().normalize();
+        Integer count = files.get(path);
+        if (count == null) return;
+        if (count > 1) {
+            files.put(path, count - 1);
+            return;
+        }
+        files.remove(path);
+        Path directory = path.getParent();
+        if (directory == null || files.keySet().stream().anyMatch(other -> directory.equals(other.getParent()))) return;
+        WatchKey key = directories.remove(directory);
+        if (key != null) key.cancel();
+    }
+
+    private void start() throws IOException {
+        service = FileSystems.getDefault().newWatchService();
+        thread = new Thread(this::run, "hexeditor-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run(){
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Thread.sleep(COALESCE_MS);
+                Set<Path> changed = new LinkedHashSet<>();
+                for (; key != null; key = service.poll()) {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event: key.pollEvents())
+                        changed(directory, event, changed);
+                    key.reset();
+                }
+                if (!changed.isEmpty()) SwingUtilities.invokeLater(() -> changed.forEach(listener));
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            //the watcher is done
+        }
+    }
+
+    private synchronized void changed(Path directory, WatchEvent<?> event, Set<Path> changed){
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            //lost events could be about any of the files in the directory
+            for (Path file: files.keySet())
+                if (directory.equals(file.getParent())) changed.add(file);
+            return;
+        }
+        Path file = directory.resolve((Path) event.context());
+        if (files.containsKey(file)) changed.add(file);
+    }
+}
@@ -0,0 +1,28 @@
+package hexeditor;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Asks for an offset to jump to, written in hex with a "0x" prefix or in decimal.
+ */
+final class GoToOffsetDialog {
+    private GoToOffsetDialog(){
+    }
+
+    /**
+     * Returns the offset clamped to the content, or -1 when the dialog was cancelled.
+     */
+    static long ask(Component parent, long length){
+        String text = JOptionPane.showInputDialog(parent
+                , String.format("Offset (0 to 0x%X):", Math.max(0, length - 1)), "Go to offset", JOptionPane.QUESTION_MESSAGE);
+        while (text != null) {
+            try {
+                return Math.max(0, Math.min(ByteFormatter.parseOffset(text), length - 1));
+            } catch (NumberFormatException ex) {
+                text = JOptionPane.showInputDialog(parent, "Not an offset: " + text, "Go to offset", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+        return -1;
+    }
+}
@@ -1,87 +1,100 @@
 package hexeditor;
 
 import javax.swing.*;
-import javax.swing.event.CaretEvent;
-import javax.swing.event.CaretListener;
-import javax.swing.event.DocumentEvent;
-import javax.swing.text.*;
 import java.awt.*;
-import java.awt.event.AdjustmentEvent;
-import java.awt.event.AdjustmentListener;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
 import java.awt.event.FocusEvent;
 import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
 import java.io.*;
-import java.nio.ByteBuffer;
-import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
 
 public class HexEditor {
+    private static final String PAGE_CACHE_LIMIT_PROPERTY = "hexeditor.pageCacheLimit";
     private JFrame mainFrame = new JFrame("FileLoader");
-    private JTextPane hexArea = new JTextPane();
-    private JTextPane symbolArea = new JTextPane();
+    private ByteAreaView hexArea = new ByteAreaView(ByteAreaView.Column.HEX);
+    private ByteAreaView symbolArea = new ByteAreaView(ByteAreaView.Column.SYMBOL);
     private JScrollPane hexAreaScrollPane = new JScrollPane(hexArea);
     private JScrollPane symbolAreaScrollPane = new JScrollPane(symbolArea);
+    //the pane scrollbars move within the window, this one moves the window over the whole file
+    private JScrollBar fileScrollBar = new JScrollBar(JScrollBar.VERTICAL);
+    private final FileScrollModel fileScrollModel = new FileScrollModel();
+    private boolean fileScrollBarSyncing = false;
     private JLabel fileLine = new JLabel("0");
     private JLabel fileLineMessage = new JLabel("File line: ");
-    private DocumentChangeListener documentChangeListener;
-
+    private JLabel metricsLine = new JLabel("");
+    private JLabel statusMessage = new JLabel("");
+    private JProgressBar progressBar = new JProgressBar(0, PROGRESS_BAR_MAXIMUM);
+    private SearchDialog searchDialog;
+    private CompareDialog compareDialog;
+    private ChecksumDialog checksumDialog;
+    private StringsDialog stringsDialog;
+
+    //every open file has a tab, the shown one lends its path and buffer to the fields below
+    private final List<OpenFile> openFiles = new ArrayList<>();
+    private final JTabbedPane fileTabs = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
+    private OpenFile openFile;
     private Path currentFile;
-    private Path tempFile;
-    private int currentFileRightOffset = 0;
-    int currentFileLeftOffset = 0;
-    private static final String NEW_FILE_POSTFIX = ".hexn";
-    private static final String TEMP_FILE_POSTFIX = ".tmp";
+    private PieceTable editBuffer;
+    private final List<PieceTable.EditListener> editListeners = new ArrayList<>();
+    private final List<Runnable> windowMoveListeners = new ArrayList<>();
+    private OverviewStrip overviewStrip = new OverviewStrip(this);
+    private DiffRanges differences;
+    //window reads and whole-file tasks get separate threads, so a long save doesn't hold the view
+    private final IoExecutor viewLoader = new IoExecutor("hexeditor-view-loader");
+    private final IoExecutor fileTasks = new IoExecutor("hexeditor-file-tasks");
+    private final IoExecutor prefetchLoader = new IoExecutor("hexeditor-prefetch");
+    private final IoExecutor diskChecks = new IoExecutor("hexeditor-disk-checks");
+    private final FileWatcher fileWatcher = new FileWatcher(this::fileChangedOnDisk);
+    private final JToggleButton tailButton = new JToggleButton("Tail");
+    //a change on disk found during a file task is applied after it
+    private static final int DISK_CHANGE_RETRY_MS = 500;
+    private WindowPrefetcher prefetcher;
+    //pages of all open files share one budget, the files in background tabs give up theirs first
+    private final PageCachePool pageCachePool = new PageCachePool(
+            Long.getLong(PAGE_CACHE_LIMIT_PROPERTY, PageCachePool.DEFAULT_LIMIT));
+    private Future<?> pendingLoad;
+    private Future<?> pendingFileTask;
+    private long currentFileRightOffset = 0;
+    long currentFileLeftOffset = 0;
+    private static final String METRICS_OVERLAY_PROPERTY = "hexeditor.metricsOverlay";
+    private static final String UNDO_MEMORY_LIMIT_PROPERTY = "hexeditor.undoMemoryLimit";
+    private static final int METRICS_OVERLAY_PERIOD_MS = 1000;
+    private final EditorMetrics metrics = new EditorMetrics();
+    private long overlayBytes = 0;
+    private static final int PROGRESS_BAR_MAXIMUM = 1000;
 
     private static int screenCenterX = 1;
     private static int screenCenterY = 1;
     private static GraphicsDevice gd;
 
-    private AttributeSet caretIndication;
-    private AttributeSet basicIndication;
-
-    private int previousSymbolDot = 0;
-    private int previousHexDot = 0;
-    private int previousSymbolMark = 0;
-    private int previousHexMark = 0;
-    private int previousHexLength = 0;
-    private int previousHexScrollValue = 0;
-    private int previousSymbolScrollValue = 0;
-
-    private int hexAreaScrollRowSize = 0;
-    private int hexAreaScrollRowsInView = 0;
-
-    private boolean isLoading = false;
-    private boolean eventBlock = false;
-
     private static final int FRAME_MIN_WIDTH = 640;
     private static final int FRAME_MIN_HEIGHT = 480;
     static final int AREA_RAW_SYMBOLS_IN_LINE = 16;
     static final int HEX_AREA_SYMBOLS_FOR_RAW = 3;
     static final int HEX_AREA_SYMBOLS_IN_LINE = AREA_RAW_SYMBOLS_IN_LINE * HEX_AREA_SYMBOLS_FOR_RAW;
-    private static final int AREA_NUMBER_OF_LINES = 25;
-    private static final int AREA_SYMBOLS_AS_NUMBER = 32;
-    private static final int AREA_SYMBOLS_AS_BOX = 126;
-    private static final char[] ENABLED_KEYS = getEnabledKeys();
-    private static final char[] DISABLED_KEYS = getDisabledKeys();
-
-    private ArrayList<Integer> symbolAreaRows = new ArrayList<>(AREA_NUMBER_OF_LINES + 1);
-
-    private static char[] getEnabledKeys(){
-        char[] keys = new char[16];
-        int index= 0;
-        for (int c = KeyEvent.VK_0; c <= KeyEvent.VK_9; ++c, ++ index) keys[index] = (char)c;
-        for (int c = KeyEvent.VK_A; c <= KeyEvent.VK_F; ++c, ++ index) keys[index] = (char)c;
-        return keys;
-    }
-    private static char[] getDisabledKeys(){
-        char[] keys = new char[78];
-        int index= 0;
-        for (int c = 0x0067; c <= 0x007e; ++c, ++ index) keys[index] = (char)c; //24
-        for (int c = 0x003a; c <= 0x0060; ++c, ++ index) keys[index] = (char)c; //39
-        for (int c = 0x0021; c <= 0x002f; ++c, ++ index) keys[index] = (char)c; //15
-        return keys;
-    }
+    static final int AREA_NUMBER_OF_LINES = 25;
+    static final int AREA_SYMBOLS_AS_NUMBER = 32;
+    static final int AREA_SYMBOLS_AS_BOX = 126;
+
+    private final byte[] window = new byte[AREA_NUMBER_OF_LINES * AREA_RAW_SYMBOLS_IN_LINE];
+    private int windowLength = 0;
+    private final boolean[] differenceMask = new boolean[window.length];
+    //caret position in the hex layout of the window: two digits and a gap for every byte
+    private int hexDot = 0;
+    //file offset where the selection started, the caret byte is its other end; -1 without a selection
+    private long selectionAnchor = -1;
+    //copying formats the selection as text, so it's limited to a size the clipboard copes with
+    private static final long COPY_LIMIT = 16L * 1024 * 1024;
+    //the last copy is pasted back as bytes even when it's a single code, like "12"
+    private String copiedText;
 
     public HexEditor(){
         mainFrame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
@@ -101,15 +114,8 @@ public class HexEditor {
         JPanel back_panel = new JPanel(new GridBagLayout());
         back_panel.setBackground(Color.WHITE);
         createStandardUI(back_panel);
+        metrics.register();
         mainFrame.add(back_panel);
-
-        StyleContext styleContext = StyleContext.getDefaultStyleContext();
-        caretIndication = styleContext.addAttribute(
-                SimpleAttributeSet.EMPTY,
-                StyleConstants.Background, Color.GRAY);
-        basicIndication = styleContext.addAttribute(
-                SimpleAttributeSet.EMPTY,
-                StyleConstants.Background, Color.WHITE);
     }
 
     public static void main(String[] args) {
@@ -139,509 +145,1160 @@ public class HexEditor {
                 loadFile(fc.getSelectedFile().toPath());});
         back_panel.add(openFileButton, constraints);
 
+        constraints.gridwidth = GridBagConstraints.REMAINDER;
+        fileTabs.addChangeListener(event -> showSelectedFile());
+        back_panel.add(fileTabs, constraints);
+        constraints.gridwidth = 1;
+
         JButton saveFileButton = new JButton("Save");
         constraints.gridy = 1;
         constraints.fill = GridBagConstraints.HORIZONTAL;
-//        saveFileButton.addActionListener(new SaveFileDialogActionListener());
+        saveFileButton.addActionListener(event -> {
+            if (currentFile != null) saveFile(currentFile);});
         back_panel.add(saveFileButton, constraints);
 
+        JButton saveFileAsButton = new JButton("Save as");
+        saveFileAsButton.addActionListener(event -> {
+            if (currentFile == null) return;
+            final JFileChooser fc = new JFileChooser(currentFile.toFile());
+            int returnVal = fc.showSaveDialog(getMainFrame());
+            if(returnVal == JFileChooser.APPROVE_OPTION)
+                saveFile(fc.getSelectedFile().toPath());});
+        back_panel.add(saveFileAsButton, constraints);
+
+        JButton closeFileButton = new JButton("Close");
+        closeFileButton.addActionListener(event -> closeFile());
+        back_panel.add(closeFileButton, constraints);
+
+        JButton findButton = new JButton("Find");
+        findButton.addActionListener(event -> {
+            if (searchDialog == null) {
+                searchDialog = new SearchDialog(this);
+                addEditListener((offset, removedLength, insertedLength) -> searchDialog.contentEdited());
+            }
+            searchDialog.setVisible(true);});
+        back_panel.add(findButton, constraints);
+
+        JButton compareButton = new JButton("Compare");
+        compareButton.addActionListener(event -> {
+            if (compareDialog == null) {
+                compareDialog = new CompareDialog(this);
+                addEditListener((offset, removedLength, insertedLength) -> compareDialog.contentEdited());
+            }
+            compareDialog.setVisible(true);});
+        back_panel.add(compareButton, constraints);
+
+        JButton checksumButton = new JButton("Checksums");
+        checksumButton.addActionListener(event -> {
+            if (checksumDialog == null) {
+                checksumDialog = new ChecksumDialog(this);
+                addEditListener((offset, removedLength, insertedLength) -> checksumDialog.contentEdited());
+            }
+            long[] selection = getSelection();
+            if (selection != null) checksumDialog.setRange(selection[0], selection[1]);
+            checksumDialog.setVisible(true);});
+        back_panel.add(checksumButton, constraints);
+
+        JButton stringsButton = new JButton("Strings");
+        stringsButton.addActionListener(event -> {
+            if (stringsDialog == null) stringsDialog = new StringsDialog(this);
+            stringsDialog.setVisible(true);});
+        back_panel.add(stringsButton, constraints);
+
+        JButton goToButton = new JButton("Go to");
+        goToButton.addActionListener(event -> {
+            if (editBuffer == null) return;
+            long offset = GoToOffsetDialog.ask(getMainFrame(), editBuffer.length());
+            if (offset >= 0) goToOffset(offset);});
+        back_panel.add(goToButton, constraints);
+
+        JButton undoButton = new JButton("Undo");
+        undoButton.addActionListener(event -> undo());
+        back_panel.add(undoButton, constraints);
+
+        JButton redoButton = new JButton("Redo");
+        redoButton.addActionListener(event -> redo());
+        back_panel.add(redoButton, constraints);
+
+        JButton rangeButton = new JButton("Range");
+        JPopupMenu rangeMenu = new JPopupMenu();
+        rangeMenu.add("Fill selection...").addActionListener(event -> fillSelection());
+        rangeMenu.add("Insert bytes...").addActionListener(event -> insertBytes());
+        rangeMenu.add("Insert file...").addActionListener(event -> {
+            final JFileChooser fc = new JFileChooser();
+            if (fc.showOpenDialog(getMainFrame()) == JFileChooser.APPROVE_OPTION)
+                insertFile(fc.getSelectedFile().toPath());});
+        rangeMenu.add("Delete selection").addActionListener(event -> deleteSelection());
+        rangeMenu.addSeparator();
+        rangeMenu.add("Copy").addActionListener(event -> copySelection());
+        rangeMenu.add("Paste").addActionListener(event -> paste(false));
+        rangeMenu.add("Paste as hex").addActionListener(event -> paste(true));
+        rangeButton.addActionListener(event -> rangeMenu.show(rangeButton, 0, rangeButton.getHeight()));
+        back_panel.add(rangeButton, constraints);
+
+        tailButton.setToolTipText("Follow the end of a file which grows on disk");
+        tailButton.addActionListener(event -> {
+            if (openFile == null) {
+                tailButton.setSelected(false);
+                return;
+            }
+            openFile.tail = tailButton.isSelected();
+            if (openFile.tail) followTail();});
+        back_panel.add(tailButton, constraints);
+
         constraints.gridy = 2;
+        constraints.weightx = 2D;
+        constraints.gridwidth = 10;
+        constraints.fill = GridBagConstraints.BOTH;
+        PaneFocusListener focusListener = new PaneFocusListener(this);
+        PaneKeyListener keyListener = new PaneKeyListener(this);
+        PaneMouseListener mouseListener = new PaneMouseListener(this);
+        constraints.weightx = 0D;
+        constraints.gridwidth = 1;
+        constraints.fill = GridBagConstraints.VERTICAL;
+        overviewStrip.setBorder(BorderFactory.createLineBorder(Color.black));
+        addEditListener(overviewStrip);
+        back_panel.add(overviewStrip, constraints);
+
         constraints.weightx = 2D;
         constraints.gridwidth = 10;
         constraints.fill = GridBagConstraints.BOTH;
         hexAreaScrollPane.setVerticalScrollBarPolicy(
                 JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
         hexAreaScrollPane.setPreferredSize(new Dimension(300, 289 + 4));
-        hexArea.setEditable(true);
         hexArea.setBorder(BorderFactory.createLineBorder(Color.black));
-        PaneFocusListener focusListener = new PaneFocusListener(this);
-        hexArea.addCaretListener(e -> handleCaretMovement(e));
         hexArea.addFocusListener(focusListener);
-        hexAreaScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> handleHexPaneScroll(e));
+        hexArea.addKeyListener(keyListener);
+        hexArea.addMouseListener(mouseListener);
+        hexArea.addMouseMotionListener(mouseListener);
         back_panel.add(hexAreaScrollPane, constraints);
 
-        InputMap areaInputMap = new InputMap();
-        areaInputMap.setParent(hexArea.getInputMap(JComponent.WHEN_FOCUSED));
-        for (char c: DISABLED_KEYS) {
-            areaInputMap.put(KeyStroke.getKeyStroke(c), "none");
-        }
-        hexArea.setInputMap(JComponent.WHEN_FOCUSED, areaInputMap);
-
         constraints.weightx = 1D;
         constraints.fill = GridBagConstraints.BOTH;
         symbolAreaScrollPane.setVerticalScrollBarPolicy(
                 JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
         symbolAreaScrollPane.setPreferredSize(new Dimension(250, 289 + 4));
-        symbolArea.setEditable(true);
         symbolArea.setBorder(BorderFactory.createLineBorder(Color.black));
-        symbolArea.addCaretListener(e -> handleCaretMovement(e));
         symbolArea.addFocusListener(focusListener);
-        symbolAreaScrollPane.getVerticalScrollBar().addAdjustmentListener(event -> handleSymbolPaneScroll(event));
+        symbolArea.addKeyListener(keyListener);
+        symbolArea.addMouseListener(mouseListener);
+        symbolArea.addMouseMotionListener(mouseListener);
+        //both panes scroll together through the same model
+        symbolAreaScrollPane.getVerticalScrollBar().setModel(hexAreaScrollPane.getVerticalScrollBar().getModel());
         back_panel.add(symbolAreaScrollPane, constraints);
 
+        constraints.weightx = 0D;
+        constraints.gridwidth = 1;
+        constraints.fill = GridBagConstraints.VERTICAL;
+        fileScrollBar.setEnabled(false);
+        fileScrollBar.addAdjustmentListener(event -> {
+            if (!fileScrollBarSyncing) scrollToRow(fileScrollModel.toRow(event.getValue()));});
+        back_panel.add(fileScrollBar, constraints);
+
         back_panel.add(fileLineMessage);
         back_panel.add(fileLine);
-
-        documentChangeListener = new DocumentChangeListener(this);
+        if (Boolean.getBoolean(METRICS_OVERLAY_PROPERTY)) {
+            back_panel.add(metricsLine);
+            new Timer(METRICS_OVERLAY_PERIOD_MS, event -> updateMetricsLine()).start();
+        }
+        back_panel.add(statusMessage);
+        back_panel.add(progressBar);
     }
 
     public JFrame getMainFrame(){
         return mainFrame;
     }
 
+    PieceTable getEditBuffer(){
+        return editBuffer;
+    }
+
+    Path getCurrentFile(){
+        return currentFile;
+    }
+
+    long getCaretOffset(){
+        return currentFileLeftOffset + hexDot / HEX_AREA_SYMBOLS_FOR_RAW;
+    }
+
+    long getWindowOffset(){
+        return currentFileLeftOffset;
+    }
+
+    /**
+     * Returns the selected range as {from, to} with {@code to} exclusive, or null when nothing is selected.
+     */
+    long[] getSelection(){
+        if (selectionAnchor < 0 || editBuffer == null) return null;
+        long caret = getCaretOffset();
+        long to = Math.min(editBuffer.length(), Math.max(selectionAnchor, caret) + 1);
+        return new long[]{Math.min(selectionAnchor, caret), to};
+    }
+
+    /**
+     * Runs the listener on the event dispatch thread whenever another part of the file is shown.
+     */
+    void addWindowMoveListener(Runnable listener){
+        windowMoveListeners.add(listener);
+    }
+
+    /**
+     * Highlights the bytes in the ranges in both panes, null removes the highlighting.
+     */
+    void showDifferences(DiffRanges ranges){
+        differences = ranges;
+        highlightDifferences();
+    }
+
+    /**
+     * Listeners are kept by the editor and moved to the edit buffer of every opened file.
+     */
+    void addEditListener(PieceTable.EditListener listener){
+        editListeners.add(listener);
+        if (editBuffer != null) editBuffer.addEditListener(listener);
+    }
+
+    /**
+     * Opens the file on a background thread; the current file stays in the view until the new one is ready.
+     */
     public void loadFile(Path path){
-        if (Files.isReadable(path)){
-            isLoading = true;
-            this.currentFile = path;
-            copyToTemporaryFile(currentFile);
-            currentFileLeftOffset = 0;
-            currentFileRightOffset = AREA_NUMBER_OF_LINES * AREA_RAW_SYMBOLS_IN_LINE;
-            previousSymbolDot = 0;
-            previousHexDot = 0;
-            previousSymbolMark = 0;
-            previousHexMark = 0;
-            previousHexScrollValue = 0;
-            hexAreaScrollRowsInView = 0;
-            hexAreaScrollRowSize = 0;
-            previousHexLength = 0;
-            for (CaretListener listener: hexArea.getCaretListeners())
-                hexArea.removeCaretListener(listener);
-            for (CaretListener listener: symbolArea.getCaretListeners())
-                symbolArea.removeCaretListener(listener);
-            for (AdjustmentListener listener: hexAreaScrollPane.getVerticalScrollBar().getAdjustmentListeners())
-                hexAreaScrollPane.getVerticalScrollBar().removeAdjustmentListener(listener);
-            for (AdjustmentListener listener: symbolAreaScrollPane.getVerticalScrollBar().getAdjustmentListeners())
-                symbolAreaScrollPane.getVerticalScrollBar().removeAdjustmentListener(listener);
-            StyledDocument hexDocument = new DefaultStyledDocument();
-            StyledDocument symbolDocument = new DefaultStyledDocument();
-            loadFileSection(tempFile, currentFileLeftOffset, hexDocument, symbolDocument);
-            hexDocument.addDocumentListener(documentChangeListener);
-            hexArea.setStyledDocument(hexDocument);
-            symbolArea.setStyledDocument(symbolDocument);
-            symbolAreaRows.add(symbolDocument.getLength());
-            previousHexScrollValue = hexAreaScrollPane.getVerticalScrollBar().getValue();
-            isLoading = false;
-            hexArea.setCaretPosition(0);
-            hexAreaScrollPane.getVerticalScrollBar().setValue(0);
-            symbolArea.setCaretPosition(0);
-            symbolAreaScrollPane.getVerticalScrollBar().setValue(0);
-            hexArea.addCaretListener(e -> handleCaretMovement(e));
-            symbolArea.addCaretListener(e -> handleCaretMovement(e));
-            hexAreaScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> handleHexPaneScroll(e));
-            symbolAreaScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> handleSymbolPaneScroll(e));
+        if (!Files.isReadable(path) || pendingFileTask != null) return;
+        for (OpenFile file: openFiles) {
+            if (!file.isOf(path)) continue;
+            fileTabs.setSelectedIndex(openFiles.indexOf(file));
+            return;
+        }
+        long openStart = System.nanoTime();
+        statusMessage.setText("Opening " + path.getFileName() + "...");
+        pendingFileTask = fileTasks.submit(progress -> openEditBuffer(path), new IoExecutor.IoCallback<PieceTable>(){
+            @Override
+            public void done(PieceTable opened){
+                pendingFileTask = null;
+                OpenFile file = new OpenFile(path, opened, undoMemoryLimit());
+                if (EditLog.exists(path)) offerReplay(file, openStart);
+                else showOpened(file, "Opened", openStart);
+            }
+
+            @Override
+            public void failed(Exception ex){
+                pendingFileTask = null;
+                statusMessage.setText("Can't open " + path.getFileName());
+                System.err.println(ex);
+            }
+        });
+    }
+
+    /**
+     * Shows the opened file in a new tab.
+     */
+    private void showOpened(OpenFile file, String message, long openStart){
+        showFile(file, () -> hexArea.runAfterPaint(() -> statusMessage.setText(
+                message + " in " + (System.nanoTime() - openStart) / 1_000_000 + " ms")));
+        fileWatcher.watch(file.path);
+        openFiles.add(file);
+        fileTabs.addTab(file.path.getFileName().toString(), null, new JPanel(), file.path.toString());
+        fileTabs.setSelectedIndex(openFiles.size() - 1);
+    }
+
+    private static long undoMemoryLimit(){
+        return Long.getLong(UNDO_MEMORY_LIMIT_PROPERTY, EditJournal.DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * Shows the file of the selected tab. Tabs wait for a running file task, which belongs to the shown file.
+     */
+    private void showSelectedFile(){
+        int index = fileTabs.getSelectedIndex();
+        if (index < 0 || index >= openFiles.size() || openFiles.get(index) == openFile) return;
+        if (pendingFileTask != null) {
+            fileTabs.setSelectedIndex(openFiles.indexOf(openFile));
+            return;
         }
+        showFile(openFiles.get(index), null);
     }
 
-    private void copyToTemporaryFile(Path source){
-        try {
-            if (tempFile == null) {
-                tempFile = Files.createTempFile(null, NEW_FILE_POSTFIX + TEMP_FILE_POSTFIX);
-                tempFile.toFile().deleteOnExit();
-                tempFile.toFile().setWritable(true);
+    /**
+     * Closes the shown file, its unsaved edits stay in the edit log, and shows the tab next to it.
+     */
+    private void closeFile(){
+        if (openFile == null || pendingFileTask != null) return;
+        OpenFile closing = openFile;
+        int index = openFiles.indexOf(closing);
+        hideFile();
+        fileWatcher.unwatch(closing.path);
+        closing.close();
+        openFiles.remove(index);
+        fileTabs.removeTabAt(index);
+        if (openFiles.isEmpty()) clearView();
+        else showSelectedFile();
+    }
+
+    /**
+     * The file has a log of edits which weren't saved: replays it on the opened content if the user wants them back,
+     * as edits which can be undone, otherwise deletes it.
+     */
+    private void offerReplay(OpenFile file, long openStart){
+        Path path = file.path;
+        int answer = JOptionPane.showConfirmDialog(getMainFrame(), "Edits of " + path.getFileName()
+                + " weren't saved. Recover them?\nNo discards them.", "Recover edits", JOptionPane.YES_NO_OPTION);
+        if (answer != JOptionPane.YES_OPTION) {
+            deleteEditLog(path);
+            showOpened(file, "Opened", openStart);
+            return;
+        }
+        statusMessage.setText("Recovering edits of " + path.getFileName() + "...");
+        pendingFileTask = fileTasks.submit(progress -> file.recover(), new IoExecutor.IoCallback<Integer>(){
+            @Override
+            public void done(Integer edits){
+                pendingFileTask = null;
+                showOpened(file, "Recovered " + edits + " edits", openStart);
             }
-            Files.copy(source, tempFile, StandardCopyOption.REPLACE_EXISTING);
-        } catch (IOException ex){
+
+            @Override
+            public void failed(Exception ex){
+                pendingFileTask = null;
+                System.err.println(ex);
+                JOptionPane.showMessageDialog(getMainFrame(), "Can't recover the edits: " + ex.getMessage()
+                        , "Recover edits", JOptionPane.ERROR_MESSAGE);
+                //the content may have part of the log on it, the file is opened again without it
+                file.close();
+                deleteEditLog(path);
+                loadFile(path);
+            }
+        });
+    }
+
+    private static void deleteEditLog(Path path){
+        try {
+            EditLog.delete(path);
+        } catch (IOException ex) {
             System.err.println(ex);
         }
     }
 
-    private void fileScreenMove(int rowsAdded){
-        isLoading = true;
-        changeFileOffset(rowsAdded);
-        previousHexDot = hexArea.getCaretPosition();
-        for (CaretListener listener: hexArea.getCaretListeners())
-            hexArea.removeCaretListener(listener);
-        for (CaretListener listener: symbolArea.getCaretListeners())
-            symbolArea.removeCaretListener(listener);
-        for (AdjustmentListener listener: hexAreaScrollPane.getVerticalScrollBar().getAdjustmentListeners())
-            hexAreaScrollPane.getVerticalScrollBar().removeAdjustmentListener(listener);
-        for (AdjustmentListener listener: symbolAreaScrollPane.getVerticalScrollBar().getAdjustmentListeners())
-            symbolAreaScrollPane.getVerticalScrollBar().removeAdjustmentListener(listener);
-        StyledDocument hexDocument = new DefaultStyledDocument();
-        StyledDocument symbolDocument = new DefaultStyledDocument();
-        loadFileSection(tempFile, currentFileLeftOffset, hexDocument, symbolDocument);
-        hexDocument.addDocumentListener(documentChangeListener);
-        hexArea.setStyledDocument(hexDocument);
-        previousHexLength = hexDocument.getLength();
-        symbolArea.setStyledDocument(symbolDocument);
-        isLoading = false;
-        hexArea.addCaretListener(e -> handleCaretMovement(e));
-        symbolArea.addCaretListener(e -> handleCaretMovement(e));
-        hexAreaScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> handleHexPaneScroll(e));
-        symbolAreaScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> handleSymbolPaneScroll(e));
-    }
-
-    private void loadFileSection(Path file, long fileOffset, StyledDocument hexDocument, StyledDocument symbolDocument){
-        try{
-            SeekableByteChannel byteChannel = Files.newByteChannel(file);
-            ByteBuffer buffer = ByteBuffer.allocate(AREA_NUMBER_OF_LINES * AREA_RAW_SYMBOLS_IN_LINE);
-            byteChannel = byteChannel.position(fileOffset);
-
-            if(byteChannel.read(buffer) > 0) {
-                StyleContext styleContext = StyleContext.getDefaultStyleContext();
-                AttributeSet foreground;
-                AttributeSet hexFont = styleContext.addAttribute(
-                        SimpleAttributeSet.EMPTY,
-                        StyleConstants.FontFamily, Font.MONOSPACED);
-                int index = 1;
-                int position = 0;
-                symbolAreaRows = new ArrayList<>(AREA_NUMBER_OF_LINES + 1);
-                symbolAreaRows.add(position);
-                try{
-                    for(byte v: buffer.array()){
-                        // breaking when exceed file size
-                        if (fileOffset + index >= byteChannel.size()){
-                            if (hexDocument.getLength() % HEX_AREA_SYMBOLS_FOR_RAW == 0)
-                                hexDocument.remove(hexDocument.getLength() - 1, 1);
-                            break;
-                        }
-                        int c = v < 0 ? v & 0xff: v; //unsighning byte
-
-                        String hexSymbol = Integer.toHexString(c);
-                        if (hexSymbol.length() == 1) hexSymbol = "0" + hexSymbol;
-
-                        if (index > 1 && (index - 1) % AREA_RAW_SYMBOLS_IN_LINE == 0){
-                            hexDocument.insertString(hexDocument.getLength()
-                                    , "\n"
-                                    , hexFont);
-                            symbolDocument.insertString(symbolDocument.getLength()
-                                    , "\n"
-                                    , hexFont);
-//                            ++position;
-                            symbolAreaRows.add(position);
-                        }
-
-                        String hexLineEnding = "";
-                        int hexOffset = hexDocument.getLength();
-                        hexDocument.insertString(hexOffset
-                                , hexSymbol + (index % AREA_RAW_SYMBOLS_IN_LINE == 0 ? hexLineEnding : " ")
-                                , hexFont);
-
-                        String symbol;
-                        int symbolAttributeOffset = symbolDocument.getLength();
-                        if (c < AREA_SYMBOLS_AS_NUMBER) {
-                            symbol = "\\" + c;
-                            foreground = styleContext.addAttribute(
-                                    SimpleAttributeSet.EMPTY,
-                                    StyleConstants.Foreground, Color.BLUE);
-                            ++symbolAttributeOffset;
-                        } else if (c > AREA_SYMBOLS_AS_BOX) {
-                            symbol = "\u25FB";
-                            foreground = styleContext.addAttribute(
-                                    SimpleAttributeSet.EMPTY,
-                                    StyleConstants.Foreground, new Color(0, 100, 0));
-                        } else {
-                            symbol = String.valueOf((char) c);
-                            foreground = styleContext.addAttribute(
-                                    SimpleAttributeSet.EMPTY,
-                                    StyleConstants.Foreground, Color.BLACK);
-                        }
-
-                        String symbolLineEnding = "";
-                        int symbolOffset = symbolDocument.getLength();
-                        symbolDocument.insertString(symbolOffset
-                                , symbol + symbolLineEnding
-                                , null);
-                        symbolDocument.setCharacterAttributes(symbolAttributeOffset
-                                , symbolAttributeOffset + symbol.length()
-                                , foreground, true);
-                        ++index;
-                        position = symbolDocument.getLength() + 1;
-                    }
-                } catch (BadLocationException ex){
-                    System.err.println("Some issue with text inserting:\\n " + ex);
-                } finally {
-                    if (byteChannel != null) {
-                        byteChannel.close();
-                    }
-                }
+    /**
+     * Saves on a background thread with the progress shown by the progress bar. Edits are refused until it's done.
+     */
+    public void saveFile(Path target){
+        if (editBuffer == null || pendingFileTask != null) return;
+        PieceTable content = editBuffer;
+        Path source = currentFile;
+        long saveStart = System.nanoTime();
+        long[] written = {0, 0};
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.SAVE);
+        statusMessage.setText("Saving...");
+        pendingFileTask = fileTasks.submit(progress -> {
+            written[0] = new FileSaver(content, source).save(target, progress);
+            written[1] = Math.max(1, System.nanoTime() - saveStart);
+            //the saved file becomes the original of a new edit buffer, the view stays where it was
+            return openEditBuffer(target);
+        }, new IoExecutor.IoCallback<PieceTable>(){
+            @Override
+            public void done(PieceTable saved){
+                pendingFileTask = null;
+                sample.end(written[0]);
+                metrics.addBytesWritten(written[0]);
+                statusMessage.setText(String.format("Saved %d bytes in %d ms (%.1f MB/s)"
+                        , written[0], written[1] / 1_000_000, written[0] * 1000.0 / written[1]));
+                OpenFile file = openFile;
+                hideFile();
+                fileWatcher.unwatch(file.path);
+                file.reopened(target, saved, undoMemoryLimit());
+                fileWatcher.watch(target);
+                int index = openFiles.indexOf(file);
+                fileTabs.setTitleAt(index, target.getFileName().toString());
+                fileTabs.setToolTipTextAt(index, target.toString());
+                showFile(file, null);
             }
-        } catch(IOException ex) {
-            System.err.println("Some issue with file stream:\\n " + ex);
-        }
+
+            @Override
+            public void failed(Exception ex){
+                pendingFileTask = null;
+                statusMessage.setText("Save failed");
+                System.err.println("Some issue with file saving:\\n " + ex);
+            }
+        }, (done, total) ->
+                progressBar.setValue(total == 0 ? PROGRESS_BAR_MAXIMUM : (int) (done * PROGRESS_BAR_MAXIMUM / total)));
+    }
+
+    /**
+     * Puts the shown file in background: remembers where its view was and stops everything which works
+     * for the view. Its buffer stays open.
+     */
+    private void hideFile(){
+        if (openFile == null) return;
+        openFile.windowOffset = currentFileLeftOffset;
+        openFile.hexDot = hexDot;
+        openFile.selectionAnchor = selectionAnchor;
+        if (pendingLoad != null) pendingLoad.cancel(false);
+        pendingLoad = null;
+        prefetcher.close();
+        prefetcher = null;
+        overviewStrip.close();
+        metrics.watch(null, null);
+        for (PieceTable.EditListener listener: editListeners)
+            editBuffer.removeEditListener(listener);
+        editBuffer.getOriginal().setForeground(false);
+        openFile = null;
+        currentFile = null;
+        editBuffer = null;
     }
 
-    public void handleCaretMovement(CaretEvent e){
-        if (isLoading) return;
+    /**
+     * Shows the file where its view was left, or at the start when it's new.
+     */
+    private void showFile(OpenFile file, Runnable then){
+        hideFile();
+        openFile = file;
+        currentFile = file.path;
+        editBuffer = file.content;
+        differences = null;
+        editBuffer.getOriginal().setForeground(true);
+        for (PieceTable.EditListener listener: editListeners)
+            editBuffer.addEditListener(listener);
+        prefetcher = new WindowPrefetcher(editBuffer, window.length, prefetchLoader);
+        metrics.watch(editBuffer, prefetcher);
+        overviewStrip.open(currentFile, editBuffer);
+        currentFileLeftOffset = file.windowOffset;
+        hexDot = file.hexDot;
+        selectionAnchor = file.selectionAnchor;
+        tailButton.setSelected(file.tail);
+        loadWindow(0, () -> {
+            hexAreaScrollPane.getVerticalScrollBar().setValue(0);
+            placeCaret(hexDot);
+            hexArea.requestFocusInWindow();
+            if (then != null) then.run();
+        });
+    }
 
+    /**
+     * Another program wrote to the file or replaced it, every tab of it is checked.
+     */
+    private void fileChangedOnDisk(Path path){
+        for (OpenFile file: openFiles)
+            if (file.isOf(path)) checkDisk(file);
+    }
 
-        //blocking handling another event while handling current event
-        if (eventBlock){
-            eventBlock = false;
+    /**
+     * Finds what changed on disk on a background thread, then applies it. Checks of a file run one at a time,
+     * events which come meanwhile make one more check after it.
+     */
+    private void checkDisk(OpenFile file){
+        if (file.checking) {
+            file.recheck = true;
             return;
         }
-        if (hexArea.getStyledDocument().getLength() == 0) return;
-        if (symbolArea.getStyledDocument().getLength() == 0) return;
-        if (e.getSource().equals(hexArea)){
-            //when CaretEvent fired before DocumentEvent after document change
-            if (hexArea.getStyledDocument().getLength() != previousHexLength) return;
-
-            symbolAreaScrollPane.getVerticalScrollBar().setValue(hexAreaScrollPane.getVerticalScrollBar().getValue());
-            moveCaretOnSymbolPane(e);
-            if ((e.getDot() / (HEX_AREA_SYMBOLS_IN_LINE)) == (AREA_NUMBER_OF_LINES - 1)
-                    && currentFileLeftOffset  < (currentFile.toFile().length() -  AREA_NUMBER_OF_LINES * AREA_RAW_SYMBOLS_IN_LINE)){
-
-                //one row upper visible section for ScrollBar value > 0
-                fileScreenMove(AREA_NUMBER_OF_LINES - 2);
-                eventBlock = true;
-                hexArea.setCaretPosition(2 * HEX_AREA_SYMBOLS_IN_LINE - 1);
-                return;
+        file.checking = true;
+        PieceTable checked = file.content;
+        boolean tail = file.tail;
+        diskChecks.submit(progress -> file.checkDisk(checked, tail), new IoExecutor.IoCallback<OpenFile.DiskChange>(){
+            @Override
+            public void done(OpenFile.DiskChange change){
+                file.checking = false;
+                if (change != null) applyDiskChange(file, checked, change);
+                if (file.recheck && openFiles.contains(file)) {
+                    file.recheck = false;
+                    checkDisk(file);
+                }
             }
-            if ((e.getDot() / (HEX_AREA_SYMBOLS_IN_LINE)) == 0 && currentFileLeftOffset > 0){
 
-                //one row upper visible section for ScrollBar value > 0
-                fileScreenMove(-(AREA_NUMBER_OF_LINES - 2));
-                eventBlock = true;
-                hexArea.setCaretPosition((AREA_NUMBER_OF_LINES - 2) * HEX_AREA_SYMBOLS_IN_LINE);
+            @Override
+            public void failed(Exception ex){
+                //a file deleted or being replaced is checked again by the event of its replacement
+                file.checking = false;
+                file.recheck = false;
+                System.err.println(ex);
             }
+        });
+    }
+
+    /**
+     * Shows the bytes which changed on disk: the changed pages are told to the edit listeners, or the whole
+     * original when it's unknown where the file changed, and what the file grew by is appended to the content.
+     * Edits of the other bytes stay. A file which can't be followed in place is opened again.
+     */
+    private void applyDiskChange(OpenFile file, PieceTable checked, OpenFile.DiskChange change){
+        if (file.content != checked || !openFiles.contains(file)) return;
+        //a save or a reload reads the content, it's changed once they're done
+        if (pendingFileTask != null) {
+            Timer retry = new Timer(DISK_CHANGE_RETRY_MS, event -> applyDiskChange(file, checked, change));
+            retry.setRepeats(false);
+            retry.start();
+            return;
         }
-        else{
-            hexAreaScrollPane.getVerticalScrollBar().setValue(symbolAreaScrollPane.getVerticalScrollBar().getValue());
-            moveCaretOnHexPane(e);
+        if (change.replaced) {
+            reloadFile(file);
+            return;
         }
-        fileLine.setText(String.valueOf((currentFileLeftOffset + hexArea.getCaretPosition() / HEX_AREA_SYMBOLS_FOR_RAW)
-                / AREA_RAW_SYMBOLS_IN_LINE));
+        PieceTable content = file.content;
+        long pageSize = content.getOriginal().getPageSize();
+        if (change.unknownExtent) content.originalChanged(0, content.getOriginal().size());
+        for (long page: change.changedPages)
+            content.originalChanged(page * pageSize, pageSize);
+        long grown = content.originalGrew(change.size);
+        file.diskChangeApplied(change);
+        if (file != openFile) return;
+        String changed = change.unknownExtent ? "read again" : change.changedPages.length + " pages changed";
+        statusMessage.setText(String.format("%s changed on disk: %s, %d bytes appended"
+                , file.path.getFileName(), changed, grown));
+        if (file.tail) followTail();
+        else loadWindow(0, () -> placeCaret(hexDot));
     }
 
-    private void moveCaretOnHexPane(CaretEvent e){
-        StyledDocument hexDocument = hexArea.getStyledDocument();
-        int documentRowNumber;
-        for(documentRowNumber = 0;  documentRowNumber < symbolAreaRows.size() - 1; ++documentRowNumber){
-            if(symbolAreaRows.get(documentRowNumber + 1) >= e.getDot()) break;
-        }
-        int dot = e.getDot() - symbolAreaRows.get(documentRowNumber);
-        int mark = HEX_AREA_SYMBOLS_FOR_RAW;
-        int symbolCode;
-        try {
-            String hexAreaRow = hexDocument.getText(documentRowNumber * HEX_AREA_SYMBOLS_IN_LINE
-                    , Math.min(HEX_AREA_SYMBOLS_IN_LINE
-                            , Math.abs(documentRowNumber * HEX_AREA_SYMBOLS_IN_LINE - hexDocument.getLength())));
-            int index = 0;
-            int offset = 0;
-            while(index < hexAreaRow.length() ){
-                symbolCode = Integer.parseInt(hexAreaRow.substring(index, index + 2), 16);
-                offset += symbolCode < AREA_SYMBOLS_AS_NUMBER ? ("\\" + symbolCode).length() : 1;
-                if(offset >= dot) break;
-                index += HEX_AREA_SYMBOLS_FOR_RAW;
+    /**
+     * Opens the file again once it was replaced or truncated on disk, asking first if it has edits to lose.
+     */
+    private void reloadFile(OpenFile file){
+        if (file.journal.canUndo() && JOptionPane.showConfirmDialog(getMainFrame(), file.path.getFileName()
+                + " was replaced or truncated on disk. Open it again?\nIts unsaved edits are lost."
+                , "File changed", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) return;
+        Path path = file.path;
+        pendingFileTask = fileTasks.submit(progress -> openEditBuffer(path), new IoExecutor.IoCallback<PieceTable>(){
+            @Override
+            public void done(PieceTable reopened){
+                pendingFileTask = null;
+                if (!openFiles.contains(file)) {
+                    closeQuietly(reopened);
+                    return;
+                }
+                boolean shown = file == openFile;
+                if (shown) hideFile();
+                file.reopened(path, reopened, undoMemoryLimit());
+                file.selectionAnchor = -1;
+                if (file.windowOffset >= reopened.length()) {
+                    file.windowOffset = 0;
+                    file.hexDot = 0;
+                }
+                if (shown) showFile(file, () -> statusMessage.setText("Opened " + path.getFileName() + " again"));
             }
-            dot = documentRowNumber * HEX_AREA_SYMBOLS_IN_LINE + index;
-        } catch (BadLocationException ex){
-            System.err.println(ex);
-        }
-        hexDocument.setCharacterAttributes(dot , mark, caretIndication, false);
-        if (dot != previousHexDot)
-            hexDocument.setCharacterAttributes(previousHexDot, previousHexMark, basicIndication, false);
-        previousHexDot = dot;
-        previousHexMark = mark;
-    }
-
-    private void moveCaretOnSymbolPane(CaretEvent e){
-        StyledDocument symbolDocument;
-        StyledDocument hexDocument;
-        symbolDocument = symbolArea.getStyledDocument();
-        hexDocument = hexArea.getStyledDocument();
-        int documentRowNumber = e.getDot() / (HEX_AREA_SYMBOLS_IN_LINE);
-        int dot = e.getDot() / HEX_AREA_SYMBOLS_FOR_RAW;
-        int mark = 1;
-        int symbolCode;
-        try {
-            String hexAreaRow = hexDocument.getText(documentRowNumber * HEX_AREA_SYMBOLS_IN_LINE
-                    , Math.min(HEX_AREA_SYMBOLS_IN_LINE
-                            , Math.abs(documentRowNumber * HEX_AREA_SYMBOLS_IN_LINE - hexDocument.getLength())));
-            int index = 0;
-            int offset = 0;
-            while(index < (dot - documentRowNumber * AREA_RAW_SYMBOLS_IN_LINE) * HEX_AREA_SYMBOLS_FOR_RAW
-                    && index < hexAreaRow.length() ){
-                symbolCode = Integer.parseInt(hexAreaRow.substring(index, index + 2), 16);
-                offset += symbolCode < AREA_SYMBOLS_AS_NUMBER ? ("\\" + symbolCode).length() : 1;
-                index += HEX_AREA_SYMBOLS_FOR_RAW;
+
+            @Override
+            public void failed(Exception ex){
+                pendingFileTask = null;
+                statusMessage.setText("Can't open " + path.getFileName() + " again");
+                System.err.println(ex);
             }
-//            dot = offset + symbolAreaRows.get(documentRowNumber).getOffset();
-            dot = offset + symbolAreaRows.get(documentRowNumber);
-            symbolCode = Integer.parseInt(hexAreaRow.substring(index, index + 2), 16);
-            mark += symbolCode < AREA_SYMBOLS_AS_NUMBER ? ("\\" + symbolCode).length() - 1 : 0; //several symbols in symbolArea may count as one
-        } catch (BadLocationException ex){
+        });
+    }
+
+    private static void closeQuietly(PieceTable content){
+        try {
+            content.close();
+        } catch (IOException ex) {
             System.err.println(ex);
         }
-        symbolDocument.setCharacterAttributes(dot, mark, caretIndication, false);
-        if (dot != previousSymbolDot)
-            symbolDocument.setCharacterAttributes(previousSymbolDot, previousSymbolMark, basicIndication, false);
-        previousSymbolDot = dot;
-        previousSymbolMark = mark;
     }
 
-    public void handlePaneFocusLost(FocusEvent e){
-        if (isLoading) return;
-        if (hexArea.getStyledDocument().getLength() == 0) return;
-        if (symbolArea.getStyledDocument().getLength() == 0) return;
-        if (e.getSource().equals(symbolArea)){
-            hexArea.getStyledDocument().setCharacterAttributes(previousHexDot, previousHexMark, basicIndication, false);
-//            previousHexDot = 0;
-//            previousHexMark = 0;
+    /**
+     * Shows the last full window with the caret on the last byte, whatever the length of the file.
+     */
+    private void followTail(){
+        long length = editBuffer.length();
+        long rows = (length + AREA_RAW_SYMBOLS_IN_LINE - 1) / AREA_RAW_SYMBOLS_IN_LINE;
+        currentFileLeftOffset = Math.max(0, rows - AREA_NUMBER_OF_LINES) * AREA_RAW_SYMBOLS_IN_LINE;
+        selectionAnchor = -1;
+        int lastByte = (int) Math.max(0, length - 1 - currentFileLeftOffset);
+        loadWindow(0, () -> placeCaret(lastByte * HEX_AREA_SYMBOLS_FOR_RAW));
+    }
+
+    /**
+     * Empties the panes once the last file is closed.
+     */
+    private void clearView(){
+        currentFileLeftOffset = 0;
+        currentFileRightOffset = 0;
+        hexDot = 0;
+        selectionAnchor = -1;
+        windowLength = 0;
+        hexArea.setLoading(false);
+        symbolArea.setLoading(false);
+        hexArea.setWindow(window, 0);
+        symbolArea.setWindow(window, 0);
+        showSelection();
+        fileScrollBar.setEnabled(false);
+        fileLine.setText("0");
+        for (Runnable listener: windowMoveListeners)
+            listener.run();
+    }
+
+    /**
+     * Opens the file in place: its pages are mapped on demand and only edits are kept in memory,
+     * so opening doesn't depend on the file size.
+     */
+    private PieceTable openEditBuffer(Path file) throws IOException {
+        return new PieceTable(new PagedFileReader(file, PagedFileReader.DEFAULT_PAGE_SIZE, pageCachePool));
+    }
+
+    /**
+     * Opens a file which is read next to the shown one, like the one it's compared with. Its pages count
+     * against the shared pool as the pages of a file in the background.
+     */
+    PieceTable openBackgroundBuffer(Path file) throws IOException {
+        PieceTable opened = openEditBuffer(file);
+        opened.getOriginal().setForeground(false);
+        return opened;
+    }
+
+    /**
+     * Reads the window from its byte {@code from} to the end on the view loader thread, then shows it and
+     * runs {@code then} on the event dispatch thread. A newer load cancels the pending one and input waits for it.
+     * A whole window which was read ahead is shown at once.
+     */
+    private void loadWindow(int from, Runnable then){
+        if (pendingLoad != null) pendingLoad.cancel(false);
+        pendingLoad = null;
+        PieceTable content = editBuffer;
+        if (content == null) return;
+        long fileOffset = currentFileLeftOffset + from;
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.VIEW_LOAD);
+        byte[] prefetched = from == 0 ? prefetcher.take(fileOffset) : null;
+        if (prefetched != null) {
+            showWindow(0, prefetched, then);
+            sample.end(prefetched.length);
+            return;
         }
-        else {
-            symbolArea.getStyledDocument().setCharacterAttributes(previousSymbolDot
-                    , previousSymbolMark, basicIndication, false);
-//            previousSymbolDot = 0;
-//            previousSymbolMark = 0;
+        if (from == 0) {
+            hexArea.setLoading(true);
+            symbolArea.setLoading(true);
         }
-    }
+        pendingLoad = viewLoader.submit(progress -> {
+            byte[] section = new byte[window.length - from];
+            return Arrays.copyOf(section, content.read(fileOffset, section, 0, section.length));
+        }, new IoExecutor.IoCallback<byte[]>(){
+            @Override
+            public void done(byte[] section){
+                if (content != editBuffer) return;
+                pendingLoad = null;
+                showWindow(from, section, then);
+                sample.end(section.length);
+            }
 
-    public void handleHexPaneScroll(AdjustmentEvent e){
-        if (isLoading) return;
-        if (hexArea.getStyledDocument().getLength() == 0) return;
-        if (symbolArea.getStyledDocument().getLength() == 0) return;
-        if (e.getValueIsAdjusting()) return;
+            @Override
+            public void failed(Exception ex){
+                pendingLoad = null;
+                hexArea.setLoading(false);
+                symbolArea.setLoading(false);
+                System.err.println("Some issue with file stream:\\n " + ex);
+            }
+        });
+    }
 
-        if (hexAreaScrollRowSize == 0) {
-            hexAreaScrollRowSize = hexAreaScrollPane.getVerticalScrollBar().getMaximum() / AREA_NUMBER_OF_LINES;
-            hexAreaScrollRowsInView = hexAreaScrollPane.getVerticalScrollBar().getVisibleAmount() / hexAreaScrollRowSize;
+    private void showWindow(int from, byte[] section, Runnable then){
+        int previousLength = windowLength;
+        System.arraycopy(section, 0, window, from, section.length);
+        windowLength = from + section.length;
+        if (from == 0) {
+            currentFileRightOffset = currentFileLeftOffset + windowLength;
+            hexArea.setLoading(false);
+            symbolArea.setLoading(false);
+            hexArea.setWindow(window, windowLength);
+            symbolArea.setWindow(window, windowLength);
+            syncFileScrollBar();
+            highlightDifferences();
+            showSelection();
+            for (Runnable listener: windowMoveListeners)
+                listener.run();
+        } else {
+            windowChanged(from, Math.max(previousLength, windowLength));
         }
+        if (then != null) then.run();
+    }
 
-        if(hexArea.hasFocus()) {
-            symbolAreaScrollPane.getVerticalScrollBar().removeAdjustmentListener(
-                    symbolAreaScrollPane.getVerticalScrollBar().getAdjustmentListeners()[0]);
-            symbolAreaScrollPane.getVerticalScrollBar().setValue(hexAreaScrollPane.getVerticalScrollBar().getValue());
-            if (symbolAreaScrollPane.getVerticalScrollBar().getAdjustmentListeners().length == 0)
-                symbolAreaScrollPane.getVerticalScrollBar().addAdjustmentListener(event -> handleSymbolPaneScroll(event));
+    /**
+     * Input is ignored while the window is being read, as it would act on the bytes shown before.
+     */
+    private boolean isInputBlocked(){
+        return editBuffer == null || pendingLoad != null;
+    }
+
+    /**
+     * Edits also wait for a save, which reads the edit buffer from start to end.
+     */
+    private boolean isEditBlocked(){
+        return isInputBlocked() || pendingFileTask != null;
+    }
+
+    public void handlePaneKeyPressed(KeyEvent e){
+        if (isInputBlocked()) return;
+        if ((e.getModifiersEx() & Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()) != 0) {
+            if (e.getKeyCode() == KeyEvent.VK_C) copySelection();
+            else if (e.getKeyCode() == KeyEvent.VK_V) paste(false);
+            else if (e.getKeyCode() == KeyEvent.VK_Z && e.isShiftDown()) redo();
+            else if (e.getKeyCode() == KeyEvent.VK_Z) undo();
+            else if (e.getKeyCode() == KeyEvent.VK_Y) redo();
+            else if (e.getKeyCode() == KeyEvent.VK_W) closeFile();
+            else return;
+            e.consume();
+            return;
         }
-        previousHexScrollValue = hexAreaScrollPane.getVerticalScrollBar().getValue();
-    }
-
-    public void handleSymbolPaneScroll(AdjustmentEvent e){
-        if(isLoading) return;
-        if(hexArea.getStyledDocument().getLength() == 0) return;
-        if(symbolArea.getStyledDocument().getLength() == 0) return;
-        if(symbolArea.hasFocus()) {
-            hexAreaScrollPane.getVerticalScrollBar().removeAdjustmentListener(
-                    hexAreaScrollPane.getVerticalScrollBar().getAdjustmentListeners()[0]);
-            hexAreaScrollPane.getVerticalScrollBar().setValue(symbolAreaScrollPane.getVerticalScrollBar().getValue());
-            if (hexAreaScrollPane.getVerticalScrollBar().getAdjustmentListeners().length == 0)
-                hexAreaScrollPane.getVerticalScrollBar().addAdjustmentListener(event -> handleHexPaneScroll(event));
+        int dot = hexDot;
+        int step = e.getSource() == hexArea ? 1 : HEX_AREA_SYMBOLS_FOR_RAW;
+        int pageRows = Math.max(1, hexAreaScrollPane.getViewport().getExtentSize().height / hexArea.getRowHeight());
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_LEFT:
+                dot = dot - dot % step - step;
+                break;
+            case KeyEvent.VK_RIGHT:
+                dot = dot - dot % step + step;
+                break;
+            case KeyEvent.VK_UP:
+                dot -= HEX_AREA_SYMBOLS_IN_LINE;
+                break;
+            case KeyEvent.VK_DOWN:
+                dot += HEX_AREA_SYMBOLS_IN_LINE;
+                break;
+            case KeyEvent.VK_PAGE_UP:
+                dot -= pageRows * HEX_AREA_SYMBOLS_IN_LINE;
+                break;
+            case KeyEvent.VK_PAGE_DOWN:
+                dot += pageRows * HEX_AREA_SYMBOLS_IN_LINE;
+                break;
+            case KeyEvent.VK_HOME:
+                dot -= dot % HEX_AREA_SYMBOLS_IN_LINE;
+                break;
+            case KeyEvent.VK_END:
+                dot += HEX_AREA_SYMBOLS_IN_LINE - 1 - dot % HEX_AREA_SYMBOLS_IN_LINE;
+                break;
+            case KeyEvent.VK_DELETE:
+                if (selectionAnchor >= 0) deleteSelection();
+                else if (e.getSource() == hexArea && !isEditBlocked()) editByteRemoval(dot / HEX_AREA_SYMBOLS_FOR_RAW);
+                e.consume();
+                return;
+            case KeyEvent.VK_BACK_SPACE:
+                if (selectionAnchor >= 0) deleteSelection();
+                else if (e.getSource() == hexArea && dot > 0 && !isEditBlocked()) editByteRemoval((dot - 1) / HEX_AREA_SYMBOLS_FOR_RAW);
+                e.consume();
+                return;
+            case KeyEvent.VK_ESCAPE:
+                selectionAnchor = -1;
+                showSelection();
+                e.consume();
+                return;
+            default:
+                return;
         }
-        previousSymbolScrollValue = symbolAreaScrollPane.getVerticalScrollBar().getValue();
+        e.consume();
+        //shift extends the selection from where the caret was, any other move drops it
+        if (!e.isShiftDown()) selectionAnchor = -1;
+        else if (selectionAnchor < 0) selectionAnchor = getCaretOffset();
+        moveCaret(dot);
     }
 
-    void changeFileOffset(int linesNumber){
-        currentFileLeftOffset = currentFileLeftOffset + linesNumber * AREA_RAW_SYMBOLS_IN_LINE > 0
-                ? currentFileLeftOffset + linesNumber * AREA_RAW_SYMBOLS_IN_LINE
-                : 0;
+    public void handlePaneKeyTyped(KeyEvent e){
+        if (isEditBlocked() || e.getSource() != hexArea) return;
+        int digit = ByteFormatter.hexDigit(e.getKeyChar());
+        if (digit < 0) return;
+        e.consume();
+        editByteInsertion(digit);
+    }
+
+    public void handlePaneMousePressed(MouseEvent e){
+        if (isInputBlocked()) return;
+        ByteAreaView source = (ByteAreaView) e.getSource();
+        source.requestFocusInWindow();
+        int position = source.positionAt(e.getPoint());
+        if (!e.isShiftDown()) selectionAnchor = -1;
+        else if (selectionAnchor < 0) selectionAnchor = getCaretOffset();
+        moveCaret(source == hexArea ? position : position * HEX_AREA_SYMBOLS_FOR_RAW);
+    }
+
+    /**
+     * Dragging selects from the byte where the mouse was pressed.
+     */
+    public void handlePaneMouseDragged(MouseEvent e){
+        if (isInputBlocked()) return;
+        ByteAreaView source = (ByteAreaView) e.getSource();
+        int position = source.positionAt(e.getPoint());
+        int dot = source == hexArea ? position : position * HEX_AREA_SYMBOLS_FOR_RAW;
+        if (dot / HEX_AREA_SYMBOLS_FOR_RAW == hexDot / HEX_AREA_SYMBOLS_FOR_RAW) return;
+        if (selectionAnchor < 0) selectionAnchor = getCaretOffset();
+        moveCaret(dot);
     }
 
-    public void handleDocumentChange(DocumentEvent e){
-        isLoading = true;
-        if (e.getType() == DocumentEvent.EventType.INSERT) {
-            tempFileByteInsertion(e);
+    /**
+     * Places the caret at a position of the hex layout. Reaching the first or the last row of the window
+     * moves the window so that the caret stays one row away from its edge.
+     */
+    private void moveCaret(int dot){
+        int rows = 0;
+        if (Math.floorDiv(dot, HEX_AREA_SYMBOLS_IN_LINE) >= AREA_NUMBER_OF_LINES - 1
+                && currentFileLeftOffset < (editBuffer.length() - AREA_NUMBER_OF_LINES * AREA_RAW_SYMBOLS_IN_LINE)){
+            rows = AREA_NUMBER_OF_LINES - 2;
+        } else if (Math.floorDiv(dot, HEX_AREA_SYMBOLS_IN_LINE) <= 0 && currentFileLeftOffset > 0){
+            rows = -(AREA_NUMBER_OF_LINES - 2);
         }
-        if (e.getType() == DocumentEvent.EventType.REMOVE) {
-            tempFileByteRemoval(e);
+        if (rows == 0) {
+            placeCaret(dot);
+            return;
         }
-        int dot = hexArea.getCaretPosition();
-        fileScreenMove(0);
-        isLoading = false;
-        hexArea.setCaretPosition(dot);
+        long previousOffset = currentFileLeftOffset;
+        changeFileOffset(rows);
+        int shiftedDot = dot - (int) ((currentFileLeftOffset - previousOffset) / AREA_RAW_SYMBOLS_IN_LINE) * HEX_AREA_SYMBOLS_IN_LINE;
+        loadWindow(0, () -> placeCaret(shiftedDot));
+        prefetcher.windowMoved(previousOffset, currentFileLeftOffset);
     }
 
-    private void tempFileByteInsertion(DocumentEvent e)  {
+    private void placeCaret(int dot){
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.CARET_SYNC);
+        hexDot = Math.max(0, Math.min(dot, Math.max(0, windowLength * HEX_AREA_SYMBOLS_FOR_RAW - 1)));
+        int caretByte = hexDot / HEX_AREA_SYMBOLS_FOR_RAW;
+        hexArea.setCaret(caretByte, hexDot % HEX_AREA_SYMBOLS_FOR_RAW);
+        symbolArea.setCaret(caretByte, 0);
+        hexArea.scrollRectToVisible(hexArea.cellBounds(caretByte));
+        symbolArea.scrollRectToVisible(symbolArea.cellBounds(caretByte));
+        fileLine.setText(String.valueOf((currentFileLeftOffset + caretByte) / AREA_RAW_SYMBOLS_IN_LINE));
+        showSelection();
+        sample.end(0);
+    }
 
-        if (tempFile == null) return;
+    private void showSelection(){
+        long[] selection = getSelection();
+        int from = 0;
+        int to = 0;
+        if (selection != null) {
+            from = (int) Math.max(0, Math.min(windowLength, selection[0] - currentFileLeftOffset));
+            to = (int) Math.max(0, Math.min(windowLength, selection[1] - currentFileLeftOffset));
+        }
+        hexArea.setSelection(from, to);
+        symbolArea.setSelection(from, to);
+    }
 
-        try {
-            int fileOffset = currentFileLeftOffset + e.getOffset() / HEX_AREA_SYMBOLS_FOR_RAW;
-            StringBuffer symbol = new StringBuffer();
-            int changeByte = 1;
-
-            //synchronizing position of a new symbol in hexDocument and position of hex representation of byte
-            switch (e.getOffset() % HEX_AREA_SYMBOLS_FOR_RAW){
-                case 0:
-//                    offset = e.getOffset();
-                    symbol.append(e.getDocument().getText(e.getOffset(), 3));
-                    symbol.delete(1, 2);
-                    break;
-                case 1:
-                    symbol.append(e.getDocument().getText(e.getOffset() - 1, 2));
-                    break;
-                case 2:
-                    symbol.append(e.getDocument().getText(e.getOffset(), 1));
-                    symbol.append("0");
-                    ++fileOffset;
-                    changeByte = 0;
-                    break;
-            }
+    private void fillSelection(){
+        long[] selection = getSelection();
+        if (selection == null || isEditBlocked()) return;
+        byte[] pattern = RangeDialog.askPattern(getMainFrame(), "Fill selection");
+        if (pattern == null || isEditBlocked()) return;
+        long length = selection[1] - selection[0];
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.EDIT);
+        editBuffer.fill(selection[0], length, pattern);
+        sample.end(length);
+        rangeEdited(selection[0]);
+    }
 
-            byte symbolCode = (byte) Integer.parseInt(symbol.toString(), 16);
-            byte[] data = {symbolCode};
-            ByteBuffer newData = ByteBuffer.wrap(data);
+    private void insertBytes(){
+        if (isEditBlocked()) return;
+        RangeDialog.Insertion insertion = RangeDialog.askInsertion(getMainFrame());
+        if (insertion == null || isEditBlocked()) return;
+        long offset = Math.min(getCaretOffset(), editBuffer.length());
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.EDIT);
+        editBuffer.insertRepeated(offset, insertion.count, insertion.pattern);
+        sample.end(insertion.count);
+        rangeEdited(offset);
+    }
 
-            Path oldTempFile = tempFile;
+    private void deleteSelection(){
+        long[] selection = getSelection();
+        if (selection == null || isEditBlocked()) return;
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.EDIT);
+        editBuffer.delete(selection[0], selection[1] - selection[0]);
+        sample.end(selection[1] - selection[0]);
+        rangeEdited(selection[0]);
+    }
 
-            Path newTempFile = Files.createTempFile(null, NEW_FILE_POSTFIX + TEMP_FILE_POSTFIX);
-            newTempFile.toFile().deleteOnExit();
-            newTempFile.toFile().setWritable(true);
+    /**
+     * Reads the file on the file task thread, then inserts it at the caret as one edit.
+     */
+    private void insertFile(Path path){
+        if (isEditBlocked()) return;
+        statusMessage.setText("Reading " + path.getFileName() + "...");
+        PieceTable content = editBuffer;
+        //the file goes to the add buffer chunk by chunk, the edit only points there
+        pendingFileTask = fileTasks.submit(progress -> {
+            try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+                return content.appendAdded(source);
+            }
+        }, new IoExecutor.IoCallback<long[]>(){
+            @Override
+            public void done(long[] pieces){
+                pendingFileTask = null;
+                statusMessage.setText(String.format("Inserted %d bytes", PieceTable.piecesLength(pieces)));
+                spliceAtCaret(pieces, null);
+            }
 
-            copyFilePartially(oldTempFile, newTempFile, 0, fileOffset, newData);
-            copyFilePartially(oldTempFile, newTempFile, fileOffset + changeByte, oldTempFile.toFile().length());
+            @Override
+            public void failed(Exception ex){
+                pendingFileTask = null;
+                statusMessage.setText("Can't insert " + path.getFileName());
+                System.err.println(ex);
+            }
+        });
+    }
 
-            tempFile = newTempFile;
-            Files.deleteIfExists(oldTempFile);
+    /**
+     * Puts the selection on the clipboard as hex codes.
+     */
+    private void copySelection(){
+        long[] selection = getSelection();
+        if (selection == null || pendingFileTask != null) return;
+        long length = selection[1] - selection[0];
+        if (length > COPY_LIMIT) {
+            statusMessage.setText(String.format("Can't copy more than %d bytes", COPY_LIMIT));
+            return;
+        }
+        PieceTable content = editBuffer;
+        pendingFileTask = fileTasks.submit(progress -> {
+            byte[] data = new byte[(int) length];
+            int read = content.read(selection[0], data, 0, data.length);
+            char[] text = new char[read * HEX_AREA_SYMBOLS_FOR_RAW];
+            int textLength = ByteFormatter.formatHexRow(data, 0, read, text, 0);
+            return new String(text, 0, Math.max(0, textLength - 1));
+        }, new IoExecutor.IoCallback<String>(){
+            @Override
+            public void done(String text){
+                pendingFileTask = null;
+                Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text), null);
+                copiedText = text;
+                statusMessage.setText(String.format("Copied %d bytes", length));
+            }
 
-        } catch (IOException ex){
-            ex.printStackTrace();
-        } catch (BadLocationException ex) {
-            ex.printStackTrace();
+            @Override
+            public void failed(Exception ex){
+                pendingFileTask = null;
+                System.err.println(ex);
+            }
+        });
+    }
+
+    /**
+     * Pastes clipboard text over the selection or at the caret as one edit. Bytes copied from the hex pane,
+     * or any hex codes when asked for, are pasted as their bytes, other text as its UTF-8 bytes.
+     */
+    private void paste(boolean asHex){
+        if (isEditBlocked()) return;
+        String text;
+        try {
+            text = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+        } catch (Exception ex) {
+            System.err.println(ex);
+            return;
+        }
+        if (text == null || text.isEmpty()) {
+            statusMessage.setText("Nothing to paste");
+            return;
+        }
+        if (asHex) {
+            try {
+                ByteFormatter.parseHexBytes(text);
+            } catch (IllegalArgumentException ex) {
+                statusMessage.setText(ex.getMessage());
+                return;
+            }
         }
+        boolean hex = asHex || text.equals(copiedText) || ByteFormatter.isHexCopy(text);
+        pendingFileTask = fileTasks.submit(progress -> hex ? ByteFormatter.parseHexBytes(text)
+                : text.getBytes(StandardCharsets.UTF_8), new IoExecutor.IoCallback<byte[]>(){
+            @Override
+            public void done(byte[] data){
+                pendingFileTask = null;
+                statusMessage.setText(String.format("Pasted %d bytes", data.length));
+                spliceAtCaret(data);
+            }
+
+            @Override
+            public void failed(Exception ex){
+                pendingFileTask = null;
+                System.err.println(ex);
+            }
+        });
     }
 
-    private void tempFileByteRemoval(DocumentEvent e)  {
+    /**
+     * Replaces the selection by the data, or inserts it at the caret without a selection.
+     */
+    private void spliceAtCaret(byte[] data){
+        spliceAtCaret(null, data);
+    }
 
-        if (tempFile == null) return;
+    /**
+     * Splices pieces already in the add buffer when they're given, the data otherwise.
+     */
+    private void spliceAtCaret(long[] pieces, byte[] data){
+        if (isEditBlocked()) return;
+        long[] selection = getSelection();
+        long offset = selection != null ? selection[0] : Math.min(getCaretOffset(), editBuffer.length());
+        long removed = selection != null ? selection[1] - selection[0] : 0;
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.EDIT);
+        if (pieces != null) editBuffer.splice(offset, removed, pieces);
+        else editBuffer.splice(offset, removed, data);
+        sample.end(pieces != null ? PieceTable.piecesLength(pieces) : data.length);
+        rangeEdited(offset);
+    }
 
-        try {
-            int fileOffset = e.getOffset();
+    private void undo(){
+        if (isEditBlocked()) return;
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.EDIT);
+        long offset = openFile.journal.undo();
+        sample.end(0);
+        if (offset >= 0) rangeEdited(offset);
+        else statusMessage.setText("Nothing to undo");
+    }
 
-            fileOffset = currentFileLeftOffset + fileOffset / HEX_AREA_SYMBOLS_FOR_RAW;
+    private void redo(){
+        if (isEditBlocked()) return;
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.EDIT);
+        long offset = openFile.journal.redo();
+        sample.end(0);
+        if (offset >= 0) rangeEdited(offset);
+        else statusMessage.setText("Nothing to redo");
+    }
 
-            Path oldTempFile = tempFile;
+    /**
+     * Drops the selection and reads the window again after an edit of a whole range, with the caret at the offset.
+     */
+    private void rangeEdited(long offset){
+        selectionAnchor = -1;
+        if (offset < currentFileLeftOffset || offset >= currentFileLeftOffset + window.length) {
+            goToOffset(offset);
+            return;
+        }
+        loadWindow(0, () -> placeCaret((int) (offset - currentFileLeftOffset) * HEX_AREA_SYMBOLS_FOR_RAW));
+    }
 
-            Path newTempFile = Files.createTempFile(null, NEW_FILE_POSTFIX + TEMP_FILE_POSTFIX);
-            newTempFile.toFile().deleteOnExit();
-            newTempFile.toFile().setWritable(true);
+    /**
+     * Shows how long the panes took to paint last time and the I/O rate since the previous update.
+     */
+    private void updateMetricsLine(){
+        long bytes = metrics.getBytesRead() + metrics.getBytesWritten();
+        double megabytesPerSecond = (bytes - overlayBytes) / 1e6 * 1000 / METRICS_OVERLAY_PERIOD_MS;
+        overlayBytes = bytes;
+        metricsLine.setText(String.format("Render %.2f ms, I/O %.1f MB/s"
+                , (hexArea.getLastPaintNanos() + symbolArea.getLastPaintNanos()) / 1e6, megabytesPerSecond));
+    }
 
-            copyFilePartially(oldTempFile, newTempFile, 0, fileOffset);
-            copyFilePartially(oldTempFile, newTempFile, fileOffset + 1, oldTempFile.toFile().length());
+    /**
+     * Moves the window straight to the row, keeping the last window full. The caret keeps its place in the window.
+     */
+    private void scrollToRow(long row){
+        if (editBuffer == null) return;
+        long lastRow = Math.max(0, fileScrollModel.getRows() - AREA_NUMBER_OF_LINES);
+        long offset = Math.min(row, lastRow) * AREA_RAW_SYMBOLS_IN_LINE;
+        if (offset == currentFileLeftOffset) return;
+        long previousOffset = currentFileLeftOffset;
+        currentFileLeftOffset = offset;
+        loadWindow(0, () -> placeCaret(hexDot));
+        prefetcher.windowMoved(previousOffset, currentFileLeftOffset);
+    }
 
-            tempFile = newTempFile;
-            Files.deleteIfExists(oldTempFile);
+    /**
+     * Shows the window holding the offset with one row above it, like the caret moving over the window edge does.
+     */
+    void goToOffset(long offset){
+        if (editBuffer == null) return;
+        currentFileLeftOffset = Math.max(0, (offset / AREA_RAW_SYMBOLS_IN_LINE - 1) * AREA_RAW_SYMBOLS_IN_LINE);
+        //only the target window is read, so the jump costs the same wherever it lands
+        loadWindow(0, () -> {
+            placeCaret((int) (offset - currentFileLeftOffset) * HEX_AREA_SYMBOLS_FOR_RAW);
+            hexArea.requestFocusInWindow();
+        });
+    }
 
-        } catch (IOException ex){
-            ex.printStackTrace();
-        }
+    public void handlePaneFocusLost(FocusEvent e){
+        hexArea.repaint();
+        symbolArea.repaint();
     }
 
-    private void copyFilePartially(Path source, Path target, long start, long end){
-        copyFilePartially(source, target, start, end, null);
+    void changeFileOffset(int linesNumber){
+        currentFileLeftOffset = FileScrollModel.moveRows(currentFileLeftOffset, linesNumber);
     }
 
-    private void copyFilePartially(Path source, Path target, long start, long end, ByteBuffer newData){
-        try {
-            SeekableByteChannel sourceByteChannel = Files.newByteChannel(source, StandardOpenOption.READ);
-            SeekableByteChannel targetByteChannel = Files.newByteChannel(target, StandardOpenOption.APPEND);
-            ByteBuffer buffer = ByteBuffer.allocate((int)(end - start)); //for test purpose
-            sourceByteChannel = sourceByteChannel.position(start);
-            if (sourceByteChannel.read(buffer) > 0){
-                buffer.position(0);
-                while (buffer.hasRemaining()){
-                    targetByteChannel.write(buffer);
+    private void editByteInsertion(int digit){
+
+        if (editBuffer == null) return;
+
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.EDIT);
+        int windowByte = hexDot / HEX_AREA_SYMBOLS_FOR_RAW;
+        int dot = hexDot + 1;
+        byte[] data = new byte[1];
+
+        //a digit typed over one of the two hex digits changes it, typed into the gap after them adds a new byte
+        switch (windowByte < windowLength ? hexDot % HEX_AREA_SYMBOLS_FOR_RAW : HEX_AREA_SYMBOLS_FOR_RAW - 1){
+            case 0:
+                data[0] = (byte) (digit << 4 | window[windowByte] & 0x0f);
+                editBuffer.replace(currentFileLeftOffset + windowByte, data);
+                window[windowByte] = data[0];
+                windowChanged(windowByte, windowByte + 1);
+                break;
+            case 1:
+                data[0] = (byte) (window[windowByte] & 0xf0 | digit);
+                editBuffer.replace(currentFileLeftOffset + windowByte, data);
+                window[windowByte] = data[0];
+                windowChanged(windowByte, windowByte + 1);
+                break;
+            case 2:
+                data[0] = (byte) (digit << 4);
+                if (windowByte < windowLength) {
+                    ++windowByte;
+                    dot = windowByte * HEX_AREA_SYMBOLS_FOR_RAW + 1;
                 }
-            }
-            if (newData != null)
-                while (newData.hasRemaining()){
-                    targetByteChannel.write(newData);
-                }
-            sourceByteChannel.close();
-            targetByteChannel.close();
-        } catch (IOException ex){
-            System.err.println(ex);
+                editBuffer.insert(currentFileLeftOffset + windowByte, data);
+                patchInsertion(windowByte, data[0]);
+                break;
         }
+        sample.end(1);
+        moveCaret(dot);
+    }
+
+    private void editByteRemoval(int windowByte){
+
+        if (editBuffer == null || windowByte >= windowLength) return;
+
+        EditorMetrics.Sample sample = metrics.begin(EditorMetrics.Operation.EDIT);
+        editBuffer.delete(currentFileLeftOffset + windowByte, 1);
+        patchRemoval(windowByte);
+        sample.end(1);
+        moveCaret(windowByte * HEX_AREA_SYMBOLS_FOR_RAW);
+    }
+
+    /**
+     * Shifts the rest of the window after a byte was inserted into the file at the window position.
+     * Only an insertion past the end of a full window needs to reload it.
+     */
+    private void patchInsertion(int windowByte, byte value){
+        //past the end of a full window, moving the caret to the new byte loads the next window
+        if (windowByte >= window.length) return;
+        int shifted = Math.min(windowLength, window.length - 1) - windowByte;
+        if (shifted > 0) System.arraycopy(window, windowByte, window, windowByte + 1, shifted);
+        window[windowByte] = value;
+        windowLength = Math.min(windowLength + 1, window.length);
+        windowChanged(windowByte, windowLength);
+    }
+
+    /**
+     * Shifts the rest of the window after the byte at the window position was removed from the file,
+     * then reads only the byte which moves into the window from behind it.
+     */
+    private void patchRemoval(int windowByte){
+        int previousLength = windowLength;
+        System.arraycopy(window, windowByte + 1, window, windowByte, windowLength - windowByte - 1);
+        --windowLength;
+        windowChanged(windowByte, previousLength);
+        if (previousLength == window.length) loadWindow(windowLength, null);
+    }
+
+    private void windowChanged(int from, int to){
+        currentFileRightOffset = currentFileLeftOffset + windowLength;
+        hexArea.bytesChanged(windowLength, from, to);
+        symbolArea.bytesChanged(windowLength, from, to);
+        syncFileScrollBar();
+    }
+
+    private void highlightDifferences(){
+        boolean marked = differences != null && differences.mark(currentFileLeftOffset, windowLength, differenceMask);
+        hexArea.setHighlights(marked ? differenceMask : null);
+        symbolArea.setHighlights(marked ? differenceMask : null);
+    }
+
+    /**
+     * Puts the file scrollbar on the window row, without moving the window again.
+     */
+    private void syncFileScrollBar(){
+        fileScrollModel.setRows((editBuffer.length() + AREA_RAW_SYMBOLS_IN_LINE - 1) / AREA_RAW_SYMBOLS_IN_LINE);
+        fileScrollBarSyncing = true;
+        fileScrollBar.setValues(fileScrollModel.toValue(currentFileLeftOffset / AREA_RAW_SYMBOLS_IN_LINE)
+                , fileScrollModel.extent(AREA_NUMBER_OF_LINES), 0, fileScrollModel.maximum(AREA_NUMBER_OF_LINES));
+        fileScrollBar.setUnitIncrement(1);
+        fileScrollBar.setBlockIncrement(fileScrollModel.extent(AREA_NUMBER_OF_LINES - 2));
+        fileScrollBar.setEnabled(true);
+        fileScrollBarSyncing = false;
     }
-}
\ No newline at end of file
+}
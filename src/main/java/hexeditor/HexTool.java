@@ -0,0 +1,236 @@
+package hexeditor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static hexeditor.HexEditor.AREA_RAW_SYMBOLS_IN_LINE;
+import static hexeditor.HexEditor.HEX_AREA_SYMBOLS_IN_LINE;
+
+/**
+ * Command line tool for scripted patching, dumping and searching on the editor's engine, without the GUI.
+ * Nothing here touches AWT or Swing, so it runs on headless machines and starts as fast as the JVM does.
+ * Files are read through the paged reader and written by the file saver, so memory doesn't grow with their size.
+ * <p>
+ * A patch script has one command per line, offsets and lengths in decimal or with a "0x" prefix:
+ * <pre>
+ * # comment
+ * 0x10 de ad be ef          overwrite bytes at the offset
+ * insert 0x20 00 01         insert bytes at the offset
+ * delete 0x30 16            delete a range
+ * fill 0x40 0x1000 ff       overwrite a range with a repeated pattern
+ * </pre>
+ */
+public class HexTool {
+    private static final int DUMP_CHUNK_SIZE = 64 * 1024;
+    //hits are printed in order, so every segment is searched in parallel and its hits sorted
+    private static final long SEARCH_SEGMENT_SIZE = 16L * PatternSearch.CHUNK_SIZE;
+    private static final String USAGE = String.join(System.lineSeparator()
+            , "Usage:"
+            , "  hextool patch <file> <script> [-o <output>]   apply a patch script, '-' reads it from stdin"
+            , "  hextool dump <file> [<from> [<to>]]           print a range as hex and symbols"
+            , "  hextool search <file> <hex pattern>           print offsets of matches, ?? matches any byte"
+            , "  hextool search --text <file> <text>           print offsets of UTF-8 text");
+
+    private HexTool(){
+    }
+
+    public static void main(String[] args){
+        if (args.length < 2) usage();
+        try {
+            switch (args[0]) {
+                case "patch":
+                    patch(args);
+                    break;
+                case "dump":
+                    dump(args);
+                    break;
+                case "search":
+                    search(args);
+                    break;
+                default:
+                    usage();
+            }
+        } catch (IOException | RuntimeException ex) {
+            System.err.println(ex);
+            System.exit(1);
+        }
+    }
+
+    private static void usage(){
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    private static void patch(String[] args) throws IOException {
+        if (args.length != 3 && !(args.length == 5 && args[3].equals("-o"))) usage();
+        Path file = Paths.get(args[1]);
+        Path target = args.length == 5 ? Paths.get(args[4]) : file;
+        try (PieceTable content = new PieceTable(file)) {
+            int commands;
+            if (args[2].equals("-")) {
+                BufferedReader script = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                commands = applyScript(content, script);
+            } else {
+                try (BufferedReader script = Files.newBufferedReader(Paths.get(args[2]), StandardCharsets.UTF_8)) {
+                    commands = applyScript(content, script);
+                }
+            }
+            long written = new FileSaver(content, file).save(target, (done, total) -> {});
+            System.err.println(String.format("%d commands applied, %d bytes written", commands, written));
+        }
+    }
+
+    private static void dump(String[] args) throws IOException {
+        if (args.length > 4) usage();
+        try (PieceTable content = new PieceTable(Paths.get(args[1]))) {
+            long from = args.length > 2 ? ByteFormatter.parseOffset(args[2]) : 0;
+            long to = args.length > 3 ? ByteFormatter.parseOffset(args[3]) : content.length();
+            Writer out = stdout();
+            dump(content, from, to, out);
+            out.flush();
+        }
+    }
+
+    private static void search(String[] args) throws IOException {
+        boolean text = args[1].equals("--text");
+        if (args.length != (text ? 4 : 3)) usage();
+        String pattern = args[args.length - 1];
+        try (PieceTable content = new PieceTable(Paths.get(args[args.length - 2]))) {
+            Writer out = stdout();
+            search(content, text ? BytePattern.fromText(pattern, StandardCharsets.UTF_8) : BytePattern.fromHex(pattern)
+                    , out);
+            out.flush();
+        }
+    }
+
+    private static Writer stdout(){
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Applies the commands of the script one by one and returns their count. A malformed line stops
+     * the script with an exception naming the line, leaving the content as the previous lines made it.
+     */
+    static int applyScript(PieceTable content, BufferedReader script) throws IOException {
+        int commands = 0;
+        int lineNumber = 0;
+        for (String line = script.readLine(); line != null; line = script.readLine()) {
+            ++lineNumber;
+            String command = line.trim();
+            if (command.isEmpty() || command.startsWith("#")) continue;
+            try {
+                applyCommand(content, command.split("\\s+"));
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + ex.getMessage(), ex);
+            }
+            ++commands;
+        }
+        return commands;
+    }
+
+    private static void applyCommand(PieceTable content, String[] words){
+        switch (words[0]) {
+            case "insert":
+                checkArguments(words, 3);
+                content.insert(ByteFormatter.parseOffset(words[1]), parseBytes(words, 2));
+                break;
+            case "delete":
+                checkArguments(words, 3);
+                long offset = ByteFormatter.parseOffset(words[1]);
+                long length = ByteFormatter.parseOffset(words[2]);
+                if (offset + length > content.length())
+                    throw new IndexOutOfBoundsException("Range runs past content length " + content.length());
+                content.delete(offset, length);
+                break;
+            case "fill":
+                checkArguments(words, 4);
+                content.fill(ByteFormatter.parseOffset(words[1]), ByteFormatter.parseOffset(words[2])
+                        , parseBytes(words, 3));
+                break;
+            default:
+                checkArguments(words, 2);
+                content.replace(ByteFormatter.parseOffset(words[0]), parseBytes(words, 1));
+        }
+    }
+
+    private static void checkArguments(String[] words, int minimum){
+        if (words.length < minimum) throw new IllegalArgumentException("Too few arguments for " + words[0]);
+    }
+
+    private static byte[] parseBytes(String[] words, int from){
+        return ByteFormatter.parseHexBytes(String.join("", Arrays.asList(words).subList(from, words.length)));
+    }
+
+    /**
+     * Writes [from, to) in rows like the panes show them: offset, hex codes and symbols.
+     */
+    static void dump(PieceTable content, long from, long to, Writer out) throws IOException {
+        long end = Math.min(to, content.length());
+        //offsets of huge files take all their digits, of the rest eight
+        int offsetDigits = end > 0xffffffffL ? 16 : 8;
+        byte[] chunk = new byte[DUMP_CHUNK_SIZE];
+        char[] row = new char[offsetDigits + 2 + HEX_AREA_SYMBOLS_IN_LINE + 1
+                + AREA_RAW_SYMBOLS_IN_LINE * ByteFormatter.SYMBOL_MAX_WIDTH + 1];
+        for (long position = Math.max(0, from); position < end; ) {
+            int read = content.read(position, chunk, 0, (int) Math.min(chunk.length, end - position));
+            if (read <= 0) break;
+            for (int rowStart = 0; rowStart < read; rowStart += AREA_RAW_SYMBOLS_IN_LINE) {
+                int rowEnd = Math.min(read, rowStart + AREA_RAW_SYMBOLS_IN_LINE);
+                int length = formatOffset(position + rowStart, offsetDigits, row);
+                row[length++] = ' ';
+                row[length++] = ' ';
+                int hexEnd = length + HEX_AREA_SYMBOLS_IN_LINE;
+                length += ByteFormatter.formatHexRow(chunk, rowStart, rowEnd, row, length);
+                Arrays.fill(row, length, hexEnd, ' ');
+                length = hexEnd;
+                row[length++] = ' ';
+                for (int i = rowStart; i < rowEnd; ++i)
+                    length += ByteFormatter.formatSymbol(chunk[i], row, length);
+                row[length++] = '\n';
+                out.write(row, 0, length);
+            }
+            position += read;
+        }
+    }
+
+    private static int formatOffset(long offset, int digits, char[] target){
+        for (int i = digits / 2 - 1, shift = 0; i >= 0; --i, shift += 8)
+            ByteFormatter.formatHex((int) (offset >>> shift), target, i * 2);
+        return digits;
+    }
+
+    /**
+     * Writes the offsets of all matches in hex, one per line in increasing order, and returns their count.
+     */
+    static long search(PieceTable content, BytePattern pattern, Writer out) throws IOException {
+        PatternSearch search = new PatternSearch(content, pattern);
+        long length = content.length();
+        long count = 0;
+        long[][] hits = {new long[16]};
+        int[] hitCount = {0};
+        for (long start = 0; start < length; start += SEARCH_SEGMENT_SIZE) {
+            hitCount[0] = 0;
+            search.findAll(start, Math.min(length, start + SEARCH_SEGMENT_SIZE), offset -> {
+                synchronized (hits) {
+                    if (hitCount[0] == hits[0].length) hits[0] = Arrays.copyOf(hits[0], hitCount[0] * 2);
+                    hits[0][hitCount[0]++] = offset;
+                }
+            });
+            Arrays.sort(hits[0], 0, hitCount[0]);
+            for (int i = 0; i < hitCount[0]; ++i) {
+                out.write(String.format("0x%X\n", hits[0][i]));
+            }
+            count += hitCount[0];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,97 @@
+package hexeditor;
+
+import javax.swing.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs file I/O of the editor on a background thread. Results, failures and progress are handed
+ * to the event dispatch thread, which only applies them.
+ * <p>
+ * Cancelling never interrupts the thread, as an interrupt closes the file channel being read.
+ * A cancelled task stops at its next progress report and its callback isn't run.
+ */
+public class IoExecutor {
+    private static final int PROGRESS_STEPS = 1000;
+
+    public interface IoTask<T> {
+        T run(ProgressListener progress) throws Exception;
+    }
+
+    public interface IoCallback<T> {
+        void done(T result);
+
+        default void failed(Exception ex){
+            System.err.println(ex);
+        }
+    }
+
+    private final ExecutorService executor;
+
+    public IoExecutor(String threadName){
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> Future<T> submit(IoTask<T> task, IoCallback<T> callback){
+        return submit(task, callback, null);
+    }
+
+    public <T> Future<T> submit(IoTask<T> task, IoCallback<T> callback, ProgressListener listener){
+        ProgressReport progress = new ProgressReport(listener);
+        FutureTask<T> future = new FutureTask<T>(() -> task.run(progress)){
+            @Override
+            protected void done(){
+                if (isCancelled()) return;
+                SwingUtilities.invokeLater(() -> {
+                    if (isCancelled()) return;
+                    try {
+                        callback.done(get());
+                    } catch (ExecutionException ex) {
+                        if (!(ex.getCause() instanceof CancellationException))
+                            callback.failed(ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+                    } catch (InterruptedException ex) {
+                        callback.failed(ex);
+                    }
+                });
+            }
+        };
+        progress.future = future;
+        executor.execute(future);
+        return future;
+    }
+
+    public void shutdown(){
+        executor.shutdown();
+    }
+
+    /**
+     * Passes progress to the event dispatch thread only when it changed by a visible step.
+     */
+    private static class ProgressReport implements ProgressListener {
+        private final ProgressListener listener;
+        private volatile Future<?> future;
+        private long lastStep = -1;
+
+        ProgressReport(ProgressListener listener){
+            this.listener = listener;
+        }
+
+        @Override
+        public void progress(long done, long total){
+            if (future != null && future.isCancelled()) throw new CancellationException();
+            if (listener == null) return;
+            long step = total == 0 ? PROGRESS_STEPS : done * PROGRESS_STEPS / total;
+            if (step == lastStep) return;
+            lastStep = step;
+            SwingUtilities.invokeLater(() -> listener.progress(done, total));
+        }
+    }
+}
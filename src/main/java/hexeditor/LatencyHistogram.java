@@ -0,0 +1,87 @@
+package hexeditor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in buckets of powers of two nanoseconds. Recording is lock free and constant time,
+ * percentiles are reported as the upper bound of their bucket, so they are exact to a factor of two.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+    private static final double NANOS_IN_MICRO = 1000.0;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos){
+        long latency = Math.max(0, nanos);
+        //bucket i holds latencies in [2^(i-1), 2^i), bucket 0 only zero
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(latency));
+        count.incrementAndGet();
+        total.addAndGet(latency);
+        max.accumulateAndGet(latency, Math::max);
+    }
+
+    public Summary summary(){
+        long[] counts = new long[BUCKETS];
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] = buckets.get(i);
+            recorded += counts[i];
+        }
+        return new Summary(recorded, recorded == 0 ? 0 : total.get() / NANOS_IN_MICRO / count.get()
+                , percentile(counts, recorded, 0.5), percentile(counts, recorded, 0.99), max.get() / NANOS_IN_MICRO);
+    }
+
+    private static double percentile(long[] counts, long recorded, double fraction){
+        long rank = Math.max(1, (long) Math.ceil(recorded * fraction));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= rank) return (i == 0 ? 0 : Math.scalb(1.0, i)) / NANOS_IN_MICRO;
+        }
+        return 0;
+    }
+
+    /**
+     * Latencies in microseconds, readable through JMX as composite data.
+     */
+    public static class Summary {
+        private final long count;
+        private final double meanMicros;
+        private final double p50Micros;
+        private final double p99Micros;
+        private final double maxMicros;
+
+        Summary(long count, double meanMicros, double p50Micros, double p99Micros, double maxMicros){
+            this.count = count;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount(){
+            return count;
+        }
+
+        public double getMeanMicros(){
+            return meanMicros;
+        }
+
+        public double getP50Micros(){
+            return p50Micros;
+        }
+
+        public double getP99Micros(){
+            return p99Micros;
+        }
+
+        public double getMaxMicros(){
+            return maxMicros;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package hexeditor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file open in a tab of the editor: its edit buffer with the undo history and the edit log, and where
+ * the view was while another tab was shown. The pages of its original come from the editor's shared pool.
+ */
+class OpenFile {
+    /**
+     * What other programs did to the file on disk since it was last checked.
+     */
+    static final class DiskChange {
+        //shrunk, or another file put in its place: the open original can't follow
+        final boolean replaced;
+        final long size;
+        final long modified;
+        final long[] changedPages;
+        //the file was written but none of its cached pages changed, the writes were where no page is cached
+        final boolean unknownExtent;
+
+        DiskChange(boolean replaced, long size, long modified, long[] changedPages, boolean unknownExtent){
+            this.replaced = replaced;
+            this.size = size;
+            this.modified = modified;
+            this.changedPages = changedPages;
+            this.unknownExtent = unknownExtent;
+        }
+    }
+
+    Path path;
+    PieceTable content;
+    EditJournal journal;
+    EditLog editLog;
+    long windowOffset = 0;
+    int hexDot = 0;
+    long selectionAnchor = -1;
+    //following the end of a file which grows on disk
+    boolean tail = false;
+    //a check of the disk is running, and another event came meanwhile
+    boolean checking = false;
+    boolean recheck = false;
+    private long diskModified;
+    private Object diskKey;
+
+    OpenFile(Path path, PieceTable content, long undoMemoryLimit){
+        attach(path, content, undoMemoryLimit);
+    }
+
+    /**
+     * Takes the content opened from the path in place of the edited one, after a save or a reload,
+     * with a fresh history and log. The log of the old edits is deleted.
+     */
+    void reopened(Path target, PieceTable opened, long undoMemoryLimit){
+        if (editLog != null) editLog.discard();
+        editLog = null;
+        close();
+        attach(target, opened, undoMemoryLimit);
+    }
+
+    private void attach(Path file, PieceTable opened, long undoMemoryLimit){
+        path = file;
+        content = opened;
+        journal = new EditJournal(content, undoMemoryLimit);
+        content.addEditRecorder(journal);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            diskModified = attributes.lastModifiedTime().toMillis();
+            diskKey = attributes.fileKey();
+            editLog = new EditLog(path, content);
+            content.addEditRecorder(editLog);
+        } catch (IOException ex) {
+            //editing goes on without crash recovery
+            System.err.println(ex);
+        }
+    }
+
+    /**
+     * Replays the log of unsaved edits on the content before the file is shown, with the journal recording
+     * them so they can be undone one by one, and logs on after them. Returns the count of recovered edits.
+     */
+    int recover() throws IOException {
+        //the edits are in the log already, the log recorder comes back after them
+        if (editLog != null) {
+            content.removeEditRecorder(editLog);
+            editLog.close();
+            editLog = null;
+        }
+        int edits = EditLog.replay(path, content);
+        editLog = new EditLog(path, content);
+        content.addEditRecorder(editLog);
+        return edits;
+    }
+
+    boolean isOf(Path file){
+        return path.toAbsolutePath().normalize().equals(file.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Compares the file on disk with the open original, on a background thread. Returns null when nothing
+     * changed. Otherwise a file of the same or a bigger size is compared page by page, only the last page
+     * when it's followed and it grew; the changed pages are dropped from the page cache. When no cached page
+     * changed, except for a followed file which only grew, any byte of the original may have changed.
+     */
+    DiskChange checkDisk(PieceTable checked, boolean lastPageOnly) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        PagedFileReader original = checked.getOriginal();
+        if (modified == diskModified && size == original.size()) return null;
+        boolean replaced = size < original.size() || diskKey != null && !diskKey.equals(attributes.fileKey());
+        boolean appended = lastPageOnly && size > original.size();
+        long[] changed = replaced ? new long[0] : original.changedPages(appended);
+        return new DiskChange(replaced, size, modified, changed, !replaced && !appended && changed.length == 0);
+    }
+
+    /**
+     * The change was applied to the content, the next check compares with it.
+     */
+    void diskChangeApplied(DiskChange change){
+        diskModified = change.modified;
+    }
+
+    /**
+     * Closes the buffer and drops the history, the log of unsaved edits stays for recovering them.
+     */
+    void close(){
+        journal.close();
+        if (editLog != null) {
+            content.removeEditRecorder(editLog);
+            editLog.close();
+        }
+        try {
+            content.close();
+        } catch (IOException ex) {
+            System.err.println(ex);
+        }
+    }
+}
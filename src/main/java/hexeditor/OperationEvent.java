@@ -0,0 +1,24 @@
+package hexeditor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning one editor operation, its duration is the latency recorded in the histograms.
+ */
+@Name("hexeditor.Operation")
+@Label("Editor Operation")
+@Category("Hex Editor")
+@Description("View load, edit, save or caret sync of the hex editor")
+class OperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+}
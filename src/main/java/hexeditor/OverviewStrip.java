@@ -0,0 +1,233 @@
+package hexeditor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Narrow strip beside the panes showing the whole file from top to bottom: entropy as a heat color on the left,
+ * the densities of zeros, printable ASCII and high bytes on the right. Clicking it shows that part of the file.
+ * <p>
+ * The overview is computed in the background and painted while it fills in. An overview of an unedited file
+ * is kept in a sidecar index, so opening the file again shows it at once; after an edit only the touched
+ * blocks are computed again.
+ */
+public class OverviewStrip extends JComponent implements PieceTable.EditListener {
+    static final int STRIP_WIDTH = 24;
+    private static final int REPAINT_PERIOD_MS = 250;
+    //edits typed in a row are computed again once, after the typing pauses
+    private static final int RECOMPUTE_DELAY_MS = 300;
+    private static final String CACHE_DIRECTORY_PROPERTY = "hexeditor.overviewCache";
+    private static final Color PENDING_COLOR = Color.lightGray;
+    private static final Color WINDOW_MARKER_COLOR = Color.blue;
+
+    private final HexEditor editor;
+    private final IoExecutor overviewTasks = new IoExecutor("hexeditor-overview");
+    private final Timer repaintTimer = new Timer(REPAINT_PERIOD_MS, event -> repaint());
+    private final Timer recomputeTimer = new Timer(RECOMPUTE_DELAY_MS, event -> compute());
+
+    private PieceTable content;
+    private ByteOverview overview;
+    private Path sidecar;
+    private long fileSize;
+    private long modified;
+    private boolean edited;
+    private Future<?> pendingCompute;
+
+    public OverviewStrip(HexEditor editor){
+        this.editor = editor;
+        recomputeTimer.setRepeats(false);
+        setPreferredSize(new Dimension(STRIP_WIDTH, 0));
+        setMinimumSize(new Dimension(STRIP_WIDTH, 0));
+        setToolTipText("Entropy and byte classes of the whole file, click to go there");
+        addMouseListener(new MouseAdapter(){
+            @Override
+            public void mousePressed(MouseEvent e){
+                goTo(e.getY());
+            }
+        });
+        editor.addWindowMoveListener(this::repaint);
+    }
+
+    /**
+     * Shows the overview of the opened file, read from its sidecar index or computed in the background.
+     */
+    void open(Path file, PieceTable opened){
+        close();
+        content = opened;
+        //a buffer shown again, or recovered from its edit log, may hold edits already
+        edited = !opened.isOriginal();
+        sidecar = sidecarFor(file, ".overview");
+        PieceTable loading = opened;
+        boolean unedited = !edited;
+        overviewTasks.submit(progress -> {
+            fileSize = Files.size(file);
+            modified = Files.getLastModifiedTime(file).toMillis();
+            ByteOverview saved = unedited ? ByteOverview.load(sidecar, fileSize, modified) : null;
+            return saved != null && fileSize == loading.length() ? saved : new ByteOverview(loading.length());
+        }, new IoExecutor.IoCallback<ByteOverview>(){
+            @Override
+            public void done(ByteOverview loaded){
+                if (loading != content) return;
+                //the loaded overview doesn't know where an edit made meanwhile went
+                overview = edited ? new ByteOverview(content.length()) : loaded;
+                repaint();
+                compute();
+            }
+
+            @Override
+            public void failed(Exception ex){
+                if (loading == content) System.err.println(ex);
+            }
+        });
+    }
+
+    /**
+     * Stops the computation for the current content before it's closed.
+     */
+    void close(){
+        recomputeTimer.stop();
+        repaintTimer.stop();
+        if (overview != null) overview.cancel();
+        if (pendingCompute != null) pendingCompute.cancel(false);
+        pendingCompute = null;
+        overview = null;
+        content = null;
+        repaint();
+    }
+
+    @Override
+    public void contentEdited(long offset, long removedLength, long insertedLength){
+        edited = true;
+        if (overview == null) return;
+        overview.contentEdited(offset, removedLength, insertedLength, content.length());
+        recomputeTimer.restart();
+        repaint();
+    }
+
+    private void compute(){
+        if (overview == null || overview.isComplete() || pendingCompute != null) return;
+        PieceTable computing = content;
+        ByteOverview computed = overview;
+        repaintTimer.start();
+        pendingCompute = overviewTasks.submit(progress -> {
+            computed.compute(computing, ForkJoinPool.commonPool());
+            return computed.isComplete();
+        }, new IoExecutor.IoCallback<Boolean>(){
+            @Override
+            public void done(Boolean complete){
+                if (computed != overview) return;
+                pendingCompute = null;
+                repaintTimer.stop();
+                repaint();
+                //an edit during the computation left blocks to do again
+                if (!complete) recomputeTimer.restart();
+                else if (!edited) saveSidecar(computed);
+            }
+
+            @Override
+            public void failed(Exception ex){
+                if (computed != overview) return;
+                pendingCompute = null;
+                repaintTimer.stop();
+                System.err.println(ex);
+            }
+        });
+    }
+
+    private void saveSidecar(ByteOverview computed){
+        Path target = sidecar;
+        long size = fileSize;
+        long time = modified;
+        overviewTasks.submit(progress -> {
+            computed.save(target, size, time);
+            return null;
+        }, saved -> {});
+    }
+
+    /**
+     * Where an index of the file is cached, the extension tells the indexes apart.
+     */
+    static Path sidecarFor(Path file, String extension){
+        Path absolute = file.toAbsolutePath();
+        Path directory = Paths.get(System.getProperty(CACHE_DIRECTORY_PROPERTY
+                , Paths.get(System.getProperty("user.home"), ".cache", "hexeditor").toString()));
+        return directory.resolve(Integer.toHexString(absolute.toString().hashCode()) + "-" + absolute.getFileName()
+                + extension);
+    }
+
+    private void goTo(int y){
+        if (content == null) return;
+        Insets insets = getInsets();
+        int height = getHeight() - insets.top - insets.bottom;
+        if (height <= 0) return;
+        long length = content.length();
+        long offset = (long) ((double) Math.max(0, y - insets.top) / height * length);
+        editor.goToOffset(Math.min(offset, Math.max(0, length - 1)));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g){
+        Insets insets = getInsets();
+        int width = getWidth() - insets.left - insets.right;
+        int height = getHeight() - insets.top - insets.bottom;
+        g.setColor(PENDING_COLOR);
+        g.fillRect(insets.left, insets.top, width, height);
+        ByteOverview shown = overview;
+        if (shown == null || height <= 0) return;
+        int blocks = shown.blockCount();
+        int half = width / 2;
+        int classWidth = Math.max(1, (width - half) / 3);
+        for (int y = 0; y < height && blocks > 0; ++y) {
+            int first = (int) ((long) y * blocks / height);
+            int end = Math.max(first + 1, (int) ((long) (y + 1) * blocks / height));
+            int[] values = averageValues(shown, first, Math.min(end, blocks));
+            if (values == null) continue;
+            int row = insets.top + y;
+            g.setColor(heatColor(values[0]));
+            g.fillRect(insets.left, row, half, 1);
+            g.setColor(new Color(255 - values[1], 255 - values[1], 255 - values[1]));
+            g.fillRect(insets.left + half, row, classWidth, 1);
+            g.setColor(new Color(255 - values[2], 255, 255 - values[2]));
+            g.fillRect(insets.left + half + classWidth, row, classWidth, 1);
+            g.setColor(new Color(255, 255 - values[3] / 2, 255 - values[3]));
+            g.fillRect(insets.left + half + 2 * classWidth, row, width - half - 2 * classWidth, 1);
+        }
+        long length = shown.length();
+        if (length > 0) {
+            int markerY = insets.top + (int) ((double) editor.getWindowOffset() / length * height);
+            g.setColor(WINDOW_MARKER_COLOR);
+            g.drawRect(insets.left, Math.min(markerY, insets.top + height - 2), width - 1, 1);
+        }
+    }
+
+    /**
+     * Average values of the computed blocks among [first, end), or null if none is computed yet.
+     */
+    private static int[] averageValues(ByteOverview shown, int first, int end){
+        int[] sum = new int[4];
+        int computed = 0;
+        for (int block = first; block < end; ++block) {
+            int[] values = shown.values(block);
+            if (values == null) continue;
+            for (int i = 0; i < sum.length; ++i) sum[i] += values[i];
+            ++computed;
+        }
+        if (computed == 0) return null;
+        for (int i = 0; i < sum.length; ++i) sum[i] /= computed;
+        return sum;
+    }
+
+    /**
+     * Blue for uniform bytes through green to red for random looking, compressed or encrypted ones.
+     */
+    private static Color heatColor(int entropy){
+        return Color.getHSBColor((255 - entropy) / 255f * 0.66f, 0.9f, 0.9f);
+    }
+}
@@ -0,0 +1,89 @@
+package hexeditor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory budget shared by the page caches of all open files, so opening more files doesn't add a cache each.
+ * When mapping a page takes the pool over its limit, pages are evicted from the files in background first,
+ * the least recently read file first, and from the files in the foreground only when the background ones
+ * have nothing left. Every file keeps the page it read last.
+ * <p>
+ * Readers charge the pool after releasing their own lock and the pool locks a reader only to evict from it,
+ * so the two locks are always taken in the same order.
+ */
+public class PageCachePool {
+    static final long DEFAULT_LIMIT = 256L * 1024 * 1024;
+
+    private final List<PagedFileReader> readers = new ArrayList<>();
+    private long limit;
+    private long cachedBytes = 0;
+    private long evictions = 0;
+
+    public PageCachePool(long limit){
+        this.limit = limit;
+    }
+
+    synchronized void register(PagedFileReader reader){
+        readers.add(reader);
+    }
+
+    /**
+     * Forgets a closed reader and the bytes it had cached.
+     */
+    synchronized void unregister(PagedFileReader reader, long releasedBytes){
+        if (readers.remove(reader)) cachedBytes -= releasedBytes;
+    }
+
+    /**
+     * Adds the bytes a reader mapped, or removes the ones it dropped when negative, then evicts until the pool fits.
+     */
+    synchronized void charge(PagedFileReader reader, long bytes){
+        if (!readers.contains(reader)) return;
+        cachedBytes += bytes;
+        fit();
+    }
+
+    public synchronized long getLimit(){
+        return limit;
+    }
+
+    public synchronized void setLimit(long limit){
+        this.limit = limit;
+        fit();
+    }
+
+    public synchronized long getCachedBytes(){
+        return cachedBytes;
+    }
+
+    public synchronized long getEvictions(){
+        return evictions;
+    }
+
+    private void fit(){
+        while (cachedBytes > limit) {
+            long evicted = evictOne();
+            if (evicted == 0) return;
+            cachedBytes -= evicted;
+            ++evictions;
+        }
+    }
+
+    /**
+     * Evicts the eldest page of the best victim and returns its size, or 0 if no reader can give up a page.
+     */
+    private long evictOne(){
+        PagedFileReader victim = null;
+        for (PagedFileReader reader: readers) {
+            if (reader.getCachedPages() <= 1) continue;
+            if (victim == null || isBetterVictim(reader, victim)) victim = reader;
+        }
+        return victim == null ? 0 : victim.evictEldest();
+    }
+
+    private static boolean isBetterVictim(PagedFileReader reader, PagedFileReader than){
+        if (reader.isForeground() != than.isForeground()) return !reader.isForeground();
+        return reader.getLastUsed() < than.getLastUsed();
+    }
+}
@@ -0,0 +1,288 @@
+package hexeditor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only access to a file through memory-mapped pages of a fixed size. Mapped pages are kept
+ * in a LRU cache bounded by the configured amount of bytes, so moving back and forth over the
+ * same region of the file doesn't touch the disk again. Readers of several files can share one
+ * budget instead, a {@link PageCachePool} which evicts their pages.
+ * <p>
+ * Every cached page keeps a checksum of its bytes as they were mapped. Mappings share the bytes of the file,
+ * so a tool writing to the file changes them; comparing the checksums finds the pages it changed.
+ */
+public class PagedFileReader implements Closeable {
+    static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+    static final long DEFAULT_CACHE_LIMIT = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private volatile long size;
+    private final int pageSize;
+    private long cacheLimit;
+    private long cachedBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private final LongAdder bytesRead = new LongAdder();
+    private final PageCachePool pool;
+    //bytes mapped or dropped since the pool was last told, it's told outside the lock of the reader
+    private long unchargedBytes = 0;
+    private volatile boolean foreground = true;
+    private volatile long lastUsed = System.nanoTime();
+    private final Map<Long, Integer> checksums = new HashMap<>();
+
+    private final LinkedHashMap<Long, MappedByteBuffer> pages = new LinkedHashMap<Long, MappedByteBuffer>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, MappedByteBuffer> eldest) {
+            if (cachedBytes <= cacheLimit || size() <= 1) return false;
+            cachedBytes -= eldest.getValue().capacity();
+            unchargedBytes -= eldest.getValue().capacity();
+            checksums.remove(eldest.getKey());
+            return true;
+        }
+    };
+
+    public PagedFileReader(Path file) throws IOException {
+        this(file, DEFAULT_PAGE_SIZE, DEFAULT_CACHE_LIMIT);
+    }
+
+    public PagedFileReader(Path file, int pageSize, long cacheLimit) throws IOException {
+        this(file, pageSize, cacheLimit, null);
+    }
+
+    /**
+     * Reader whose pages count against the pool, which evicts them when it's over its limit.
+     */
+    public PagedFileReader(Path file, int pageSize, PageCachePool pool) throws IOException {
+        this(file, pageSize, Long.MAX_VALUE, pool);
+    }
+
+    private PagedFileReader(Path file, int pageSize, long cacheLimit, PageCachePool pool) throws IOException {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.pageSize = pageSize;
+        this.cacheLimit = cacheLimit;
+        this.pool = pool;
+        if (pool != null) pool.register(this);
+    }
+
+    public long size(){
+        return size;
+    }
+
+    public int getPageSize(){
+        return pageSize;
+    }
+
+    /**
+     * Copies up to {@code length} bytes starting at {@code position} and returns the number of bytes copied.
+     * Only the page lookup is locked, so several threads can copy from the cached pages at once.
+     * A file truncated by another program while it's read throws an {@link IOException}.
+     */
+    public int read(long position, byte[] target, int targetOffset, int length) throws IOException {
+        if (position < 0 || position >= size) return 0;
+        int count = (int) Math.min(length, size - position);
+        int copied = 0;
+        try {
+            while (copied < count) {
+                long current = position + copied;
+                ByteBuffer page = page(current / pageSize).duplicate();
+                int pageOffset = (int) (current % pageSize);
+                int chunk = Math.min(count - copied, page.capacity() - pageOffset);
+                page.position(pageOffset);
+                page.get(target, targetOffset + copied, chunk);
+                copied += chunk;
+            }
+        } catch (InternalError ex) {
+            //touching a mapping past the end of a file another program truncated faults instead of throwing
+            throw new IOException("File was truncated at " + (position + copied), ex);
+        }
+        bytesRead.add(count);
+        lastUsed = System.nanoTime();
+        chargePool();
+        return count;
+    }
+
+    /**
+     * Sends bytes of the file straight to the target channel without copying them through the heap.
+     */
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) throw new IOException("File was truncated at " + position);
+            position += sent;
+            bytesRead.add(sent);
+        }
+    }
+
+    /**
+     * Bytes copied or transferred out of the file so far.
+     */
+    public long getBytesRead(){
+        return bytesRead.sum();
+    }
+
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    public synchronized long getMisses(){
+        return misses;
+    }
+
+    public synchronized long getCachedBytes(){
+        return cachedBytes;
+    }
+
+    public synchronized long getCacheLimit(){
+        return cacheLimit;
+    }
+
+    public void setCacheLimit(long cacheLimit){
+        synchronized (this) {
+            this.cacheLimit = cacheLimit;
+            while (cachedBytes > cacheLimit && pages.size() > 1)
+                unchargedBytes -= evictEldest();
+        }
+        chargePool();
+    }
+
+    /**
+     * Whether the file is shown, the pool evicts pages of files in background first.
+     */
+    public void setForeground(boolean foreground){
+        this.foreground = foreground;
+    }
+
+    boolean isForeground(){
+        return foreground;
+    }
+
+    long getLastUsed(){
+        return lastUsed;
+    }
+
+    synchronized int getCachedPages(){
+        return pages.size();
+    }
+
+    /**
+     * Drops the least recently read page and returns its size.
+     */
+    synchronized long evictEldest(){
+        if (pages.isEmpty()) return 0;
+        Long eldest = pages.keySet().iterator().next();
+        long evicted = pages.remove(eldest).capacity();
+        checksums.remove(eldest);
+        cachedBytes -= evicted;
+        return evicted;
+    }
+
+    @Override
+    public void close() throws IOException {
+        long charged;
+        synchronized (this) {
+            pages.clear();
+            checksums.clear();
+            charged = cachedBytes - unchargedBytes;
+            cachedBytes = 0;
+            unchargedBytes = 0;
+            channel.close();
+        }
+        if (pool != null) pool.unregister(this, charged);
+    }
+
+    private void chargePool(){
+        long bytes;
+        synchronized (this) {
+            bytes = unchargedBytes;
+            unchargedBytes = 0;
+        }
+        if (pool != null && bytes != 0) pool.charge(this, bytes);
+    }
+
+    private synchronized MappedByteBuffer page(long index) throws IOException {
+        MappedByteBuffer page = pages.get(index);
+        if (page != null) {
+            ++hits;
+            return page;
+        }
+        ++misses;
+        long start = index * pageSize;
+        page = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(pageSize, size - start));
+        cachedBytes += page.capacity();
+        unchargedBytes += page.capacity();
+        pages.put(index, page);
+        checksums.put(index, checksum(page));
+        return page;
+    }
+
+    private static int checksum(ByteBuffer page){
+        CRC32 crc = new CRC32();
+        crc.update(page.duplicate().clear());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * The file grew on disk: its new bytes become readable. The last page is mapped again
+     * to its new length when it's read next.
+     */
+    void grow(long newSize){
+        synchronized (this) {
+            if (newSize <= size) return;
+            if (size % pageSize != 0) dropPage(size / pageSize);
+            size = newSize;
+        }
+        chargePool();
+    }
+
+    /**
+     * Finds the cached pages whose bytes changed on disk since they were mapped, drops them from the cache
+     * and returns their indices in increasing order. {@code lastPageOnly} checks the last page alone, which is
+     * all a file that's only appended to can change, in constant time. Pages which aren't cached are read
+     * as they are now when they're needed.
+     */
+    long[] changedPages(boolean lastPageOnly){
+        long[] changed;
+        synchronized (this) {
+            long[] indices;
+            if (lastPageOnly) {
+                long last = size == 0 ? 0 : (size - 1) / pageSize;
+                indices = pages.containsKey(last) ? new long[]{last} : new long[0];
+            } else {
+                indices = pages.keySet().stream().mapToLong(Long::longValue).toArray();
+            }
+            int count = 0;
+            for (long index: indices) {
+                if (checksum(pages.get(index)) != checksums.get(index)) indices[count++] = index;
+            }
+            changed = Arrays.copyOf(indices, count);
+            for (long index: changed) dropPage(index);
+        }
+        chargePool();
+        Arrays.sort(changed);
+        return changed;
+    }
+
+    private void dropPage(long index){
+        MappedByteBuffer page = pages.remove(index);
+        checksums.remove(index);
+        if (page == null) return;
+        cachedBytes -= page.capacity();
+        unchargedBytes -= page.capacity();
+    }
+}
@@ -0,0 +1,23 @@
+package hexeditor;
+
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+
+public class PaneKeyListener extends KeyAdapter {
+    private HexEditor editor;
+
+    public PaneKeyListener(HexEditor editor){
+        super();
+        this.editor = editor;
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        editor.handlePaneKeyPressed(e);
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+        editor.handlePaneKeyTyped(e);
+    }
+}
@@ -0,0 +1,23 @@
+package hexeditor;
+
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+public class PaneMouseListener extends MouseAdapter {
+    private HexEditor editor;
+
+    public PaneMouseListener(HexEditor editor){
+        super();
+        this.editor = editor;
+    }
+
+    @Override
+    public void mousePressed(MouseEvent e) {
+        editor.handlePaneMousePressed(e);
+    }
+
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        editor.handlePaneMouseDragged(e);
+    }
+}
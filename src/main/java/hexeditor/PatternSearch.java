@@ -0,0 +1,121 @@
+package hexeditor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Looks for a pattern in the edited content. The range is split into chunks searched in parallel
+ * on a fork/join pool; every chunk also reads the first bytes of the next one, so a match crossing
+ * a chunk boundary is found by the chunk where it starts.
+ */
+public class PatternSearch {
+    static final int CHUNK_SIZE = 1024 * 1024;
+    private static final long FIND_NEXT_SEGMENT_SIZE = 64L * CHUNK_SIZE;
+
+    public interface HitListener {
+        void hit(long offset);
+    }
+
+    private final PieceTable content;
+    private final BytePattern pattern;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<byte[]> buffers;
+    private volatile boolean cancelled = false;
+
+    public PatternSearch(PieceTable content, BytePattern pattern){
+        this(content, pattern, ForkJoinPool.commonPool());
+    }
+
+    public PatternSearch(PieceTable content, BytePattern pattern, ForkJoinPool pool){
+        this.content = content;
+        this.pattern = pattern;
+        this.pool = pool;
+        this.buffers = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE + pattern.length() - 1]);
+    }
+
+    /**
+     * Reports every match starting in [from, to) as soon as its chunk is searched, so hits don't come in order.
+     */
+    public void findAll(long from, long to, HitListener listener) throws IOException {
+        invoke(new ChunkTask(from, Math.min(to, content.length()), listener, false));
+    }
+
+    /**
+     * Returns the first match starting at {@code from} or later, or -1 when there is none.
+     */
+    public long findNext(long from) throws IOException {
+        long length = content.length();
+        for (long start = Math.max(0, from); start < length && !cancelled; start += FIND_NEXT_SEGMENT_SIZE) {
+            long hit = invoke(new ChunkTask(start, Math.min(length, start + FIND_NEXT_SEGMENT_SIZE), null, true));
+            if (hit >= 0) return hit;
+        }
+        return -1;
+    }
+
+    public void cancel(){
+        cancelled = true;
+    }
+
+    public boolean isCancelled(){
+        return cancelled;
+    }
+
+    private long invoke(ChunkTask task) throws IOException {
+        try {
+            return pool.invoke(task);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private class ChunkTask extends RecursiveTask<Long> {
+        private final long start;
+        private final long end;
+        private final HitListener listener;
+        private final boolean firstOnly;
+
+        ChunkTask(long start, long end, HitListener listener, boolean firstOnly){
+            this.start = start;
+            this.end = end;
+            this.listener = listener;
+            this.firstOnly = firstOnly;
+        }
+
+        @Override
+        protected Long compute(){
+            if (cancelled || start >= end) return -1L;
+            if (end - start > CHUNK_SIZE) {
+                long middle = start + (end - start) / 2 / CHUNK_SIZE * CHUNK_SIZE;
+                if (middle == start) middle += CHUNK_SIZE;
+                ChunkTask head = new ChunkTask(start, middle, listener, firstOnly);
+                ChunkTask tail = new ChunkTask(middle, end, listener, firstOnly);
+                tail.fork();
+                long headHit = head.compute();
+                long tailHit = tail.join();
+                return headHit >= 0 ? headHit : tailHit;
+            }
+            try {
+                return searchChunk();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private long searchChunk() throws IOException {
+            byte[] buffer = buffers.get();
+            int length = content.read(start, buffer, 0, (int) Math.min(buffer.length, end - start + pattern.length() - 1));
+            int limit = (int) (end - start);
+            long first = -1;
+            int index = pattern.indexIn(buffer, 0, length);
+            while (index >= 0 && index < limit && !cancelled) {
+                if (first < 0) first = start + index;
+                if (firstOnly) break;
+                listener.hit(start + index);
+                index = pattern.indexIn(buffer, index + 1, length);
+            }
+            return first;
+        }
+    }
+}
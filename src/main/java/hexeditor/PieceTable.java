@@ -0,0 +1,683 @@
+package hexeditor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Edit model of an opened file. The original file is only read, every inserted or overwritten
+ * byte goes to the append-only add buffer, and the current content is described by a sequence
+ * of pieces pointing into one of the two. Pieces are kept in a treap ordered by their position
+ * in the edited content, so locating an offset and applying an edit cost O(log pieces).
+ * Reads from background threads may run concurrently, edits wait for them to finish.
+ */
+public class PieceTable implements Closeable {
+    //the add buffer is a list of chunks, so it grows without copying and past the size of an array
+    private static final int ADD_CHUNK_BITS = 20;
+    static final int ADD_CHUNK_SIZE = 1 << ADD_CHUNK_BITS;
+    //a fill stores one block of its pattern and points every piece of it there
+    static final int FILL_BLOCK_SIZE = 1024 * 1024;
+
+    private final PagedFileReader original;
+    private final List<byte[]> addChunks = new ArrayList<>();
+    private long addLength = 0;
+    private Piece root;
+    private final Random priorities = new Random();
+    private final List<EditListener> editListeners = new CopyOnWriteArrayList<>();
+    private final List<EditRecorder> editRecorders = new CopyOnWriteArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Notified after every edit: {@code removedLength} bytes at {@code offset} were replaced
+     * by {@code insertedLength} new ones.
+     */
+    public interface EditListener {
+        void contentEdited(long offset, long removedLength, long insertedLength);
+    }
+
+    /**
+     * Gets the pieces every edit removed and inserted, before the edit listeners are notified. Pieces are
+     * encoded by {@link #encodePiece} and stay valid for the life of the table, since the original file
+     * and the add buffer never change; {@link #restore} puts them back and reports itself as restored.
+     */
+    public interface EditRecorder {
+        void recorded(long offset, long[] removedPieces, long[] insertedPieces, boolean restored);
+    }
+
+    /**
+     * Receives pieces of the content in their order. {@code offset} is the position of the piece
+     * in the edited content, {@code start} is its position in the original file or in the add buffer.
+     */
+    public interface PieceVisitor {
+        void visit(boolean added, long start, long length, long offset) throws IOException;
+    }
+
+    private static class Piece {
+        final boolean added;
+        final long start;
+        long length;
+        long subtreeLength;
+        final int priority;
+        Piece left;
+        Piece right;
+
+        Piece(boolean added, long start, long length, int priority){
+            this.added = added;
+            this.start = start;
+            this.length = length;
+            this.subtreeLength = length;
+            this.priority = priority;
+        }
+    }
+
+    public PieceTable(Path file) throws IOException {
+        this(new PagedFileReader(file));
+    }
+
+    public PieceTable(PagedFileReader original){
+        this.original = original;
+        long originalLength = original.size();
+        if (originalLength > 0)
+            root = new Piece(false, 0, originalLength, priorities.nextInt());
+    }
+
+    public PagedFileReader getOriginal(){
+        return original;
+    }
+
+    public long length(){
+        lock.readLock().lock();
+        try {
+            return subtreeLength(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int byteAt(long offset) throws IOException {
+        byte[] value = new byte[1];
+        return read(offset, value, 0, 1) == 1 ? value[0] & 0xff : -1;
+    }
+
+    /**
+     * Copies up to {@code length} bytes of the edited content starting at {@code offset}.
+     * Returns the number of bytes copied, which is less than requested only at the end of content.
+     */
+    public int read(long offset, byte[] target, int targetOffset, int length) throws IOException {
+        lock.readLock().lock();
+        try {
+            long contentLength = subtreeLength(root);
+            if (offset < 0 || offset >= contentLength) return 0;
+            int count = (int) Math.min(length, contentLength - offset);
+            read(root, 0, offset, target, targetOffset, count);
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addEditListener(EditListener listener){
+        editListeners.add(listener);
+    }
+
+    public void removeEditListener(EditListener listener){
+        editListeners.remove(listener);
+    }
+
+    public void insert(long offset, byte[] data){
+        insert(offset, data, 0, data.length);
+    }
+
+    public void insert(long offset, byte[] data, int dataOffset, int length){
+        if (length == 0) return;
+        long[] inserted;
+        lock.writeLock().lock();
+        try {
+            checkOffset(offset);
+            inserted = insertPiece(offset, data, dataOffset, length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        contentEdited(offset, null, inserted, 0, length);
+    }
+
+    /**
+     * Overwrites bytes starting at {@code offset}, growing the content when the new data runs past its end.
+     */
+    public void replace(long offset, byte[] data){
+        replace(offset, data, 0, data.length);
+    }
+
+    public void replace(long offset, byte[] data, int dataOffset, int length){
+        long removed;
+        Piece removedPieces;
+        long[] inserted;
+        lock.writeLock().lock();
+        try {
+            checkOffset(offset);
+            removed = Math.min(length, subtreeLength(root) - offset);
+            removedPieces = deletePieces(offset, removed);
+            inserted = insertPiece(offset, data, dataOffset, length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        contentEdited(offset, removedPieces, inserted, removed, length);
+    }
+
+    /**
+     * Overwrites {@code length} bytes starting at {@code offset} with the pattern repeated, growing the content
+     * when the fill runs past its end. The add buffer takes at most one block of the pattern whatever the length.
+     */
+    public void fill(long offset, long length, byte[] pattern){
+        if (length <= 0) return;
+        if (pattern.length == 0) throw new IllegalArgumentException("Fill needs a pattern");
+        long removed;
+        Piece removedPieces;
+        long[] insertedPieces;
+        lock.writeLock().lock();
+        try {
+            checkOffset(offset);
+            removed = Math.min(length, subtreeLength(root) - offset);
+            removedPieces = deletePieces(offset, removed);
+            insertedPieces = insertRepeatedPieces(offset, length, pattern);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        contentEdited(offset, removedPieces, insertedPieces, removed, length);
+    }
+
+    /**
+     * Inserts {@code length} bytes of the pattern repeated, taking no more of the add buffer than {@link #fill} does.
+     */
+    public void insertRepeated(long offset, long length, byte[] pattern){
+        if (length <= 0) return;
+        if (pattern.length == 0) throw new IllegalArgumentException("Fill needs a pattern");
+        long[] insertedPieces;
+        lock.writeLock().lock();
+        try {
+            checkOffset(offset);
+            insertedPieces = insertRepeatedPieces(offset, length, pattern);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        contentEdited(offset, null, insertedPieces, 0, length);
+    }
+
+    /**
+     * Replaces {@code removedLength} bytes at {@code offset} by the data as one edit, whatever both lengths are.
+     */
+    public void splice(long offset, long removedLength, byte[] data){
+        long removed;
+        Piece removedPieces;
+        long[] inserted;
+        lock.writeLock().lock();
+        try {
+            checkOffset(offset);
+            removed = Math.max(0, Math.min(removedLength, subtreeLength(root) - offset));
+            removedPieces = deletePieces(offset, removed);
+            inserted = insertPiece(offset, data, 0, data.length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        contentEdited(offset, removedPieces, inserted, removed, data.length);
+    }
+
+    public void delete(long offset, long length){
+        if (length <= 0) return;
+        long removed;
+        Piece removedPieces;
+        lock.writeLock().lock();
+        try {
+            checkOffset(offset);
+            removed = Math.min(length, subtreeLength(root) - offset);
+            removedPieces = deletePieces(offset, removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        contentEdited(offset, removedPieces, new long[0], removed, 0);
+    }
+
+    public void addEditRecorder(EditRecorder recorder){
+        editRecorders.add(recorder);
+    }
+
+    public void removeEditRecorder(EditRecorder recorder){
+        editRecorders.remove(recorder);
+    }
+
+    /**
+     * Replaces {@code removedLength} bytes at {@code offset} by recorded pieces as one edit.
+     * Undoing or redoing an edit this way costs O(pieces log pieces) whatever its length.
+     */
+    public void restore(long offset, long removedLength, long[] pieces){
+        splice(offset, removedLength, pieces, true);
+    }
+
+    /**
+     * Replaces {@code removedLength} bytes at {@code offset} by pieces already in the original or the add buffer,
+     * as a new edit rather than a restored one.
+     */
+    public void splice(long offset, long removedLength, long[] pieces){
+        splice(offset, removedLength, pieces, false);
+    }
+
+    private void splice(long offset, long removedLength, long[] pieces, boolean restored){
+        long removed;
+        Piece removedPieces;
+        lock.writeLock().lock();
+        try {
+            checkOffset(offset);
+            removed = Math.min(removedLength, subtreeLength(root) - offset);
+            removedPieces = deletePieces(offset, removed);
+            insertPieces(offset, pieces);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        contentEdited(offset, removedPieces, pieces, removed, piecesLength(pieces), restored);
+    }
+
+    /**
+     * Appends what the original file grew by on disk to the end of the content. It's a change of the file
+     * rather than an edit, so the listeners are told and the recorders aren't. Returns the bytes appended.
+     */
+    public long originalGrew(long newSize){
+        long offset;
+        long grown;
+        lock.writeLock().lock();
+        try {
+            long oldSize = original.size();
+            if (newSize <= oldSize) return 0;
+            original.grow(newSize);
+            offset = subtreeLength(root);
+            grown = newSize - oldSize;
+            insertPieces(offset, new long[]{encodePiece(false, oldSize), grown});
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireContentEdited(offset, 0, grown);
+        return grown;
+    }
+
+    /**
+     * Tells the listeners that bytes of the original in [start, start + length) were changed on disk,
+     * at every place of the content which shows them.
+     */
+    public void originalChanged(long start, long length){
+        List<long[]> ranges = new ArrayList<>();
+        long end = start + length;
+        try {
+            forEachPiece((added, pieceStart, pieceLength, offset) -> {
+                long from = Math.max(start, pieceStart);
+                long to = Math.min(end, pieceStart + pieceLength);
+                if (!added && from < to) ranges.add(new long[]{offset + from - pieceStart, to - from});
+            });
+        } catch (IOException ex) {
+            //the visitor doesn't read
+            throw new IllegalStateException(ex);
+        }
+        for (long[] range: ranges)
+            fireContentEdited(range[0], range[1], range[1]);
+    }
+
+    /**
+     * Length of the add buffer, where the next added bytes go.
+     */
+    public long addedLength(){
+        lock.readLock().lock();
+        try {
+            return addLength;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends bytes to the add buffer without changing the content, for replaying a log of the add buffer.
+     * Returns where they start.
+     */
+    long appendAdded(byte[] data, int dataOffset, int length){
+        lock.writeLock().lock();
+        try {
+            return appendToAddBuffer(data, dataOffset, length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies what's left in the source to the add buffer in chunks without changing the content, so a large file
+     * is inserted without another copy of it in memory. Returns the pieces of the copied bytes, which
+     * {@link #splice(long, long, long[])} puts in the content as one edit.
+     */
+    public long[] appendAdded(ReadableByteChannel source) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ADD_CHUNK_SIZE);
+        long[] pieces = new long[0];
+        for (int read = 0; read >= 0; ) {
+            buffer.clear();
+            while (buffer.hasRemaining() && read >= 0)
+                read = source.read(buffer);
+            int length = buffer.position();
+            if (length == 0) continue;
+            long start = appendAdded(buffer.array(), 0, length);
+            //consecutive chunks make one piece, bytes appended by another thread meanwhile start a new one
+            int last = pieces.length - 2;
+            if (last >= 0 && ~pieces[last] + pieces[last + 1] == start) {
+                pieces[last + 1] += length;
+            } else {
+                pieces = Arrays.copyOf(pieces, pieces.length + 2);
+                pieces[last + 2] = encodePiece(true, start);
+                pieces[last + 3] = length;
+            }
+        }
+        return pieces;
+    }
+
+    /**
+     * Encodes a piece as two longs: its start, bit-inverted for the add buffer, and its length.
+     */
+    static long encodePiece(boolean added, long start){
+        return added ? ~start : start;
+    }
+
+    /**
+     * Total length of encoded pieces.
+     */
+    public static long piecesLength(long[] pieces){
+        long length = 0;
+        for (int i = 1; i < pieces.length; i += 2)
+            length += pieces[i];
+        return length;
+    }
+
+    /**
+     * Whether the content is the original file, with no edits or all of them undone.
+     */
+    public boolean isOriginal(){
+        lock.readLock().lock();
+        try {
+            return originalEnd(root, 0) == original.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the pieces in their order. Edits wait until the visit is over.
+     */
+    public void forEachPiece(PieceVisitor visitor) throws IOException {
+        lock.readLock().lock();
+        try {
+            forEachPiece(root, 0, visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read-only view of the add buffer from {@code start}, of {@code length} bytes or up to the end of the chunk
+     * holding {@code start} when that comes first. Added bytes are never changed, so the view stays valid.
+     */
+    public ByteBuffer addedBytes(long start, long length){
+        lock.readLock().lock();
+        try {
+            int within = (int) (start & (ADD_CHUNK_SIZE - 1));
+            byte[] chunk = addChunks.get((int) (start >>> ADD_CHUNK_BITS));
+            return ByteBuffer.wrap(chunk, within, (int) Math.min(length, ADD_CHUNK_SIZE - within)).asReadOnlyBuffer();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the original file once running reads are over.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            original.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void contentEdited(long offset, Piece removedPieces, long[] insertedPieces, long removedLength
+            , long insertedLength){
+        contentEdited(offset, removedPieces, insertedPieces, removedLength, insertedLength, false);
+    }
+
+    private void contentEdited(long offset, Piece removedPieces, long[] insertedPieces, long removedLength
+            , long insertedLength, boolean restored){
+        if (!editRecorders.isEmpty()) {
+            long[] removed = encodePieces(removedPieces);
+            for (EditRecorder recorder: editRecorders)
+                recorder.recorded(offset, removed, insertedPieces, restored);
+        }
+        fireContentEdited(offset, removedLength, insertedLength);
+    }
+
+    /**
+     * Pieces of a subtree in their order, see {@link #encodePiece}. The subtree isn't part of the tree any more,
+     * so it's walked without the lock.
+     */
+    private static long[] encodePieces(Piece subtree){
+        int count = countPieces(subtree);
+        long[] pieces = new long[count * 2];
+        encodePieces(subtree, pieces, 0);
+        return pieces;
+    }
+
+    private static int countPieces(Piece node){
+        return node == null ? 0 : countPieces(node.left) + 1 + countPieces(node.right);
+    }
+
+    private static int encodePieces(Piece node, long[] pieces, int index){
+        if (node == null) return index;
+        index = encodePieces(node.left, pieces, index);
+        pieces[index] = encodePiece(node.added, node.start);
+        pieces[index + 1] = node.length;
+        return encodePieces(node.right, pieces, index + 2);
+    }
+
+    private void fireContentEdited(long offset, long removedLength, long insertedLength){
+        for (EditListener listener: editListeners)
+            listener.contentEdited(offset, removedLength, insertedLength);
+    }
+
+    /**
+     * Returns the inserted bytes as encoded pieces.
+     */
+    private long[] insertPiece(long offset, byte[] data, int dataOffset, int length){
+        if (length == 0) return new long[0];
+        long start = appendToAddBuffer(data, dataOffset, length);
+        Piece[] parts = split(root, offset);
+        //consecutive typing keeps extending the same piece instead of creating a new one
+        if (parts[0] != null && extendLastPiece(parts[0], start, length)) {
+            root = merge(parts[0], parts[1]);
+        } else {
+            Piece piece = new Piece(true, start, length, priorities.nextInt());
+            root = merge(merge(parts[0], piece), parts[1]);
+        }
+        return new long[]{encodePiece(true, start), length};
+    }
+
+    private long[] insertRepeatedPieces(long offset, long length, byte[] pattern){
+        int repeats = (int) Math.max(1, Math.min(length, FILL_BLOCK_SIZE) / pattern.length);
+        byte[] block = new byte[(int) Math.min(length, (long) repeats * pattern.length)];
+        for (int i = 0; i < block.length; i += pattern.length)
+            System.arraycopy(pattern, 0, block, i, Math.min(pattern.length, block.length - i));
+        long start = appendToAddBuffer(block, 0, block.length);
+        long[] pieces = new long[(int) ((length + block.length - 1) / block.length) * 2];
+        for (int i = 0; i < pieces.length; i += 2) {
+            pieces[i] = encodePiece(true, start);
+            pieces[i + 1] = Math.min(block.length, length - (long) i / 2 * block.length);
+        }
+        insertPieces(offset, pieces);
+        return pieces;
+    }
+
+    private void insertPieces(long offset, long[] pieces){
+        Piece inserted = null;
+        for (int i = 0; i < pieces.length; i += 2) {
+            boolean added = pieces[i] < 0;
+            inserted = merge(inserted, new Piece(added, added ? ~pieces[i] : pieces[i], pieces[i + 1]
+                    , priorities.nextInt()));
+        }
+        Piece[] parts = split(root, offset);
+        root = merge(merge(parts[0], inserted), parts[1]);
+    }
+
+    /**
+     * Returns the removed pieces as a subtree cut off the tree.
+     */
+    private Piece deletePieces(long offset, long length){
+        if (length <= 0) return null;
+        Piece[] head = split(root, offset);
+        Piece[] tail = split(head[1], length);
+        root = merge(head[0], tail[1]);
+        return tail[0];
+    }
+
+    private void checkOffset(long offset){
+        if (offset < 0 || offset > subtreeLength(root))
+            throw new IndexOutOfBoundsException("Offset " + offset + " is out of content length " + subtreeLength(root));
+    }
+
+    private long appendToAddBuffer(byte[] data, int dataOffset, int length){
+        long start = addLength;
+        while (length > 0) {
+            int within = (int) (addLength & (ADD_CHUNK_SIZE - 1));
+            if (within == 0) addChunks.add(new byte[ADD_CHUNK_SIZE]);
+            int count = Math.min(length, ADD_CHUNK_SIZE - within);
+            System.arraycopy(data, dataOffset, addChunks.get(addChunks.size() - 1), within, count);
+            addLength += count;
+            dataOffset += count;
+            length -= count;
+        }
+        return start;
+    }
+
+    private boolean extendLastPiece(Piece node, long start, int length){
+        boolean extended;
+        if (node.right != null) {
+            extended = extendLastPiece(node.right, start, length);
+        } else {
+            extended = node.added && node.start + node.length == start;
+            if (extended) node.length += length;
+        }
+        if (extended) node.subtreeLength += length;
+        return extended;
+    }
+
+    private void read(Piece node, long nodeOffset, long offset, byte[] target, int targetOffset, int length)
+            throws IOException {
+        if (node == null || length <= 0) return;
+        long pieceOffset = nodeOffset + subtreeLength(node.left);
+        long end = offset + length;
+        if (offset < pieceOffset)
+            read(node.left, nodeOffset, offset, target, targetOffset, (int) Math.min(length, pieceOffset - offset));
+        long from = Math.max(offset, pieceOffset);
+        long to = Math.min(end, pieceOffset + node.length);
+        if (from < to)
+            readPiece(node, from - pieceOffset, target, targetOffset + (int) (from - offset), (int) (to - from));
+        long rightOffset = pieceOffset + node.length;
+        if (end > rightOffset) {
+            long rightFrom = Math.max(offset, rightOffset);
+            read(node.right, rightOffset, rightFrom, target, targetOffset + (int) (rightFrom - offset)
+                    , (int) (end - rightFrom));
+        }
+    }
+
+    /**
+     * Where the original bytes of the pieces end when they follow each other from {@code start}, or -1.
+     */
+    private static long originalEnd(Piece node, long start){
+        if (node == null) return start;
+        long end = originalEnd(node.left, start);
+        if (end < 0 || node.added || node.start != end) return -1;
+        return originalEnd(node.right, node.start + node.length);
+    }
+
+    private void forEachPiece(Piece node, long nodeOffset, PieceVisitor visitor) throws IOException {
+        if (node == null) return;
+        forEachPiece(node.left, nodeOffset, visitor);
+        long pieceOffset = nodeOffset + subtreeLength(node.left);
+        visitor.visit(node.added, node.start, node.length, pieceOffset);
+        forEachPiece(node.right, pieceOffset + node.length, visitor);
+    }
+
+    private void readPiece(Piece piece, long offset, byte[] target, int targetOffset, int length) throws IOException {
+        if (piece.added) {
+            long position = piece.start + offset;
+            while (length > 0) {
+                int within = (int) (position & (ADD_CHUNK_SIZE - 1));
+                int count = Math.min(length, ADD_CHUNK_SIZE - within);
+                byte[] chunk = addChunks.get((int) (position >>> ADD_CHUNK_BITS));
+                System.arraycopy(chunk, within, target, targetOffset, count);
+                position += count;
+                targetOffset += count;
+                length -= count;
+            }
+            return;
+        }
+        if (original.read(piece.start + offset, target, targetOffset, length) < length)
+            throw new IOException("Original file was truncated");
+    }
+
+    /**
+     * Splits the tree into the first {@code offset} bytes and the rest, cutting a piece in two when needed.
+     */
+    private Piece[] split(Piece node, long offset){
+        if (node == null) return new Piece[]{null, null};
+        long leftLength = subtreeLength(node.left);
+        if (offset <= leftLength) {
+            Piece[] parts = split(node.left, offset);
+            node.left = parts[1];
+            update(node);
+            return new Piece[]{parts[0], node};
+        }
+        if (offset >= leftLength + node.length) {
+            Piece[] parts = split(node.right, offset - leftLength - node.length);
+            node.right = parts[0];
+            update(node);
+            return new Piece[]{node, parts[1]};
+        }
+        long cut = offset - leftLength;
+        Piece tail = new Piece(node.added, node.start + cut, node.length - cut, priorities.nextInt());
+        Piece rest = merge(tail, node.right);
+        node.length = cut;
+        node.right = null;
+        update(node);
+        return new Piece[]{node, rest};
+    }
+
+    private Piece merge(Piece left, Piece right){
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static void update(Piece node){
+        node.subtreeLength = subtreeLength(node.left) + node.length + subtreeLength(node.right);
+    }
+
+    private static long subtreeLength(Piece node){
+        return node == null ? 0 : node.subtreeLength;
+    }
+}
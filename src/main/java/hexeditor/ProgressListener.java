@@ -0,0 +1,5 @@
+package hexeditor;
+
+public interface ProgressListener {
+    void progress(long done, long total);
+}
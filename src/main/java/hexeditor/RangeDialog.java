@@ -0,0 +1,69 @@
+package hexeditor;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Asks for the bytes of a range operation: a fill pattern, or the count and pattern of bytes to insert.
+ */
+final class RangeDialog {
+    /**
+     * Count of bytes to insert, made of the pattern repeated.
+     */
+    static final class Insertion {
+        final long count;
+        final byte[] pattern;
+
+        Insertion(long count, byte[] pattern){
+            this.count = count;
+            this.pattern = pattern;
+        }
+    }
+
+    private RangeDialog(){
+    }
+
+    /**
+     * Returns the pattern written as hex codes, or null when the dialog was cancelled.
+     */
+    static byte[] askPattern(Component parent, String title){
+        String text = JOptionPane.showInputDialog(parent, "Pattern (hex bytes, e.g. \"00\" or \"de ad\"):"
+                , title, JOptionPane.QUESTION_MESSAGE);
+        while (text != null) {
+            try {
+                byte[] pattern = ByteFormatter.parseHexBytes(text);
+                if (pattern.length > 0) return pattern;
+            } catch (IllegalArgumentException ex) {
+                //asked again below
+            }
+            text = JOptionPane.showInputDialog(parent, "Not a pattern: " + text, title, JOptionPane.ERROR_MESSAGE);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the count and pattern of the bytes to insert, or null when the dialog was cancelled.
+     */
+    static Insertion askInsertion(Component parent){
+        JTextField countField = new JTextField("0x100", 14);
+        JTextField patternField = new JTextField("00", 14);
+        JPanel fields = new JPanel(new GridLayout(2, 2, 5, 5));
+        fields.add(new JLabel("Count:"));
+        fields.add(countField);
+        fields.add(new JLabel("Pattern (hex bytes):"));
+        fields.add(patternField);
+        while (JOptionPane.showConfirmDialog(parent, fields, "Insert bytes", JOptionPane.OK_CANCEL_OPTION
+                , JOptionPane.QUESTION_MESSAGE) == JOptionPane.OK_OPTION) {
+            try {
+                long count = ByteFormatter.parseOffset(countField.getText());
+                byte[] pattern = ByteFormatter.parseHexBytes(patternField.getText());
+                if (count > 0 && pattern.length > 0) return new Insertion(count, pattern);
+            } catch (IllegalArgumentException ex) {
+                //asked again below
+            }
+            JOptionPane.showMessageDialog(parent, "Count must be positive and the pattern hex bytes"
+                    , "Insert bytes", JOptionPane.ERROR_MESSAGE);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,219 @@
+package hexeditor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Find and find next for hex patterns with "??" wildcards, ASCII and UTF-16 strings.
+ * Hits of a find are streamed into the list in file order while the search runs.
+ */
+public class SearchDialog extends JDialog {
+    private static final String[] MODES = {"Hex", "ASCII", "UTF-16LE", "UTF-16BE"};
+    private static final int MAX_HITS = 10_000;
+
+    private HexEditor editor;
+    private JTextField patternField = new JTextField(24);
+    private JComboBox<String> modeBox = new JComboBox<>(MODES);
+    private DefaultListModel<Long> hits = new DefaultListModel<>();
+    private JList<Long> hitList = new JList<>(hits);
+    private JLabel searchStatus = new JLabel(" ");
+    private PatternSearch search;
+    //the shown content the hits belong to
+    private PieceTable searched;
+    private SwingWorker<?, ?> worker;
+
+    public SearchDialog(HexEditor editor){
+        super(editor.getMainFrame(), "Find", false);
+        this.editor = editor;
+
+        JButton findAllButton = new JButton("Find all");
+        findAllButton.addActionListener(event -> findAll());
+        JButton findNextButton = new JButton("Find next");
+        findNextButton.addActionListener(event -> findNext());
+        JButton stopButton = new JButton("Stop");
+        stopButton.addActionListener(event -> stopSearch());
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(patternField);
+        controls.add(modeBox);
+        controls.add(findAllButton);
+        controls.add(findNextButton);
+        controls.add(stopButton);
+
+        hitList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        hitList.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        hitList.setCellRenderer(new DefaultListCellRenderer(){
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index
+                    , boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, String.format("0x%016X", (Long) value)
+                        , index, isSelected, cellHasFocus);
+            }
+        });
+        hitList.addListSelectionListener(event -> {
+            if (!event.getValueIsAdjusting() && hitList.getSelectedValue() != null)
+                editor.goToOffset(hitList.getSelectedValue());
+        });
+        editor.addWindowMoveListener(() -> {
+            if (searched != null && editor.getEditBuffer() != searched) dropHits();
+        });
+
+        getContentPane().add(controls, BorderLayout.NORTH);
+        getContentPane().add(new JScrollPane(hitList), BorderLayout.CENTER);
+        getContentPane().add(searchStatus, BorderLayout.SOUTH);
+        getRootPane().setDefaultButton(findNextButton);
+        setSize(560, 400);
+        setLocationRelativeTo(editor.getMainFrame());
+    }
+
+    /**
+     * Stops the running search, its hits would point to moved bytes after an edit.
+     */
+    void contentEdited(){
+        if (worker != null && !worker.isDone()) {
+            stopSearch();
+            searchStatus.setText("Search stopped by an edit");
+        }
+    }
+
+    /**
+     * Another tab is shown, the hits are offsets in the file which was searched.
+     */
+    private void dropHits(){
+        stopSearch();
+        search = null;
+        searched = null;
+        hits.clear();
+        searchStatus.setText("Another file shown, find again");
+    }
+
+    private void findAll(){
+        PatternSearch newSearch = startSearch();
+        if (newSearch == null) return;
+        hits.clear();
+        long searchStart = System.nanoTime();
+        SwingWorker<Void, Long> findAllWorker = new SwingWorker<Void, Long>(){
+            @Override
+            protected Void doInBackground() throws Exception {
+                int[] count = {0};
+                newSearch.findAll(0, Long.MAX_VALUE, offset -> {
+                    synchronized (count) {
+                        if (++count[0] > MAX_HITS) {
+                            newSearch.cancel();
+                            return;
+                        }
+                    }
+                    publish(offset);
+                });
+                return null;
+            }
+
+            @Override
+            protected void process(List<Long> chunks){
+                if (newSearch != search) return;
+                for (Long offset: chunks)
+                    hits.add(insertionIndex(offset), offset);
+                searchStatus.setText(hits.size() + " hits so far");
+            }
+
+            @Override
+            protected void done(){
+                if (newSearch != search) return;
+                String result = hits.size() + " hits in " + (System.nanoTime() - searchStart) / 1_000_000 + " ms";
+                if (hits.size() >= MAX_HITS) result += ", stopped at the limit";
+                else if (newSearch.isCancelled()) result += ", stopped";
+                else result = failureOr(this, result);
+                searchStatus.setText(result);
+            }
+        };
+        worker = findAllWorker;
+        findAllWorker.execute();
+    }
+
+    private void findNext(){
+        PatternSearch newSearch = startSearch();
+        if (newSearch == null) return;
+        long from = editor.getCaretOffset() + 1;
+        SwingWorker<Long, Void> findNextWorker = new SwingWorker<Long, Void>(){
+            @Override
+            protected Long doInBackground() throws Exception {
+                return newSearch.findNext(from);
+            }
+
+            @Override
+            protected void done(){
+                if (newSearch != search || newSearch.isCancelled()) return;
+                try {
+                    long hit = get();
+                    if (hit < 0) {
+                        searchStatus.setText("Not found");
+                        return;
+                    }
+                    searchStatus.setText(String.format("Found at 0x%X", hit));
+                    editor.goToOffset(hit);
+                } catch (InterruptedException | ExecutionException ex) {
+                    searchStatus.setText(failureOr(this, ""));
+                }
+            }
+        };
+        worker = findNextWorker;
+        findNextWorker.execute();
+    }
+
+    private PatternSearch startSearch(){
+        stopSearch();
+        PieceTable content = editor.getEditBuffer();
+        if (content == null) return null;
+        try {
+            search = new PatternSearch(content, pattern());
+            searched = content;
+            searchStatus.setText("Searching...");
+            return search;
+        } catch (IllegalArgumentException ex) {
+            searchStatus.setText(ex.getMessage());
+            return null;
+        }
+    }
+
+    private void stopSearch(){
+        if (search != null) search.cancel();
+        if (worker != null) worker.cancel(false);
+    }
+
+    private BytePattern pattern(){
+        String text = patternField.getText();
+        switch (modeBox.getSelectedIndex()) {
+            case 1:
+                return BytePattern.fromAscii(text);
+            case 2:
+                return BytePattern.fromText(text, StandardCharsets.UTF_16LE);
+            case 3:
+                return BytePattern.fromText(text, StandardCharsets.UTF_16BE);
+            default:
+                return BytePattern.fromHex(text);
+        }
+    }
+
+    private int insertionIndex(long offset){
+        int low = 0;
+        int high = hits.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (hits.get(middle) < offset) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private static String failureOr(SwingWorker<?, ?> finished, String result){
+        try {
+            finished.get();
+            return result;
+        } catch (InterruptedException | ExecutionException ex) {
+            return "Search failed: " + (ex.getCause() != null ? ex.getCause() : ex);
+        }
+    }
+}
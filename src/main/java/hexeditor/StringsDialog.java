@@ -0,0 +1,357 @@
+package hexeditor;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Strings of the shown file, found by a {@link StringsIndex} on all cores and listed by offset. The list
+ * reads the characters of the rows it shows from the content, so it costs no more than the index. Edits
+ * scan again only the blocks they touched, the index of an unedited file is cached in a sidecar file.
+ */
+public class StringsDialog extends JDialog {
+    //the list shows and the filter looks at this many characters of a string
+    private static final int MAX_SHOWN_CHARS = 120;
+    private static final int RESCAN_DELAY_MS = 300;
+    private static final int FILTER_DELAY_MS = 300;
+    private static final int PROGRESS_MS = 250;
+
+    private HexEditor editor;
+    private JSpinner minLengthSpinner = new JSpinner(
+            new SpinnerNumberModel(StringsIndex.DEFAULT_MIN_LENGTH, 2, 256, 1));
+    private JCheckBox asciiBox = new JCheckBox("ASCII", true);
+    private JCheckBox utf16leBox = new JCheckBox("UTF-16LE", true);
+    private JCheckBox utf16beBox = new JCheckBox("UTF-16BE", true);
+    private JTextField filterField = new JTextField(16);
+    private HitListModel rows = new HitListModel();
+    private JList<Integer> hitList = new JList<>(rows);
+    private JLabel stringsStatus = new JLabel(" ");
+    private final IoExecutor stringsTasks = new IoExecutor("hexeditor-strings");
+    private final Timer rescanTimer = new Timer(RESCAN_DELAY_MS, event -> build());
+    private final Timer filterTimer = new Timer(FILTER_DELAY_MS, event -> applyFilter());
+    private final Timer progressTimer = new Timer(PROGRESS_MS, event -> showProgress());
+    private final PieceTable.EditListener indexUpdater = this::contentEdited;
+
+    private PieceTable content;
+    private StringsIndex index;
+    //the content changed since it was indexed, the sidecar no longer fits it
+    private boolean edited;
+    //the index is in the sidecar already
+    private boolean cached;
+    private Path sidecar;
+    private long fileSize;
+    private long modified;
+    private Future<?> pendingBuild;
+    private Future<?> pendingFilter;
+    private long buildStart;
+
+    public StringsDialog(HexEditor editor){
+        super(editor.getMainFrame(), "Strings", false);
+        this.editor = editor;
+        rescanTimer.setRepeats(false);
+        filterTimer.setRepeats(false);
+
+        JButton scanButton = new JButton("Scan");
+        scanButton.addActionListener(event -> open(editor.getEditBuffer()));
+        asciiBox.addActionListener(event -> applyFilter());
+        utf16leBox.addActionListener(event -> applyFilter());
+        utf16beBox.addActionListener(event -> applyFilter());
+        filterField.getDocument().addDocumentListener(new DocumentListener(){
+            @Override
+            public void insertUpdate(DocumentEvent event){
+                filterTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent event){
+                filterTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent event){
+                filterTimer.restart();
+            }
+        });
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(new JLabel("Min length"));
+        controls.add(minLengthSpinner);
+        controls.add(scanButton);
+        controls.add(asciiBox);
+        controls.add(utf16leBox);
+        controls.add(utf16beBox);
+        controls.add(new JLabel("Filter"));
+        controls.add(filterField);
+
+        Font font = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+        FontMetrics metrics = hitList.getFontMetrics(font);
+        hitList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        hitList.setFont(font);
+        //fixed cells keep the list from measuring every row
+        hitList.setFixedCellHeight(metrics.getHeight() + 2);
+        hitList.setFixedCellWidth(metrics.charWidth('0') * (30 + MAX_SHOWN_CHARS));
+        hitList.setCellRenderer(new DefaultListCellRenderer(){
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index
+                    , boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, describe((Integer) value), index, isSelected
+                        , cellHasFocus);
+            }
+        });
+        hitList.addListSelectionListener(event -> {
+            if (!event.getValueIsAdjusting() && hitList.getSelectedValue() != null)
+                editor.goToOffset(index.offset(hitList.getSelectedValue()));
+        });
+        editor.addWindowMoveListener(() -> {
+            if (isVisible() && editor.getEditBuffer() != content) open(editor.getEditBuffer());
+        });
+
+        getContentPane().add(controls, BorderLayout.NORTH);
+        getContentPane().add(new JScrollPane(hitList), BorderLayout.CENTER);
+        getContentPane().add(stringsStatus, BorderLayout.SOUTH);
+        setSize(760, 480);
+        setLocationRelativeTo(editor.getMainFrame());
+    }
+
+    @Override
+    public void setVisible(boolean visible){
+        if (visible && editor.getEditBuffer() != content) open(editor.getEditBuffer());
+        super.setVisible(visible);
+    }
+
+    /**
+     * Indexes the content, from its sidecar when the file is unedited and was indexed with the same length.
+     */
+    private void open(PieceTable opened){
+        stop();
+        if (content != null) content.removeEditListener(indexUpdater);
+        rows.show(new int[0]);
+        content = opened;
+        index = null;
+        cached = false;
+        if (content == null) {
+            stringsStatus.setText(" ");
+            return;
+        }
+        //edits made before the dialog saw the buffer count too, the sidecar is of the file on disk
+        edited = !content.isOriginal();
+        boolean unedited = !edited;
+        content.addEditListener(indexUpdater);
+        Path file = editor.getCurrentFile();
+        int minLength = (Integer) minLengthSpinner.getValue();
+        PieceTable loading = content;
+        sidecar = OverviewStrip.sidecarFor(file, ".strings");
+        stringsStatus.setText("Scanning...");
+        buildStart = System.nanoTime();
+        pendingBuild = stringsTasks.submit(progress -> {
+            fileSize = Files.size(file);
+            modified = Files.getLastModifiedTime(file).toMillis();
+            StringsIndex saved = unedited ? StringsIndex.load(sidecar, fileSize, modified, minLength) : null;
+            return saved != null && fileSize == loading.length()
+                    ? saved : new StringsIndex(loading.length(), minLength);
+        }, new IoExecutor.IoCallback<StringsIndex>(){
+            @Override
+            public void done(StringsIndex loaded){
+                if (loading != content) return;
+                pendingBuild = null;
+                //the loaded index doesn't know where an edit made meanwhile went
+                index = edited ? new StringsIndex(content.length(), minLength) : loaded;
+                cached = index.isComplete();
+                build();
+            }
+
+            @Override
+            public void failed(Exception ex){
+                if (loading != content) return;
+                pendingBuild = null;
+                stringsStatus.setText("Scan failed: " + ex);
+            }
+        });
+    }
+
+    /**
+     * Moves the index with the edit and scans the touched blocks again once the edits stop coming.
+     */
+    private void contentEdited(long offset, long removedLength, long insertedLength){
+        edited = true;
+        if (index == null) return;
+        //the rows are numbers of hits, which an edit renumbers
+        if (pendingFilter != null) pendingFilter.cancel(false);
+        pendingFilter = null;
+        rows.show(new int[0]);
+        index.contentEdited(offset, removedLength, insertedLength);
+        stringsStatus.setText("Scanning the edited blocks...");
+        rescanTimer.restart();
+    }
+
+    private void build(){
+        if (index == null || pendingBuild != null) return;
+        if (index.isComplete()) {
+            built();
+            return;
+        }
+        PieceTable scanning = content;
+        StringsIndex scanned = index;
+        progressTimer.start();
+        pendingBuild = stringsTasks.submit(progress -> {
+            scanned.build(scanning, ForkJoinPool.commonPool());
+            return scanned.isComplete();
+        }, new IoExecutor.IoCallback<Boolean>(){
+            @Override
+            public void done(Boolean complete){
+                if (scanned != index) return;
+                pendingBuild = null;
+                progressTimer.stop();
+                //an edit during the scan left blocks to do again
+                if (!complete) rescanTimer.restart();
+                else built();
+            }
+
+            @Override
+            public void failed(Exception ex){
+                if (scanned != index) return;
+                pendingBuild = null;
+                progressTimer.stop();
+                stringsStatus.setText("Scan failed: " + ex);
+            }
+        });
+    }
+
+    private void built(){
+        if (!edited && !cached) {
+            cached = true;
+            StringsIndex saved = index;
+            Path target = sidecar;
+            long size = fileSize;
+            long time = modified;
+            stringsTasks.submit(progress -> {
+                saved.save(target, size, time);
+                return null;
+            }, done -> {});
+        }
+        applyFilter();
+    }
+
+    /**
+     * Lists the hits of the chosen kinds holding the filter text, in the background when it has to read them.
+     */
+    private void applyFilter(){
+        if (pendingFilter != null) pendingFilter.cancel(false);
+        pendingFilter = null;
+        if (index == null || pendingBuild != null || !index.isComplete()) return;
+        String text = filterField.getText().toLowerCase(Locale.ROOT);
+        boolean[] kinds = {asciiBox.isSelected(), utf16leBox.isSelected(), utf16beBox.isSelected()};
+        int total = index.size();
+        String scanned = String.format("%d strings, %d ms", total, (System.nanoTime() - buildStart) / 1_000_000);
+        if (text.isEmpty() && kinds[0] && kinds[1] && kinds[2]) {
+            rows.show(null);
+            stringsStatus.setText(scanned);
+            return;
+        }
+        StringsIndex filtered = index;
+        PieceTable filtering = content;
+        stringsStatus.setText("Filtering...");
+        pendingFilter = stringsTasks.submit(progress -> {
+            int[] matches = new int[64];
+            int count = 0;
+            for (int hit = 0; hit < total; ++hit) {
+                progress.progress(hit, total);
+                if (!kinds[filtered.kind(hit).ordinal()]) continue;
+                if (!text.isEmpty()
+                        && !filtered.text(filtering, hit, MAX_SHOWN_CHARS).toLowerCase(Locale.ROOT).contains(text))
+                    continue;
+                if (count == matches.length) matches = Arrays.copyOf(matches, count * 2);
+                matches[count++] = hit;
+            }
+            return Arrays.copyOf(matches, count);
+        }, new IoExecutor.IoCallback<int[]>(){
+            @Override
+            public void done(int[] matches){
+                if (filtered != index) return;
+                pendingFilter = null;
+                rows.show(matches);
+                stringsStatus.setText(matches.length + " shown of " + scanned);
+            }
+
+            @Override
+            public void failed(Exception ex){
+                if (filtered != index) return;
+                pendingFilter = null;
+                stringsStatus.setText("Filter failed: " + ex);
+            }
+        });
+    }
+
+    private void showProgress(){
+        if (index != null) stringsStatus.setText(index.size() + " strings so far");
+    }
+
+    private void stop(){
+        rescanTimer.stop();
+        filterTimer.stop();
+        progressTimer.stop();
+        if (index != null) index.cancel();
+        if (pendingBuild != null) pendingBuild.cancel(false);
+        if (pendingFilter != null) pendingFilter.cancel(false);
+        pendingBuild = null;
+        pendingFilter = null;
+    }
+
+    private String describe(Integer hit){
+        if (hit == null || index == null) return "";
+        String text;
+        try {
+            text = index.text(content, hit, MAX_SHOWN_CHARS).replace('\t', ' ');
+        } catch (IOException ex) {
+            text = ex.toString();
+        }
+        return String.format("0x%016X %-8s %s", index.offset(hit), kindName(index.kind(hit)), text);
+    }
+
+    private static String kindName(StringsIndex.Kind kind){
+        switch (kind) {
+            case UTF16LE:
+                return "UTF-16LE";
+            case UTF16BE:
+                return "UTF-16BE";
+            default:
+                return "ASCII";
+        }
+    }
+
+    /**
+     * Rows of hit numbers, all hits of the index or the ones passing the filter.
+     */
+    private class HitListModel extends AbstractListModel<Integer> {
+        //null lists every hit without an array for them
+        private int[] shown = new int[0];
+
+        void show(int[] hits){
+            int previous = getSize();
+            hitList.clearSelection();
+            shown = hits;
+            int size = getSize();
+            if (previous > size) fireIntervalRemoved(this, size, previous - 1);
+            if (size > previous) fireIntervalAdded(this, previous, size - 1);
+            if (Math.min(previous, size) > 0) fireContentsChanged(this, 0, Math.min(previous, size) - 1);
+        }
+
+        @Override
+        public int getSize(){
+            return shown != null ? shown.length : index == null ? 0 : index.size();
+        }
+
+        @Override
+        public Integer getElementAt(int row){
+            return shown != null ? shown[row] : row;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package hexeditor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs of printable ASCII, UTF-16LE and UTF-16BE characters of a minimum length in the content, like the
+ * strings tool finds them. The content is cut into blocks which are scanned in parallel; every block keeps
+ * its hits as two int arrays, the start within the block and the length with the kind in its low bits,
+ * so millions of hits cost eight bytes each and no objects.
+ * <p>
+ * Blocks follow the content as it's edited: the blocks an edit touched are scanned again, the ones behind
+ * it only move. A run belongs to the block it starts in and may go on into the next one, up to
+ * {@link #MAX_CONTINUATION} bytes. The index of an unedited file is saved to a sidecar file.
+ */
+public class StringsIndex {
+    public enum Kind { ASCII, UTF16LE, UTF16BE }
+
+    static final int DEFAULT_MIN_LENGTH = 4;
+    static final int BLOCK_SIZE = 1024 * 1024;
+    //a run going on past the end of its block is cut after this many more bytes
+    static final int MAX_CONTINUATION = 64 * 1024;
+    //a run going on into the block has its start this far before it
+    private static final int LOOKBEHIND = 2;
+    private static final int KIND_BITS = 2;
+    private static final int SIDECAR_MAGIC = 0x48585354;
+    private static final int SIDECAR_VERSION = 1;
+    private static final Kind[] KINDS = Kind.values();
+
+    private final int minLength;
+    private long length;
+    private int blockCount;
+    private long[] blockStarts;
+    private int[][] hitStarts;
+    private int[][] hitLengths;
+    private boolean[] scanned;
+    private int scannedCount;
+    //hits in the blocks before each block, computed again after a change
+    private int[] hitsBefore;
+    //counts edits, so a block scanned while an edit came in isn't stored
+    private int version = 0;
+    private volatile boolean cancelled = false;
+
+    public StringsIndex(long length, int minLength){
+        this.minLength = minLength;
+        this.length = length;
+        blockCount = (int) Math.max(1, (length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        blockStarts = new long[blockCount];
+        for (int block = 0; block < blockCount; ++block)
+            blockStarts[block] = (long) block * BLOCK_SIZE;
+        hitStarts = new int[blockCount][];
+        hitLengths = new int[blockCount][];
+        scanned = new boolean[blockCount];
+    }
+
+    public int minLength(){
+        return minLength;
+    }
+
+    public synchronized long length(){
+        return length;
+    }
+
+    public synchronized boolean isComplete(){
+        return scannedCount == blockCount;
+    }
+
+    /**
+     * Count of hits in the blocks scanned so far.
+     */
+    public synchronized int size(){
+        prepareHitsBefore();
+        return hitsBefore[blockCount];
+    }
+
+    public synchronized long offset(int hit){
+        int block = blockOf(hit);
+        return blockStarts[block] + hitStarts[block][hit - hitsBefore[block]];
+    }
+
+    /**
+     * Length of the hit in bytes, twice its characters for UTF-16.
+     */
+    public synchronized int length(int hit){
+        int block = blockOf(hit);
+        return hitLengths[block][hit - hitsBefore[block]] >>> KIND_BITS;
+    }
+
+    public synchronized Kind kind(int hit){
+        int block = blockOf(hit);
+        return KINDS[hitLengths[block][hit - hitsBefore[block]] & ((1 << KIND_BITS) - 1)];
+    }
+
+    /**
+     * Characters of the hit, at most {@code maxChars} of them.
+     */
+    public String text(PieceTable content, int hit, int maxChars) throws IOException {
+        long offset;
+        int bytes;
+        Kind kind;
+        synchronized (this) {
+            offset = offset(hit);
+            bytes = length(hit);
+            kind = kind(hit);
+        }
+        int unit = kind == Kind.ASCII ? 1 : 2;
+        byte[] data = new byte[Math.min(bytes, maxChars * unit)];
+        int read = content.read(offset, data, 0, data.length);
+        return new String(data, 0, read - read % unit, charset(kind));
+    }
+
+    private static Charset charset(Kind kind){
+        switch (kind) {
+            case UTF16LE:
+                return StandardCharsets.UTF_16LE;
+            case UTF16BE:
+                return StandardCharsets.UTF_16BE;
+            default:
+                return StandardCharsets.US_ASCII;
+        }
+    }
+
+    /**
+     * Scans every block which isn't scanned yet in parallel on the pool.
+     */
+    public void build(PieceTable content, ForkJoinPool pool) throws IOException {
+        cancelled = false;
+        int[] blocks;
+        synchronized (this) {
+            blocks = new int[blockCount - scannedCount];
+            for (int block = 0, count = 0; block < blockCount; ++block)
+                if (!scanned[block]) blocks[count++] = block;
+        }
+        try {
+            pool.invoke(new ScanTask(content, blocks, 0, blocks.length));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public void cancel(){
+        cancelled = true;
+    }
+
+    /**
+     * Moves the blocks behind the edit and drops the hits of the blocks it touched, with their neighbours,
+     * whose runs may have gone on into them. The touched blocks become one, cut again if it got long.
+     */
+    public synchronized void contentEdited(long offset, long removedLength, long insertedLength){
+        ++version;
+        long delta = insertedLength - removedLength;
+        int first = blockAt(offset);
+        int last = blockAt(offset + Math.max(0, removedLength - 1));
+        //the blocks the removal covered become part of the first one
+        if (last > first) removeBlocks(first + 1, last + 1);
+        for (int block = first + 1; block < blockCount; ++block)
+            blockStarts[block] += delta;
+        length += delta;
+        splitLong(first);
+        for (int block = Math.max(0, first - 1); block < blockCount && block <= first + 1; ++block)
+            markDirty(block);
+        hitsBefore = null;
+    }
+
+    /**
+     * Writes the index of the file with the given size and modification time, read back by {@link #load}.
+     */
+    public synchronized void save(Path sidecar, long fileSize, long modified) throws IOException {
+        Files.createDirectories(sidecar.toAbsolutePath().getParent());
+        Path temp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SIDECAR_MAGIC);
+            out.writeInt(SIDECAR_VERSION);
+            out.writeLong(fileSize);
+            out.writeLong(modified);
+            out.writeInt(minLength);
+            out.writeInt(blockCount);
+            for (int block = 0; block < blockCount; ++block) {
+                out.writeLong(blockStarts[block]);
+                out.writeInt(hitStarts[block].length);
+                for (int start: hitStarts[block]) out.writeInt(start);
+                for (int lengthAndKind: hitLengths[block]) out.writeInt(lengthAndKind);
+            }
+        }
+        Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a complete index saved for the file with the given size and modification time and the minimum
+     * length, or returns null.
+     */
+    public static StringsIndex load(Path sidecar, long fileSize, long modified, int minLength){
+        if (!Files.isReadable(sidecar)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != SIDECAR_MAGIC || in.readInt() != SIDECAR_VERSION) return null;
+            if (in.readLong() != fileSize || in.readLong() != modified || in.readInt() != minLength) return null;
+            StringsIndex index = new StringsIndex(fileSize, minLength);
+            if (in.readInt() != index.blockCount) return null;
+            for (int block = 0; block < index.blockCount; ++block) {
+                if (in.readLong() != index.blockStarts[block]) return null;
+                int hits = in.readInt();
+                index.hitStarts[block] = new int[hits];
+                index.hitLengths[block] = new int[hits];
+                for (int hit = 0; hit < hits; ++hit) index.hitStarts[block][hit] = in.readInt();
+                for (int hit = 0; hit < hits; ++hit) index.hitLengths[block][hit] = in.readInt();
+            }
+            Arrays.fill(index.scanned, true);
+            index.scannedCount = index.blockCount;
+            return index;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the runs starting in data[from, to) of at least {@code minLength} characters and passes them to
+     * the sink. Runs may go on up to {@code dataEnd}; a run which started before
+     * {@code from}, as the bytes before it show, isn't reported.
+     */
+    static void scan(byte[] data, int from, int to, int dataEnd, int minLength, HitSink sink){
+        int i = from;
+        if (i > 0 && isPrintable(data[i - 1])) {
+            while (i < to && isPrintable(data[i])) ++i;
+        }
+        while (i < to) {
+            if (!isPrintable(data[i])) {
+                ++i;
+                continue;
+            }
+            int start = i;
+            while (i < dataEnd && isPrintable(data[i])) ++i;
+            if (i - start >= minLength) sink.hit(start, i - start, Kind.ASCII);
+        }
+        long[] little = utf16Runs(data, from, to, dataEnd, minLength, false);
+        long[] big = utf16Runs(data, from, to, dataEnd, minLength, true);
+        //a UTF-16 string read one byte off is a string of the other byte order, the longer reading is kept
+        boolean[] dropped = new boolean[little.length];
+        for (long run: big) {
+            int start = (int) (run >>> 32);
+            boolean keep = true;
+            for (int shift = -1; shift <= 1; shift += 2) {
+                int other = Arrays.binarySearch(little, (long) (start + shift) << 32);
+                other = other < 0 ? -other - 1 : other;
+                if (other >= little.length || (int) (little[other] >>> 32) != start + shift) continue;
+                if ((int) little[other] >= (int) run) keep = false;
+                else dropped[other] = true;
+            }
+            if (keep) sink.hit(start, (int) run, Kind.UTF16BE);
+        }
+        for (int run = 0; run < little.length; ++run)
+            if (!dropped[run]) sink.hit((int) (little[run] >>> 32), (int) little[run], Kind.UTF16LE);
+    }
+
+    interface HitSink {
+        void hit(int start, int length, Kind kind);
+    }
+
+    /**
+     * Runs of one byte order as start and length in bytes, the start in the high half, ordered by start.
+     */
+    private static long[] utf16Runs(byte[] data, int from, int to, int dataEnd, int minLength, boolean bigEndian){
+        long[] runs = new long[16];
+        int count = 0;
+        //characters at even and at odd positions are separate runs
+        for (int first = from; first < from + 2; ++first) {
+            int i = first;
+            if (i >= 2 && isCharacter(data, i - 2, dataEnd, bigEndian)) {
+                while (i < to && isCharacter(data, i, dataEnd, bigEndian)) i += 2;
+            }
+            while (i < to) {
+                if (!isCharacter(data, i, dataEnd, bigEndian)) {
+                    i += 2;
+                    continue;
+                }
+                int start = i;
+                while (isCharacter(data, i, dataEnd, bigEndian)) i += 2;
+                if ((i - start) / 2 < minLength) continue;
+                if (count == runs.length) runs = Arrays.copyOf(runs, count * 2);
+                runs[count++] = (long) start << 32 | (i - start);
+            }
+        }
+        runs = Arrays.copyOf(runs, count);
+        Arrays.sort(runs);
+        return runs;
+    }
+
+    private static boolean isPrintable(byte value){
+        return value >= 0x20 && value <= 0x7e || value == '\t';
+    }
+
+    private static boolean isCharacter(byte[] data, int i, int dataEnd, boolean bigEndian){
+        if (i + 1 >= dataEnd) return false;
+        return bigEndian ? data[i] == 0 && isPrintable(data[i + 1]) : isPrintable(data[i]) && data[i + 1] == 0;
+    }
+
+    private long blockLength(int block){
+        return (block + 1 < blockCount ? blockStarts[block + 1] : length) - blockStarts[block];
+    }
+
+    /**
+     * Block holding the offset, the last one for the end of the content.
+     */
+    private int blockAt(long offset){
+        int index = Arrays.binarySearch(blockStarts, 0, blockCount, offset);
+        if (index < 0) index = -index - 2;
+        //of empty blocks starting at the same offset, the last one holds it
+        while (index + 1 < blockCount && blockStarts[index + 1] == offset) ++index;
+        return Math.max(0, index);
+    }
+
+    private int blockOf(int hit){
+        prepareHitsBefore();
+        if (hit < 0 || hit >= hitsBefore[blockCount]) throw new IndexOutOfBoundsException("No hit " + hit);
+        int index = Arrays.binarySearch(hitsBefore, 0, blockCount + 1, hit);
+        if (index < 0) return -index - 2;
+        //blocks without hits have the count of the next one
+        while (hitsBefore[index + 1] == hit) ++index;
+        return index;
+    }
+
+    private void prepareHitsBefore(){
+        if (hitsBefore != null) return;
+        hitsBefore = new int[blockCount + 1];
+        for (int block = 0; block < blockCount; ++block)
+            hitsBefore[block + 1] = hitsBefore[block] + (scanned[block] ? hitStarts[block].length : 0);
+    }
+
+    private void markDirty(int block){
+        if (scanned[block]) {
+            scanned[block] = false;
+            --scannedCount;
+        }
+    }
+
+    private void removeBlocks(int from, int to){
+        for (int block = from; block < to; ++block)
+            if (scanned[block]) --scannedCount;
+        int removed = to - from;
+        System.arraycopy(blockStarts, to, blockStarts, from, blockCount - to);
+        System.arraycopy(hitStarts, to, hitStarts, from, blockCount - to);
+        System.arraycopy(hitLengths, to, hitLengths, from, blockCount - to);
+        System.arraycopy(scanned, to, scanned, from, blockCount - to);
+        blockCount -= removed;
+    }
+
+    /**
+     * Cuts a block which grew past two block sizes into blocks of the block size, the new ones not scanned.
+     */
+    private void splitLong(int block){
+        long blockLength = blockLength(block);
+        if (blockLength <= 2L * BLOCK_SIZE) return;
+        int added = (int) ((blockLength - 1) / BLOCK_SIZE);
+        int newCount = blockCount + added;
+        if (newCount > blockStarts.length) {
+            int capacity = Math.max(newCount, blockStarts.length * 2);
+            blockStarts = Arrays.copyOf(blockStarts, capacity);
+            hitStarts = Arrays.copyOf(hitStarts, capacity);
+            hitLengths = Arrays.copyOf(hitLengths, capacity);
+            scanned = Arrays.copyOf(scanned, capacity);
+        }
+        int after = blockCount - block - 1;
+        System.arraycopy(blockStarts, block + 1, blockStarts, block + 1 + added, after);
+        System.arraycopy(hitStarts, block + 1, hitStarts, block + 1 + added, after);
+        System.arraycopy(hitLengths, block + 1, hitLengths, block + 1 + added, after);
+        System.arraycopy(scanned, block + 1, scanned, block + 1 + added, after);
+        for (int i = 1; i <= added; ++i) {
+            blockStarts[block + i] = blockStarts[block] + (long) i * BLOCK_SIZE;
+            hitStarts[block + i] = null;
+            hitLengths[block + i] = null;
+            scanned[block + i] = false;
+        }
+        blockCount = newCount;
+    }
+
+    private synchronized int version(){
+        return version;
+    }
+
+    /**
+     * Start and length of the block as it is at the version, or null if it's scanned.
+     */
+    private synchronized long[] unscannedBlock(int block){
+        if (block >= blockCount || scanned[block]) return null;
+        return new long[]{blockStarts[block], blockLength(block), length};
+    }
+
+    private synchronized void store(int block, int blockVersion, long[] hits, int count){
+        if (block >= blockCount || scanned[block] || blockVersion != version) return;
+        Arrays.sort(hits, 0, count);
+        int[] starts = new int[count];
+        int[] lengths = new int[count];
+        for (int hit = 0; hit < count; ++hit) {
+            starts[hit] = (int) (hits[hit] >>> 32);
+            lengths[hit] = (int) hits[hit];
+        }
+        hitStarts[block] = starts;
+        hitLengths[block] = lengths;
+        scanned[block] = true;
+        ++scannedCount;
+        hitsBefore = null;
+    }
+
+    private class ScanTask extends RecursiveAction {
+        private final PieceTable content;
+        private final int[] blocks;
+        private final int first;
+        private final int end;
+
+        ScanTask(PieceTable content, int[] blocks, int first, int end){
+            this.content = content;
+            this.blocks = blocks;
+            this.first = first;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute(){
+            if (cancelled || first >= end) return;
+            if (end - first > 1) {
+                int middle = (first + end) >>> 1;
+                invokeAll(new ScanTask(content, blocks, first, middle), new ScanTask(content, blocks, middle, end));
+                return;
+            }
+            try {
+                scanBlock(blocks[first]);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void scanBlock(int block) throws IOException {
+            int blockVersion = version();
+            long[] range = unscannedBlock(block);
+            if (range == null) return;
+            long start = range[0];
+            int lookbehind = (int) Math.min(LOOKBEHIND, start);
+            long dataEnd = Math.min(range[2], start + range[1] + MAX_CONTINUATION);
+            byte[] data = new byte[(int) (dataEnd - start + lookbehind)];
+            int read = content.read(start - lookbehind, data, 0, data.length);
+            long[][] hits = {new long[64]};
+            int[] count = {0};
+            scan(data, lookbehind, (int) Math.min(read, lookbehind + range[1]), read, minLength
+                    , (hitStart, hitLength, kind) -> {
+                if (count[0] == hits[0].length) hits[0] = Arrays.copyOf(hits[0], count[0] * 2);
+                hits[0][count[0]++] = (long) (hitStart - lookbehind) << 32 | hitLength << KIND_BITS | kind.ordinal();
+            });
+            if (!cancelled) store(block, blockVersion, hits[0], count[0]);
+        }
+    }
+}
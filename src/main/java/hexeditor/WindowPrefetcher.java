@@ -0,0 +1,130 @@
+package hexeditor;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Reads windows ahead of the view in the direction it moves, so holding an arrow key or PageDown
+ * doesn't wait for the file at every window edge. The faster the window moves, the more windows are
+ * read ahead, up to a fixed budget; turning around cancels what was requested for the old direction.
+ * <p>
+ * Windows are kept as the bytes the views paint from, the views format them with lookup tables while painting.
+ * Everything but the reads happens on the event dispatch thread.
+ */
+public class WindowPrefetcher implements PieceTable.EditListener {
+    static final int MAX_WINDOWS_AHEAD = 8;
+    private static final int MAX_CACHED_WINDOWS = 2 * MAX_WINDOWS_AHEAD;
+    //windows ahead cover the moves expected within this time at the current speed
+    private static final long LOOKAHEAD_NANOS = 1_000_000_000L;
+
+    private final PieceTable content;
+    private final int windowSize;
+    private final IoExecutor executor;
+    private final Map<Long, byte[]> windows = new LinkedHashMap<Long, byte[]>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest){
+            return size() > MAX_CACHED_WINDOWS;
+        }
+    };
+    private final Map<Long, Future<byte[]>> pending = new LinkedHashMap<>();
+    private long direction = 0;
+    private long lastMoveTime = 0;
+    private long moveInterval = LOOKAHEAD_NANOS;
+    private int generation = 0;
+    //written on the event dispatch thread only, volatile for readers like JMX
+    private volatile long hits = 0;
+    private volatile long misses = 0;
+
+    public WindowPrefetcher(PieceTable content, int windowSize, IoExecutor executor){
+        this.content = content;
+        this.windowSize = windowSize;
+        this.executor = executor;
+        content.addEditListener(this);
+    }
+
+    /**
+     * Returns the window starting at the offset if it was read ahead, otherwise null.
+     */
+    public byte[] take(long offset){
+        byte[] window = windows.remove(offset);
+        if (window != null) ++hits;
+        else ++misses;
+        return window;
+    }
+
+    /**
+     * Called when the view moved its window, requests the windows which come next in the same direction.
+     */
+    public void windowMoved(long from, long to){
+        long step = to - from;
+        if (step == 0) return;
+        long now = System.nanoTime();
+        if (Long.signum(step) != direction) {
+            cancelPending();
+            direction = Long.signum(step);
+            moveInterval = LOOKAHEAD_NANOS;
+        } else {
+            //smoothed, so a single slow or fast move doesn't change the budget much
+            moveInterval = (moveInterval + Math.max(1, now - lastMoveTime)) / 2;
+        }
+        lastMoveTime = now;
+        int ahead = (int) Math.max(1, Math.min(MAX_WINDOWS_AHEAD, LOOKAHEAD_NANOS / moveInterval));
+        long length = content.length();
+        for (int i = 1; i <= ahead; ++i) {
+            long offset = to + i * step;
+            if (offset < 0 || offset >= length) break;
+            request(offset);
+        }
+    }
+
+    @Override
+    public void contentEdited(long offset, long removedLength, long insertedLength){
+        cancelPending();
+        windows.clear();
+    }
+
+    public void close(){
+        content.removeEditListener(this);
+        cancelPending();
+        windows.clear();
+    }
+
+    public long getHits(){
+        return hits;
+    }
+
+    public long getMisses(){
+        return misses;
+    }
+
+    private void request(long offset){
+        if (windows.containsKey(offset) || pending.containsKey(offset)) return;
+        int requestGeneration = generation;
+        pending.put(offset, executor.submit(progress -> {
+            byte[] window = new byte[windowSize];
+            return Arrays.copyOf(window, content.read(offset, window, 0, windowSize));
+        }, new IoExecutor.IoCallback<byte[]>(){
+            @Override
+            public void done(byte[] window){
+                if (requestGeneration != generation) return;
+                pending.remove(offset);
+                windows.put(offset, window);
+            }
+
+            @Override
+            public void failed(Exception ex){
+                if (requestGeneration == generation) pending.remove(offset);
+                System.err.println(ex);
+            }
+        }));
+    }
+
+    private void cancelPending(){
+        ++generation;
+        for (Future<byte[]> future: pending.values())
+            future.cancel(false);
+        pending.clear();
+    }
+}
@@ -0,0 +1,79 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static hexeditor.BinaryDiff.CHUNK_SIZE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryDiffTest {
+
+    private Path leftFile;
+    private Path rightFile;
+
+    @BeforeEach public void createFiles() throws IOException {
+        byte[] left = new byte[2 * CHUNK_SIZE + 100];
+        new Random(3).nextBytes(left);
+        byte[] right = new byte[left.length + 10];
+        System.arraycopy(left, 0, right, 0, left.length);
+        right[5] ^= 1;
+        for (int i = CHUNK_SIZE - 2; i < CHUNK_SIZE + 3; ++i) right[i] ^= (byte) 0xff;
+        right[left.length - 1] ^= 1;
+        leftFile = Files.createTempFile(null, ".bin");
+        rightFile = Files.createTempFile(null, ".bin");
+        Files.write(leftFile, left);
+        Files.write(rightFile, right);
+    }
+
+    @AfterEach public void deleteFiles() throws IOException {
+        Files.deleteIfExists(leftFile);
+        Files.deleteIfExists(rightFile);
+    }
+
+    @Test public void rangesAcrossChunksTest() throws IOException {
+        try (PieceTable left = new PieceTable(leftFile); PieceTable right = new PieceTable(rightFile)) {
+            long[] done = {0};
+            DiffRanges ranges = new BinaryDiff(left, right).compare((compared, total) -> done[0] = total);
+            assertEquals(left.length(), done[0]);
+            assertEquals(3, ranges.count());
+            assertEquals(5, ranges.start(0));
+            assertEquals(6, ranges.end(0));
+            assertEquals(CHUNK_SIZE - 2, ranges.start(1));
+            assertEquals(CHUNK_SIZE + 3, ranges.end(1));
+            //the last differing byte touches the tail of the longer file
+            assertEquals(left.length() - 1, ranges.start(2));
+            assertEquals(right.length(), ranges.end(2));
+        }
+    }
+
+    @Test public void editedContentTest() throws IOException {
+        try (PieceTable left = new PieceTable(leftFile); PieceTable right = new PieceTable(leftFile)) {
+            assertEquals(0, new BinaryDiff(left, right).compare(null).count());
+            left.insert(10, new byte[]{1, 2});
+            left.delete(12, 2);
+            DiffRanges ranges = new BinaryDiff(left, right).compare(null);
+            assertTrue(ranges.count() >= 1);
+            assertTrue(ranges.start(0) >= 10 && ranges.end(0) <= 12);
+        }
+    }
+
+    @Test public void navigationAndMaskTest() {
+        DiffRanges ranges = new DiffRanges(new long[]{5, 20, 40}, new long[]{8, 30, 41}, 3);
+        assertEquals(1, ranges.next(5));
+        assertEquals(0, ranges.next(0));
+        assertEquals(-1, ranges.next(40));
+        assertEquals(1, ranges.previous(40));
+        assertEquals(-1, ranges.previous(5));
+        boolean[] mask = new boolean[16];
+        assertTrue(ranges.mark(16, 16, mask));
+        assertFalse(mask[3]);
+        assertTrue(mask[4]);
+        assertTrue(mask[13]);
+        assertFalse(mask[14]);
+        assertFalse(ranges.mark(8, 12, mask));
+    }
+}
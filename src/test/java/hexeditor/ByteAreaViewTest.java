@@ -0,0 +1,47 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.awt.*;
+import java.util.Random;
+
+import static hexeditor.HexEditor.AREA_RAW_SYMBOLS_IN_LINE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteAreaViewTest {
+
+    private final ByteAreaView symbols = new ByteAreaView(ByteAreaView.Column.SYMBOL);
+    private final byte[] window = new byte[4 * AREA_RAW_SYMBOLS_IN_LINE];
+
+    @Test public void symbolCaretMappingTest() {
+        new Random(7).nextBytes(window);
+        symbols.setWindow(window, window.length - 5);
+        assertMappingMatchesWidths(window.length - 5);
+    }
+
+    @Test public void symbolCaretMappingAfterEditTest() {
+        symbols.setWindow(window, window.length);
+        window[17] = 'a';
+        window[18] = (byte) 200;
+        symbols.bytesChanged(window.length - 1, 17, 19);
+        assertMappingMatchesWidths(window.length - 1);
+    }
+
+    private void assertMappingMatchesWidths(int length) {
+        int charWidth = symbols.cellBounds(0).width / ByteFormatter.symbolWidth(window[0]);
+        int rowHeight = symbols.getRowHeight();
+        for (int index = 0; index < length; ++index) {
+            int row = index / AREA_RAW_SYMBOLS_IN_LINE;
+            int column = 0;
+            for (int i = row * AREA_RAW_SYMBOLS_IN_LINE; i < index; ++i)
+                column += ByteFormatter.symbolWidth(window[i]);
+            Rectangle bounds = symbols.cellBounds(index);
+            assertEquals(column * charWidth, bounds.x - symbols.cellBounds(row * AREA_RAW_SYMBOLS_IN_LINE).x);
+            Point inside = new Point(bounds.x + bounds.width - 1, bounds.y + rowHeight / 2);
+            assertEquals(index, symbols.positionAt(inside));
+        }
+        int lastRowStart = (length - 1) / AREA_RAW_SYMBOLS_IN_LINE * AREA_RAW_SYMBOLS_IN_LINE;
+        Point pastRowEnd = new Point(10_000, symbols.cellBounds(lastRowStart).y + rowHeight / 2);
+        assertEquals(length - 1, symbols.positionAt(pastRowEnd));
+    }
+}
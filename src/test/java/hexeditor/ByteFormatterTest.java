@@ -0,0 +1,56 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteFormatterTest {
+
+    @Test public void formatHexRowTest() {
+        char[] row = new char[9];
+        byte[] data = {0x0a, (byte) 0xff, 0x30};
+        assertEquals(9, ByteFormatter.formatHexRow(data, 0, data.length, row, 0));
+        assertEquals("0a ff 30 ", new String(row));
+    }
+
+    @Test public void formatSymbolTest() {
+        char[] symbol = new char[ByteFormatter.SYMBOL_MAX_WIDTH];
+        assertEquals(2, ByteFormatter.formatSymbol(7, symbol, 0));
+        assertEquals("\\7", new String(symbol, 0, 2));
+        assertEquals(3, ByteFormatter.formatSymbol(31, symbol, 0));
+        assertEquals("\\31", new String(symbol, 0, 3));
+        assertEquals(1, ByteFormatter.formatSymbol('A', symbol, 0));
+        assertEquals('A', symbol[0]);
+        assertEquals(1, ByteFormatter.formatSymbol(0x80, symbol, 0));
+        assertEquals(ByteFormatter.SYMBOL_BOX, symbol[0]);
+    }
+
+    @Test public void hexDigitTest() {
+        assertEquals(11, ByteFormatter.hexDigit('b'));
+        assertEquals(15, ByteFormatter.hexDigit('F'));
+        assertEquals(-1, ByteFormatter.hexDigit('g'));
+    }
+
+    @Test public void isHexCopyTest() {
+        assertTrue(ByteFormatter.isHexCopy("0a ff 30"));
+        assertTrue(ByteFormatter.isHexCopy("CA FE"));
+        assertFalse(ByteFormatter.isHexCopy("cafe"));
+        assertFalse(ByteFormatter.isHexCopy("12"));
+        assertFalse(ByteFormatter.isHexCopy("add"));
+        assertFalse(ByteFormatter.isHexCopy("ab  cd"));
+        assertFalse(ByteFormatter.isHexCopy(""));
+    }
+
+    @Test public void parseHexBytesTest() {
+        assertArrayEquals(new byte[]{(byte) 0xde, (byte) 0xad, 0x0f}, ByteFormatter.parseHexBytes(" DE ad\n0f "));
+        assertEquals(0, ByteFormatter.parseHexBytes("").length);
+        assertThrows(IllegalArgumentException.class, () -> ByteFormatter.parseHexBytes("abc"));
+        assertThrows(IllegalArgumentException.class, () -> ByteFormatter.parseHexBytes("zz"));
+    }
+
+    @Test public void parseOffsetTest() {
+        assertEquals(0x3F000000L, ByteFormatter.parseOffset(" 0x3F000000 "));
+        assertEquals(0x3F000000L, ByteFormatter.parseOffset("0X3f00_0000"));
+        assertEquals(1234L, ByteFormatter.parseOffset("1234"));
+    }
+}
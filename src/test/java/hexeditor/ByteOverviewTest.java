@@ -0,0 +1,130 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteOverviewTest {
+    private static final int BLOCK_SIZE = ByteOverview.MIN_BLOCK_SIZE;
+
+    private Path file;
+    private Path sidecar;
+
+    @BeforeEach public void createFile() throws IOException {
+        //a block of zeros, a block of random bytes and half a block of text
+        byte[] bytes = new byte[BLOCK_SIZE * 5 / 2];
+        byte[] random = new byte[BLOCK_SIZE];
+        new Random(5).nextBytes(random);
+        System.arraycopy(random, 0, bytes, BLOCK_SIZE, BLOCK_SIZE);
+        Arrays.fill(bytes, 2 * BLOCK_SIZE, bytes.length, (byte) 'a');
+        file = Files.createTempFile(null, ".bin");
+        Files.write(file, bytes);
+        sidecar = Files.createTempFile(null, ".overview");
+    }
+
+    @AfterEach public void deleteFiles() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(sidecar);
+    }
+
+    @Test public void blockValuesTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            ByteOverview overview = new ByteOverview(table.length());
+            assertEquals(3, overview.blockCount());
+            assertNull(overview.values(0));
+            overview.compute(table, ForkJoinPool.commonPool());
+            assertTrue(overview.isComplete());
+            assertArrayEquals(new int[]{0, 255, 0, 0}, overview.values(0));
+            int[] random = overview.values(1);
+            assertTrue(random[0] > 240);
+            assertTrue(random[3] > 100 && random[3] < 155);
+            assertArrayEquals(new int[]{0, 0, 255, 0}, overview.values(2));
+        }
+    }
+
+    @Test public void blockSizeTest() {
+        assertEquals(BLOCK_SIZE, ByteOverview.blockSizeFor(0));
+        assertEquals(BLOCK_SIZE, ByteOverview.blockSizeFor((long) BLOCK_SIZE * ByteOverview.MAX_BLOCKS));
+        assertEquals(2 * BLOCK_SIZE, ByteOverview.blockSizeFor((long) BLOCK_SIZE * ByteOverview.MAX_BLOCKS + 1));
+    }
+
+    @Test public void editedBlocksTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            ByteOverview overview = new ByteOverview(table.length());
+            overview.compute(table, ForkJoinPool.commonPool());
+            table.replace(10, new byte[]{(byte) 0xff});
+            overview.contentEdited(10, 1, 1, table.length());
+            assertFalse(overview.isComputed(0));
+            assertTrue(overview.isComputed(1));
+            assertTrue(overview.isComputed(2));
+            overview.compute(table, ForkJoinPool.commonPool());
+            assertTrue(overview.isComplete());
+            assertEquals(254, overview.values(0)[1]);
+
+            table.insert(table.length(), new byte[BLOCK_SIZE]);
+            overview.contentEdited(table.length() - BLOCK_SIZE, 0, BLOCK_SIZE, table.length());
+            assertEquals(4, overview.blockCount());
+            assertTrue(overview.isComputed(1));
+            assertFalse(overview.isComputed(2));
+            assertFalse(overview.isComputed(3));
+        }
+    }
+
+    @Test public void movedBlocksTest() throws IOException {
+        //blocks of zeros and of text take turns
+        byte[] bytes = new byte[BLOCK_SIZE * 6];
+        for (int block = 1; block < 6; block += 2)
+            Arrays.fill(bytes, block * BLOCK_SIZE, (block + 1) * BLOCK_SIZE, (byte) 'a');
+        Files.write(file, bytes);
+        try (PieceTable table = new PieceTable(file)) {
+            ByteOverview overview = new ByteOverview(table.length());
+            overview.compute(table, ForkJoinPool.commonPool());
+            byte[] inserted = new byte[BLOCK_SIZE];
+            Arrays.fill(inserted, (byte) 'b');
+            table.insert(3 * BLOCK_SIZE, inserted);
+            overview.contentEdited(3 * BLOCK_SIZE, 0, BLOCK_SIZE, table.length());
+            //the blocks behind a whole inserted block move with their bytes
+            assertEquals(7, overview.blockCount());
+            assertFalse(overview.isComputed(3));
+            for (int block = 4; block < 7; ++block) assertTrue(overview.isComputed(block));
+            overview.compute(table, ForkJoinPool.commonPool());
+            ByteOverview fresh = new ByteOverview(table.length());
+            fresh.compute(table, ForkJoinPool.commonPool());
+            for (int block = 0; block < 7; ++block)
+                assertArrayEquals(fresh.values(block), overview.values(block));
+
+            //moving by part of a block leaves every block behind the edit to compute again
+            table.delete(BLOCK_SIZE, 10);
+            overview.contentEdited(BLOCK_SIZE, 10, 0, table.length());
+            assertTrue(overview.isComputed(0));
+            for (int block = 1; block < 7; ++block) assertFalse(overview.isComputed(block));
+            overview.compute(table, ForkJoinPool.commonPool());
+            fresh = new ByteOverview(table.length());
+            fresh.compute(table, ForkJoinPool.commonPool());
+            for (int block = 0; block < 7; ++block)
+                assertArrayEquals(fresh.values(block), overview.values(block));
+        }
+    }
+
+    @Test public void sidecarTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            ByteOverview overview = new ByteOverview(table.length());
+            overview.compute(table, ForkJoinPool.commonPool());
+            overview.save(sidecar, table.length(), 1234);
+            assertNull(ByteOverview.load(sidecar, table.length(), 1235));
+            assertNull(ByteOverview.load(sidecar, table.length() + 1, 1234));
+            ByteOverview loaded = ByteOverview.load(sidecar, table.length(), 1234);
+            assertNotNull(loaded);
+            assertTrue(loaded.isComplete());
+            for (int block = 0; block < overview.blockCount(); ++block)
+                assertArrayEquals(overview.values(block), loaded.values(block));
+        }
+    }
+}
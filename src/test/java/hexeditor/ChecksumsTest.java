@@ -0,0 +1,67 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChecksumsTest {
+
+    private Path file;
+    private byte[] bytes;
+
+    @BeforeEach public void createFile() throws IOException {
+        bytes = new byte[(int) (2.5 * Checksums.SEGMENT_SIZE)];
+        new Random(11).nextBytes(bytes);
+        file = Files.createTempFile(null, ".bin");
+        Files.write(file, bytes);
+    }
+
+    @AfterEach public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test public void parallelSegmentsTest() throws Exception {
+        try (PieceTable table = new PieceTable(file)) {
+            int from = 17;
+            int to = bytes.length - 5;
+            Map<Checksums.Algorithm, String> values = new Checksums(table).compute(from, to, null);
+            CRC32 crc32 = new CRC32();
+            crc32.update(bytes, from, to - from);
+            CRC32C crc32c = new CRC32C();
+            crc32c.update(bytes, from, to - from);
+            assertEquals(String.format("%08x", crc32.getValue()), values.get(Checksums.Algorithm.CRC32));
+            assertEquals(String.format("%08x", crc32c.getValue()), values.get(Checksums.Algorithm.CRC32C));
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(bytes, from, to - from);
+            StringBuilder hex = new StringBuilder();
+            for (byte b: sha256.digest()) hex.append(String.format("%02x", b));
+            assertEquals(hex.toString(), values.get(Checksums.Algorithm.SHA_256));
+        }
+    }
+
+    @Test public void cacheInvalidationTest() {
+        ChecksumCache cache = new ChecksumCache();
+        Map<Checksums.Algorithm, String> values = new EnumMap<>(Checksums.Algorithm.class);
+        cache.put(0, 100, values);
+        cache.put(200, 300, values);
+        cache.contentEdited(150, 1, 1);
+        assertNotNull(cache.get(0, 100));
+        assertNotNull(cache.get(200, 300));
+        cache.contentEdited(250, 1, 1);
+        assertNull(cache.get(200, 300));
+        cache.contentEdited(100, 0, 1);
+        assertNotNull(cache.get(0, 100));
+        cache.contentEdited(50, 1, 0);
+        assertNull(cache.get(0, 100));
+    }
+}
@@ -0,0 +1,89 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static hexeditor.TestFiles.content;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EditJournalTest {
+
+    private Path file;
+
+    @BeforeEach public void createFile() throws IOException {
+        file = TestFiles.createDigits();
+    }
+
+    @AfterEach public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test public void typingCoalescesTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            EditJournal journal = new EditJournal(table, EditJournal.DEFAULT_MEMORY_LIMIT);
+            table.addEditRecorder(journal);
+            //two nibbles typed over a byte, then a byte inserted after it
+            table.replace(2, new byte[]{0x50});
+            table.replace(2, new byte[]{0x5a});
+            table.insert(3, new byte[]{0x60});
+            table.delete(8, 1);
+            table.delete(8, 1);
+            assertArrayEquals(new byte[]{0, 1, 0x5a, 0x60, 3, 4, 5, 6, 9}, content(table));
+            assertEquals(8, journal.undo());
+            assertArrayEquals(new byte[]{0, 1, 0x5a, 0x60, 3, 4, 5, 6, 7, 8, 9}, content(table));
+            assertEquals(2, journal.undo());
+            assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, content(table));
+            assertFalse(journal.canUndo());
+            assertEquals(2, journal.redo());
+            assertArrayEquals(new byte[]{0, 1, 0x5a, 0x60, 3, 4, 5, 6, 7, 8, 9}, content(table));
+            table.insert(0, new byte[]{-1, -1});
+            assertFalse(journal.canRedo());
+            journal.close();
+        }
+    }
+
+    @Test public void rangeUndoTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            EditJournal journal = new EditJournal(table, EditJournal.DEFAULT_MEMORY_LIMIT);
+            table.addEditRecorder(journal);
+            table.fill(3, 3L * PieceTable.FILL_BLOCK_SIZE, new byte[]{7});
+            table.delete(1, PieceTable.FILL_BLOCK_SIZE);
+            journal.undo();
+            assertEquals(3 + 3L * PieceTable.FILL_BLOCK_SIZE, table.length());
+            assertEquals(7, table.byteAt(PieceTable.FILL_BLOCK_SIZE));
+            journal.undo();
+            assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, content(table));
+            journal.redo();
+            journal.redo();
+            assertEquals(2 * PieceTable.FILL_BLOCK_SIZE + 3, table.length());
+            journal.close();
+        }
+    }
+
+    @Test public void spillToLogTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            EditJournal journal = new EditJournal(table, 1000);
+            table.addEditRecorder(journal);
+            for (int i = 0; i < 50; ++i)
+                table.splice(i % 10, 2, new byte[]{(byte) i, (byte) i, (byte) i});
+            assertTrue(journal.spilledSteps() > 0);
+            assertTrue(journal.memoryUsed() <= 1000);
+            for (int i = 0; i < 50; ++i)
+                assertTrue(journal.undo() >= 0);
+            assertFalse(journal.canUndo());
+            assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, content(table));
+            journal.close();
+        }
+    }
+
+    @Test public void sliceAndConcatTest() {
+        long added = PieceTable.encodePiece(true, 100);
+        long[] pieces = {added, 10, 50, 5};
+        assertArrayEquals(new long[]{added - 4, 6, 50, 2}, EditJournal.slice(pieces, 4, 12));
+        assertArrayEquals(new long[]{added, 15}, EditJournal.concat(new long[]{added, 10}, new long[]{added - 10, 5}));
+        assertArrayEquals(new long[]{50, 5, 60, 1}, EditJournal.concat(new long[]{50, 5}, new long[]{60, 1}));
+    }
+}
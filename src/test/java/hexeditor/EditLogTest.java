@@ -0,0 +1,144 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static hexeditor.TestFiles.content;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EditLogTest {
+
+    private Path file;
+
+    @BeforeEach public void createFile() throws IOException {
+        file = TestFiles.createDigits();
+    }
+
+    @AfterEach public void deleteFiles() throws IOException {
+        EditLog.delete(file);
+        Files.deleteIfExists(file);
+    }
+
+    private byte[] editAndClose() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            EditLog log = new EditLog(file, table);
+            EditJournal journal = new EditJournal(table, EditJournal.DEFAULT_MEMORY_LIMIT);
+            table.addEditRecorder(journal);
+            table.addEditRecorder(log);
+            table.replace(2, new byte[]{0x50, 0x51});
+            table.insert(10, new byte[]{0x60, 0x61, 0x62});
+            table.delete(0, 1);
+            table.fill(4, 3, new byte[]{(byte) 0xee});
+            journal.undo();
+            log.close();
+            //every edit, and the bytes the replace, insert and fill added
+            assertEquals(8, log.syncedRecords());
+            return content(table);
+        }
+    }
+
+    @Test public void replayTest() throws IOException {
+        assertFalse(EditLog.exists(file));
+        byte[] edited = editAndClose();
+        assertTrue(EditLog.exists(file));
+        try (PieceTable table = new PieceTable(file)) {
+            assertEquals(5, EditLog.replay(file, table));
+            assertArrayEquals(edited, content(table));
+
+            //logging goes on after the replayed edits
+            EditLog log = new EditLog(file, table);
+            table.addEditRecorder(log);
+            table.insert(0, new byte[]{0x70});
+            log.close();
+            edited = content(table);
+        }
+        try (PieceTable table = new PieceTable(file)) {
+            assertEquals(6, EditLog.replay(file, table));
+            assertArrayEquals(edited, content(table));
+        }
+    }
+
+    @Test public void tornTailTest() throws IOException {
+        editAndClose();
+        Path log = EditLog.logFor(file);
+        long size = Files.size(log);
+        //the last record, the undo, loses its checksum in a crash
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 2);
+        }
+        try (PieceTable table = new PieceTable(file)) {
+            assertEquals(4, EditLog.replay(file, table));
+            byte e = (byte) 0xee;
+            assertArrayEquals(new byte[]{1, 0x50, 0x51, 4, e, e, e, 8, 9, 0x60, 0x61, 0x62}, content(table));
+        }
+        assertTrue(Files.size(log) < size - 2);
+    }
+
+    @Test public void changedFileTest() throws IOException {
+        editAndClose();
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 5000));
+        try (PieceTable table = new PieceTable(file)) {
+            assertThrows(IOException.class, () -> EditLog.replay(file, table));
+            assertEquals(10, table.length());
+        }
+    }
+
+    @Test public void largeInsertionTest() throws IOException {
+        byte[] inserted = new byte[EditLog.MAX_ADDED_RECORD * 5 / 2];
+        for (int i = 0; i < inserted.length; ++i) inserted[i] = (byte) (i * 7);
+        byte[] edited;
+        try (PieceTable table = new PieceTable(file)) {
+            EditLog log = new EditLog(file, table);
+            table.addEditRecorder(log);
+            table.insert(3, inserted);
+            log.close();
+            //the added bytes take three records, the edit one more
+            assertEquals(4, log.syncedRecords());
+            edited = content(table);
+        }
+        try (PieceTable table = new PieceTable(file)) {
+            assertEquals(1, EditLog.replay(file, table));
+            assertArrayEquals(edited, content(table));
+        }
+    }
+
+    @Test public void recoveredEditsUndoTest() throws IOException {
+        editAndClose();
+        OpenFile recovered = new OpenFile(file, new PieceTable(file), EditJournal.DEFAULT_MEMORY_LIMIT);
+        try {
+            assertEquals(5, recovered.recover());
+            //the recovered edits are undone one by one, back to the file
+            for (int edit = 0; edit < 5; ++edit)
+                assertTrue(recovered.journal.undo() >= 0);
+            assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, content(recovered.content));
+            //and the undos are logged after them
+            recovered.content.insert(0, new byte[]{0x70});
+        } finally {
+            recovered.close();
+        }
+        try (PieceTable table = new PieceTable(file)) {
+            assertEquals(11, EditLog.replay(file, table));
+            assertArrayEquals(new byte[]{0x70, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, content(table));
+        }
+    }
+
+    @Test public void discardTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            EditLog log = new EditLog(file, table);
+            table.addEditRecorder(log);
+            log.discard();
+            assertFalse(EditLog.exists(file));
+        }
+        editAndClose();
+        try (PieceTable table = new PieceTable(file)) {
+            new EditLog(file, table).discard();
+        }
+        assertFalse(EditLog.exists(file));
+    }
+}
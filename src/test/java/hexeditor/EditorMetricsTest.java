@@ -0,0 +1,48 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EditorMetricsTest {
+
+    @Test public void histogramPercentilesTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; ++i) histogram.record(1000);
+        histogram.record(1_000_000);
+        LatencyHistogram.Summary summary = histogram.summary();
+        assertEquals(100, summary.getCount());
+        assertEquals(1.024, summary.getP50Micros(), 1e-9);
+        assertEquals(1.024, summary.getP99Micros(), 1e-9);
+        assertEquals(1000.0, summary.getMaxMicros(), 1e-9);
+        assertEquals((99 * 1000 + 1_000_000) / 100 / 1000.0, summary.getMeanMicros(), 1e-9);
+    }
+
+    @Test public void readThroughJmxTest() throws Exception {
+        Path file = Files.createTempFile(null, ".bin");
+        Files.write(file, new byte[1000]);
+        EditorMetrics metrics = new EditorMetrics();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(EditorMetrics.OBJECT_NAME);
+        try (PieceTable table = new PieceTable(file)) {
+            metrics.register();
+            metrics.watch(table, null);
+            table.read(0, new byte[300], 0, 300);
+            metrics.begin(EditorMetrics.Operation.EDIT).end(1);
+            assertEquals(300L, server.getAttribute(name, "BytesRead"));
+            assertEquals(1L, ((CompositeData) server.getAttribute(name, "Edits")).get("count"));
+            metrics.watch(null, null);
+            assertEquals(300L, metrics.getBytesRead());
+        } finally {
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSaverTest {
+
+    private Path file;
+    private Path copy;
+
+    @BeforeEach public void createFile() throws IOException {
+        file = Files.createTempFile(null, ".bin");
+        copy = file.resolveSibling(file.getFileName() + ".copy");
+        Files.write(file, new byte[]{0, 1, 2, 3, 4, 5, 6, 7});
+    }
+
+    @AfterEach public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(copy);
+    }
+
+    @Test public void overwriteInPlaceTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            table.replace(3, new byte[]{30, 40});
+            FileSaver saver = new FileSaver(table, file);
+            assertTrue(saver.isOverwriteOnly());
+            assertEquals(2, saver.save(file, (done, total) -> {}));
+        }
+        assertArrayEquals(new byte[]{0, 1, 2, 30, 40, 5, 6, 7}, Files.readAllBytes(file));
+    }
+
+    @Test public void saveWithInsertionTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            table.insert(2, new byte[]{20});
+            table.delete(6, 2);
+            FileSaver saver = new FileSaver(table, file);
+            assertFalse(saver.isOverwriteOnly());
+            assertEquals(7, saver.save(copy, (done, total) -> {}));
+            assertEquals(7, saver.save(file, (done, total) -> {}));
+        }
+        assertArrayEquals(new byte[]{0, 1, 20, 2, 3, 4, 7}, Files.readAllBytes(copy));
+        assertArrayEquals(new byte[]{0, 1, 20, 2, 3, 4, 7}, Files.readAllBytes(file));
+    }
+}
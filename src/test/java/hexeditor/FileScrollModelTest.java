@@ -0,0 +1,39 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileScrollModelTest {
+
+    @Test public void smallFileUnscaledTest() {
+        FileScrollModel model = new FileScrollModel();
+        model.setRows(1000);
+        assertEquals(500, model.toValue(500));
+        assertEquals(500, model.toRow(500));
+        assertEquals(25, model.extent(25));
+        assertEquals(1025, model.maximum(25));
+    }
+
+    @Test public void hugeFileScaledTest() {
+        FileScrollModel model = new FileScrollModel();
+        long rows = (1L << 40) / HexEditor.AREA_RAW_SYMBOLS_IN_LINE;
+        model.setRows(rows);
+        assertTrue(model.maximum(25) > 0);
+        assertTrue(model.maximum(25) <= Integer.MAX_VALUE);
+        assertEquals(1, model.extent(25));
+        long row = rows / 3;
+        long back = model.toRow(model.toValue(row));
+        assertTrue(back <= row);
+        assertTrue(row - back < rows / FileScrollModel.UNIT_LIMIT + 1);
+        assertEquals(model.toValue(rows), model.toValue(rows + 100));
+        assertEquals(0, model.toRow(-5));
+    }
+
+    @Test public void moveRowsPastIntRangeTest() {
+        long offset = 3L * Integer.MAX_VALUE;
+        assertEquals(offset + 2 * HexEditor.AREA_RAW_SYMBOLS_IN_LINE, FileScrollModel.moveRows(offset, 2));
+        assertEquals(offset - HexEditor.AREA_RAW_SYMBOLS_IN_LINE, FileScrollModel.moveRows(offset, -1));
+        assertEquals(0, FileScrollModel.moveRows(4L * HexEditor.AREA_RAW_SYMBOLS_IN_LINE, -10));
+    }
+}
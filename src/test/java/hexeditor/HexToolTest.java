@@ -0,0 +1,116 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HexToolTest {
+
+    private Path file;
+
+    @BeforeEach public void createFile() throws IOException {
+        file = Files.createTempFile(null, ".bin");
+        Files.write(file, "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @AfterEach public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test public void patchScriptTest() throws IOException {
+        String script = String.join("\n"
+                , "# patch"
+                , "0x2 41 42"
+                , "insert 0 7a"
+                , "delete 0x10 5"
+                , ""
+                , "fill 12 6 2d2e");
+        try (PieceTable table = new PieceTable(file)) {
+            assertEquals(4, HexTool.applyScript(table, new BufferedReader(new StringReader(script))));
+            byte[] content = new byte[(int) table.length()];
+            table.read(0, content, 0, content.length);
+            assertEquals("z01AB456789a-.-.-.", new String(content, StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test public void malformedLineTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            IllegalArgumentException ex = assertThrows(IllegalArgumentException.class
+                    , () -> HexTool.applyScript(table, new BufferedReader(new StringReader("0 41\ndelete 0x10 50"))));
+            assertTrue(ex.getMessage().startsWith("Line 2"));
+            assertEquals('A', table.byteAt(0));
+        }
+    }
+
+    @Test public void dumpTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            table.replace(17, new byte[]{10});
+            StringWriter out = new StringWriter();
+            HexTool.dump(table, 2, 19, out);
+            String[] rows = out.toString().split("\n");
+            assertEquals(2, rows.length);
+            assertEquals("00000002  32 33 34 35 36 37 38 39 61 62 63 64 65 66 67 0a  23456789abcdefg\\10", rows[0]);
+            assertEquals("00000012  69" + " ".repeat(46) + " i", rows[1]);
+        }
+    }
+
+    @Test public void searchInOrderTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            table.replace(15, "345".getBytes(StandardCharsets.US_ASCII));
+            StringWriter out = new StringWriter();
+            assertEquals(2, HexTool.search(table, BytePattern.fromAscii("345"), out));
+            assertEquals("0x3\n0xF\n", out.toString());
+        }
+    }
+
+    /**
+     * Runs the tool as the command line does and returns what it printed to stdout.
+     */
+    private static String run(String... args) throws IOException {
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        try {
+            HexTool.main(args);
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test public void mainPatchTest() throws IOException {
+        Path script = Files.createTempFile(null, ".txt");
+        Path output = Files.createTempFile(null, ".bin");
+        try {
+            Files.write(script, "insert 0 7a\ndelete 0x10 5\n".getBytes(StandardCharsets.US_ASCII));
+            run("patch", file.toString(), script.toString(), "-o", output.toString());
+            assertEquals("z0123456789abcde", new String(Files.readAllBytes(output), StandardCharsets.US_ASCII));
+            assertEquals("0123456789abcdefghij", new String(Files.readAllBytes(file), StandardCharsets.US_ASCII));
+        } finally {
+            Files.deleteIfExists(script);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test public void mainDumpTest() throws IOException {
+        assertEquals("00000010  67 68" + " ".repeat(43) + " gh\n", run("dump", file.toString(), "0x10", "18"));
+    }
+
+    @Test public void mainSearchTest() throws IOException {
+        assertEquals("0x3\n", run("search", file.toString(), "33 ?? 35"));
+        assertEquals("0xA\n", run("search", "--text", file.toString(), "abc"));
+    }
+}
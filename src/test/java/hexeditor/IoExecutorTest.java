@@ -0,0 +1,59 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import javax.swing.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IoExecutorTest {
+
+    private final IoExecutor executor = new IoExecutor("io-executor-test");
+
+    @AfterEach public void shutdown(){
+        executor.shutdown();
+    }
+
+    @Test public void resultOnEventDispatchThreadTest() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicLong result = new AtomicLong();
+        AtomicBoolean onEventThread = new AtomicBoolean();
+        executor.submit(progress -> {
+            progress.progress(1, 2);
+            return 42L;
+        }, value -> {
+            result.set(value);
+            onEventThread.set(SwingUtilities.isEventDispatchThread());
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(42L, result.get());
+        assertTrue(onEventThread.get());
+    }
+
+    @Test public void cancelledTaskStopsAtProgressTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        AtomicBoolean callbackRun = new AtomicBoolean();
+        AtomicBoolean stopped = new AtomicBoolean(true);
+        Future<Long> future = executor.submit(progress -> {
+            started.countDown();
+            cancelled.await();
+            progress.progress(1, 2);
+            stopped.set(false);
+            return 1L;
+        }, value -> callbackRun.set(true));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        future.cancel(false);
+        cancelled.countDown();
+        executor.submit(progress -> 0L, value -> {}).get(5, TimeUnit.SECONDS);
+        SwingUtilities.invokeAndWait(() -> {});
+        assertTrue(stopped.get());
+        assertFalse(callbackRun.get());
+    }
+}
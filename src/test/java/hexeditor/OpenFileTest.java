@@ -0,0 +1,58 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenFileTest {
+
+    private Path file;
+
+    @BeforeEach public void createFile() throws IOException {
+        file = TestFiles.createDigits();
+    }
+
+    @AfterEach public void deleteFiles() throws IOException {
+        EditLog.delete(file);
+        Files.deleteIfExists(file);
+    }
+
+    private void writeOnDisk(long position, byte value, long modified) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{value}), position);
+        }
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    }
+
+    @Test public void checkDiskTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            OpenFile open = new OpenFile(file, table, EditJournal.DEFAULT_MEMORY_LIMIT);
+            assertNull(open.checkDisk(table, false));
+
+            //nothing is cached, a write anywhere may have changed any byte
+            writeOnDisk(5, (byte) 50, 1_000_000);
+            OpenFile.DiskChange change = open.checkDisk(table, false);
+            assertTrue(change.unknownExtent);
+            assertEquals(0, change.changedPages.length);
+            open.diskChangeApplied(change);
+            assertNull(open.checkDisk(table, false));
+
+            //a write to the cached page is found there
+            byte[] read = new byte[1];
+            table.read(0, read, 0, 1);
+            writeOnDisk(6, (byte) 60, 2_000_000);
+            change = open.checkDisk(table, false);
+            assertFalse(change.unknownExtent);
+            assertArrayEquals(new long[]{0}, change.changedPages);
+            open.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PagedFileReaderTest {
+
+    private Path file;
+
+    @BeforeEach public void createFile() throws IOException {
+        file = Files.createTempFile(null, ".bin");
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; ++i) data[i] = (byte) i;
+        Files.write(file, data);
+    }
+
+    @AfterEach public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test public void readAcrossPagesTest() throws IOException {
+        try (PagedFileReader reader = new PagedFileReader(file, 100, 1000)) {
+            byte[] window = new byte[10];
+            assertEquals(10, reader.read(95, window, 0, window.length));
+            assertEquals((byte) 95, window[0]);
+            assertEquals((byte) 104, window[9]);
+            assertEquals(5, reader.read(995, window, 0, window.length));
+            assertEquals(0, reader.read(1000, window, 0, window.length));
+        }
+    }
+
+    @Test public void cacheLimitTest() throws IOException {
+        try (PagedFileReader reader = new PagedFileReader(file, 100, 200)) {
+            byte[] window = new byte[1];
+            reader.read(0, window, 0, 1);
+            reader.read(150, window, 0, 1);
+            reader.read(10, window, 0, 1);
+            assertEquals(1, reader.getHits());
+            assertEquals(2, reader.getMisses());
+            reader.read(250, window, 0, 1);
+            assertEquals(200, reader.getCachedBytes());
+            reader.read(10, window, 0, 1);
+            assertEquals(3, reader.getMisses());
+            reader.read(150, window, 0, 1);
+            assertEquals(4, reader.getMisses());
+        }
+    }
+
+    @Test public void sharedPoolTest() throws IOException {
+        PageCachePool pool = new PageCachePool(500);
+        try (PagedFileReader shown = new PagedFileReader(file, 100, pool);
+             PagedFileReader hidden = new PagedFileReader(file, 100, pool)) {
+            byte[] window = new byte[1];
+            for (int page = 0; page < 3; ++page) hidden.read(page * 100, window, 0, 1);
+            hidden.setForeground(false);
+            for (int page = 0; page < 3; ++page) shown.read(page * 100, window, 0, 1);
+            //the background reader gives up its pages first, down to the last one it read
+            assertEquals(500, pool.getCachedBytes());
+            assertEquals(300, shown.getCachedBytes());
+            assertEquals(200, hidden.getCachedBytes());
+            for (int page = 3; page < 6; ++page) shown.read(page * 100, window, 0, 1);
+            assertEquals(100, hidden.getCachedBytes());
+            assertEquals(400, shown.getCachedBytes());
+            assertEquals(500, pool.getCachedBytes());
+            assertEquals((byte) 250, readByte(hidden, 250));
+        }
+        assertEquals(0, pool.getCachedBytes());
+    }
+
+    @Test public void poolLimitTest() throws IOException {
+        PageCachePool pool = new PageCachePool(1000);
+        try (PagedFileReader reader = new PagedFileReader(file, 100, pool)) {
+            byte[] all = new byte[1000];
+            assertEquals(1000, reader.read(0, all, 0, all.length));
+            assertEquals(1000, pool.getCachedBytes());
+            pool.setLimit(250);
+            assertEquals(200, pool.getCachedBytes());
+            assertEquals(200, reader.getCachedBytes());
+            assertEquals(8, pool.getEvictions());
+        }
+    }
+
+    private static byte readByte(PagedFileReader reader, long position) throws IOException {
+        byte[] target = new byte[1];
+        reader.read(position, target, 0, 1);
+        return target[0];
+    }
+
+    @Test public void changedPagesTest() throws IOException {
+        try (PagedFileReader reader = new PagedFileReader(file, 100, 1000)) {
+            byte[] window = new byte[1];
+            for (int page = 0; page < 10; page += 2) reader.read(page * 100, window, 0, 1);
+            assertEquals(0, reader.changedPages(false).length);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{1, 2}), 450);
+                channel.write(ByteBuffer.wrap(new byte[]{1}), 350);
+                channel.write(ByteBuffer.wrap(new byte[]{1}), 850);
+            }
+            //page 3 isn't cached, it's read as it is when it's needed
+            assertArrayEquals(new long[]{4, 8}, reader.changedPages(false));
+            assertEquals(300, reader.getCachedBytes());
+            assertEquals(0, reader.changedPages(false).length);
+            assertEquals((byte) 1, readByte(reader, 450));
+        }
+    }
+
+    @Test public void growTest() throws IOException {
+        Files.write(file, new byte[150]);
+        try (PagedFileReader reader = new PagedFileReader(file, 100, 1000)) {
+            byte[] window = new byte[100];
+            assertEquals(50, reader.read(100, window, 0, window.length));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(new byte[]{7, 7, 7}));
+            }
+            assertEquals(0, reader.changedPages(true).length);
+            reader.grow(153);
+            assertEquals(153, reader.size());
+            assertEquals(53, reader.read(100, window, 0, window.length));
+            assertEquals((byte) 7, window[52]);
+        }
+    }
+}
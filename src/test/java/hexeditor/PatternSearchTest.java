@@ -0,0 +1,62 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PatternSearchTest {
+
+    private static final byte[] PATTERN = {(byte) 0xde, (byte) 0xad, 0x11, (byte) 0xef};
+
+    private Path file;
+
+    @BeforeEach public void createFile() throws IOException {
+        file = Files.createTempFile(null, ".bin");
+        byte[] data = new byte[3 * PatternSearch.CHUNK_SIZE];
+        for (long offset: new long[]{5, PatternSearch.CHUNK_SIZE - 2, 2L * PatternSearch.CHUNK_SIZE + 7})
+            System.arraycopy(PATTERN, 0, data, (int) offset, PATTERN.length);
+        Files.write(file, data);
+    }
+
+    @AfterEach public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test public void bytePatternTest() {
+        byte[] data = {1, (byte) 0xde, (byte) 0xad, 0, (byte) 0xef, (byte) 0xde, (byte) 0xad, 5, (byte) 0xef};
+        BytePattern pattern = BytePattern.fromHex("DE AD ?? EF");
+        assertEquals(1, pattern.indexIn(data, 0, data.length));
+        assertEquals(5, pattern.indexIn(data, 2, data.length));
+        assertEquals(-1, pattern.indexIn(data, 2, data.length - 1));
+        assertEquals(1, BytePattern.fromAscii("AB").indexIn(new byte[]{'x', 'A', 'B'}, 0, 3));
+    }
+
+    @Test public void findAllAcrossChunksTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            List<Long> hits = Collections.synchronizedList(new ArrayList<>());
+            new PatternSearch(table, BytePattern.fromHex("dead??ef")).findAll(0, Long.MAX_VALUE, hits::add);
+            Collections.sort(hits);
+            assertEquals(3, hits.size());
+            assertEquals(5L, (long) hits.get(0));
+            assertEquals(PatternSearch.CHUNK_SIZE - 2L, (long) hits.get(1));
+            assertEquals(2L * PatternSearch.CHUNK_SIZE + 7, (long) hits.get(2));
+        }
+    }
+
+    @Test public void findNextAfterEditTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            table.insert(0, new byte[]{0, 0});
+            PatternSearch search = new PatternSearch(table, BytePattern.fromHex("dead11ef"));
+            assertEquals(7, search.findNext(0));
+            assertEquals(PatternSearch.CHUNK_SIZE, search.findNext(8));
+            assertEquals(-1, search.findNext(2L * PatternSearch.CHUNK_SIZE + 10));
+        }
+    }
+}
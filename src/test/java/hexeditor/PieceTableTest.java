@@ -0,0 +1,163 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static hexeditor.TestFiles.content;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PieceTableTest {
+
+    private Path file;
+
+    @BeforeEach public void createFile() throws IOException {
+        file = TestFiles.createDigits();
+    }
+
+    @AfterEach public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test public void editTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            table.replace(2, new byte[]{20});
+            table.insert(5, new byte[]{50, 51});
+            table.delete(0, 1);
+            assertArrayEquals(new byte[]{1, 20, 3, 4, 50, 51, 5, 6, 7, 8, 9}, content(table));
+            table.replace(10, new byte[]{90, 91});
+            assertArrayEquals(new byte[]{1, 20, 3, 4, 50, 51, 5, 6, 7, 8, 90, 91}, content(table));
+            assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, Files.readAllBytes(file));
+        }
+    }
+
+    @Test public void isOriginalTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            EditJournal journal = new EditJournal(table, EditJournal.DEFAULT_MEMORY_LIMIT);
+            table.addEditRecorder(journal);
+            assertTrue(table.isOriginal());
+            table.insert(5, new byte[]{50});
+            assertFalse(table.isOriginal());
+            //the original split in two pieces which follow each other is still the original
+            journal.undo();
+            assertTrue(table.isOriginal());
+            table.replace(5, new byte[]{5});
+            assertFalse(table.isOriginal());
+        }
+    }
+
+    @Test public void addBufferChunksTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            table.insert(0, new byte[1000]);
+            byte[] data = new byte[PieceTable.ADD_CHUNK_SIZE + 100];
+            for (int i = 0; i < data.length; ++i) data[i] = (byte) i;
+            table.insert(1000, data);
+            assertEquals(1000 + data.length, table.addedLength());
+            //a read and a view of the add buffer across the end of a chunk
+            byte[] read = new byte[data.length];
+            assertEquals(read.length, table.read(1000, read, 0, read.length));
+            assertArrayEquals(data, read);
+            assertEquals(PieceTable.ADD_CHUNK_SIZE - 1000, table.addedBytes(1000, data.length).remaining());
+            byte first = table.addedBytes(PieceTable.ADD_CHUNK_SIZE, 1).get();
+            assertEquals((byte) (PieceTable.ADD_CHUNK_SIZE - 1000), first);
+        }
+    }
+
+    @Test public void appendChannelTest() throws IOException {
+        Path inserted = Files.createTempFile(null, ".bin");
+        try (PieceTable table = new PieceTable(file)) {
+            byte[] data = new byte[PieceTable.ADD_CHUNK_SIZE * 2 + 10];
+            for (int i = 0; i < data.length; ++i) data[i] = (byte) (i / 3);
+            Files.write(inserted, data);
+            long[] pieces;
+            try (FileChannel source = FileChannel.open(inserted)) {
+                pieces = table.appendAdded(source);
+            }
+            //the chunks of the file follow each other in the add buffer and make one piece
+            assertEquals(2, pieces.length);
+            assertEquals(10, table.length());
+            table.splice(4, 2, pieces);
+            byte[] read = new byte[data.length];
+            table.read(4, read, 0, read.length);
+            assertArrayEquals(data, read);
+            assertEquals(8 + data.length, table.length());
+        } finally {
+            Files.deleteIfExists(inserted);
+        }
+    }
+
+    @Test public void partialReadTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            for (int i = 0; i < 100; ++i)
+                table.insert(5 + i, new byte[]{(byte) i});
+            byte[] window = new byte[8];
+            assertEquals(8, table.read(101, window, 0, window.length));
+            assertArrayEquals(new byte[]{96, 97, 98, 99, 5, 6, 7, 8}, window);
+            assertEquals(3, table.read(107, window, 0, window.length));
+            assertEquals(0, table.read(110, window, 0, window.length));
+            assertEquals(99, table.byteAt(104));
+        }
+    }
+
+    @Test public void rangeEditTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            long[] event = new long[3];
+            table.addEditListener((offset, removedLength, insertedLength) -> {
+                event[0] = offset;
+                event[1] = removedLength;
+                event[2] = insertedLength;
+            });
+            table.insertRepeated(2, 5, new byte[]{-1, -2});
+            assertArrayEquals(new byte[]{0, 1, -1, -2, -1, -2, -1, 2, 3, 4, 5, 6, 7, 8, 9}, content(table));
+            assertArrayEquals(new long[]{2, 0, 5}, event);
+            table.splice(1, 8, new byte[]{40, 41});
+            assertArrayEquals(new byte[]{0, 40, 41, 4, 5, 6, 7, 8, 9}, content(table));
+            assertArrayEquals(new long[]{1, 8, 2}, event);
+            table.splice(6, 100, new byte[]{60});
+            assertArrayEquals(new byte[]{0, 40, 41, 4, 5, 6, 60}, content(table));
+            assertArrayEquals(new long[]{6, 3, 1}, event);
+        }
+    }
+
+    @Test public void originalChangedOnDiskTest() throws IOException {
+        try (PieceTable table = new PieceTable(new PagedFileReader(file, 4, 1000))) {
+            table.insert(0, new byte[]{100});
+            table.replace(4, new byte[]{30});
+            List<long[]> edits = new ArrayList<>();
+            table.addEditListener((offset, removedLength, insertedLength) ->
+                    edits.add(new long[]{offset, removedLength, insertedLength}));
+            //bytes 2 to 5 of the original show at 3, 4 overwritten, and 5 to 6
+            table.originalChanged(2, 4);
+            assertEquals(2, edits.size());
+            assertArrayEquals(new long[]{3, 1, 1}, edits.get(0));
+            assertArrayEquals(new long[]{5, 2, 2}, edits.get(1));
+
+            edits.clear();
+            try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.APPEND)) {
+                out.write(new byte[]{10, 11, 12});
+            }
+            assertEquals(3, table.originalGrew(13));
+            assertEquals(0, table.originalGrew(13));
+            assertArrayEquals(new byte[]{100, 0, 1, 2, 30, 4, 5, 6, 7, 8, 9, 10, 11, 12}, content(table));
+            assertArrayEquals(new long[]{11, 0, 3}, edits.get(0));
+        }
+    }
+
+    @Test public void largeFillTest() throws IOException {
+        try (PieceTable table = new PieceTable(file)) {
+            long length = 3L * PieceTable.FILL_BLOCK_SIZE + 7;
+            table.fill(4, length, new byte[]{1, 2, 3});
+            assertEquals(4 + length, table.length());
+            assertEquals(1, table.byteAt(4));
+            assertEquals((PieceTable.FILL_BLOCK_SIZE + 1) % 3 + 1, table.byteAt(PieceTable.FILL_BLOCK_SIZE + 5));
+            assertEquals((length - 1) % 3 + 1, table.byteAt(4 + length - 1));
+        }
+    }
+}
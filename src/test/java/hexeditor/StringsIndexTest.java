@@ -0,0 +1,133 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringsIndexTest {
+    private static final int BLOCK_SIZE = StringsIndex.BLOCK_SIZE;
+
+    private Path file;
+    private Path sidecar;
+
+    @BeforeEach public void createFiles() throws IOException {
+        file = Files.createTempFile(null, ".bin");
+        sidecar = Files.createTempFile(null, ".strings");
+    }
+
+    @AfterEach public void deleteFiles() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(sidecar);
+    }
+
+    private static List<String> hits(StringsIndex index, PieceTable table) throws IOException {
+        List<String> hits = new ArrayList<>();
+        for (int hit = 0; hit < index.size(); ++hit)
+            hits.add(index.offset(hit) + " " + index.kind(hit) + " " + index.text(table, hit, 100));
+        return hits;
+    }
+
+    private StringsIndex build(PieceTable table) throws IOException {
+        StringsIndex index = new StringsIndex(table.length(), StringsIndex.DEFAULT_MIN_LENGTH);
+        index.build(table, ForkJoinPool.commonPool());
+        assertTrue(index.isComplete());
+        return index;
+    }
+
+    @Test public void kindsTest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[]{1, 2});
+        bytes.write("hello\tworld".getBytes(StandardCharsets.US_ASCII));
+        bytes.write(new byte[]{0, 0, 'a', 'b', 'c', 7});
+        bytes.write("Wider".getBytes(StandardCharsets.UTF_16LE));
+        bytes.write(new byte[]{(byte) 0xff, (byte) 0xff, 1});
+        bytes.write("Taller".getBytes(StandardCharsets.UTF_16BE));
+        bytes.write(new byte[]{(byte) 0xff});
+        Files.write(file, bytes.toByteArray());
+        try (PieceTable table = new PieceTable(file)) {
+            StringsIndex index = build(table);
+            //neither string of two bytes per character is also read one byte off as the other byte order
+            assertEquals(List.of("2 ASCII hello\tworld", "19 UTF16LE Wider", "32 UTF16BE Taller"), hits(index, table));
+            assertEquals(10, index.length(1));
+        }
+    }
+
+    @Test public void blockBoundaryTest() throws IOException {
+        byte[] bytes = new byte[BLOCK_SIZE * 2 + 100];
+        //a string going on into the next block belongs to the block it starts in
+        byte[] text = "across the boundary".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(text, 0, bytes, BLOCK_SIZE - 6, text.length);
+        byte[] wide = "wide one".getBytes(StandardCharsets.UTF_16LE);
+        System.arraycopy(wide, 0, bytes, 2 * BLOCK_SIZE - 3, wide.length);
+        Files.write(file, bytes);
+        try (PieceTable table = new PieceTable(file)) {
+            StringsIndex index = build(table);
+            assertEquals(List.of((BLOCK_SIZE - 6) + " ASCII across the boundary"
+                    , (2 * BLOCK_SIZE - 3) + " UTF16LE wide one"), hits(index, table));
+        }
+    }
+
+    @Test public void editTest() throws IOException {
+        byte[] bytes = new byte[BLOCK_SIZE * 4];
+        for (int block = 0; block < 4; ++block)
+            System.arraycopy(("block" + block).getBytes(StandardCharsets.US_ASCII), 0, bytes
+                    , block * BLOCK_SIZE + 10, 6);
+        Files.write(file, bytes);
+        try (PieceTable table = new PieceTable(file)) {
+            StringsIndex index = build(table);
+            assertEquals(4, index.size());
+
+            //the blocks around the edit lose their hits until they are scanned again, the last one only moves
+            table.insert(BLOCK_SIZE + 100, "inserted".getBytes(StandardCharsets.US_ASCII));
+            index.contentEdited(BLOCK_SIZE + 100, 0, 8);
+            assertFalse(index.isComplete());
+            assertEquals(1, index.size());
+            assertEquals(3 * BLOCK_SIZE + 18, index.offset(0));
+
+            table.delete(10, 3);
+            index.contentEdited(10, 3, 0);
+            index.build(table, ForkJoinPool.commonPool());
+            //"ck0" is left of the first string, too short to be one
+            assertEquals(List.of((BLOCK_SIZE + 7) + " ASCII block1", (BLOCK_SIZE + 97) + " ASCII inserted"
+                    , (2 * BLOCK_SIZE + 15) + " ASCII block2", (3 * BLOCK_SIZE + 15) + " ASCII block3")
+                    , hits(index, table));
+
+            //a long insertion is cut into blocks of the block size
+            byte[] inserted = new byte[BLOCK_SIZE * 3];
+            System.arraycopy("long insertion".getBytes(StandardCharsets.US_ASCII), 0, inserted
+                    , BLOCK_SIZE * 2, 14);
+            table.insert(0, inserted);
+            index.contentEdited(0, 0, inserted.length);
+            index.build(table, ForkJoinPool.commonPool());
+            assertEquals(5, index.size());
+            assertEquals(2L * BLOCK_SIZE, index.offset(0));
+            assertEquals("long insertion", index.text(table, 0, 100));
+            assertEquals(6L * BLOCK_SIZE + 15, index.offset(4));
+        }
+    }
+
+    @Test public void sidecarTest() throws IOException {
+        byte[] bytes = new byte[BLOCK_SIZE + 50];
+        System.arraycopy("saved string".getBytes(StandardCharsets.US_ASCII), 0, bytes, BLOCK_SIZE + 20, 12);
+        Files.write(file, bytes);
+        try (PieceTable table = new PieceTable(file)) {
+            StringsIndex index = build(table);
+            index.save(sidecar, bytes.length, 42);
+            assertNull(StringsIndex.load(sidecar, bytes.length, 43, StringsIndex.DEFAULT_MIN_LENGTH));
+            assertNull(StringsIndex.load(sidecar, bytes.length, 42, 5));
+            StringsIndex loaded = StringsIndex.load(sidecar, bytes.length, 42, StringsIndex.DEFAULT_MIN_LENGTH);
+            assertNotNull(loaded);
+            assertTrue(loaded.isComplete());
+            assertEquals(hits(index, table), hits(loaded, table));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package hexeditor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Fixtures shared by the tests of the piece table and the edit history.
+ */
+final class TestFiles {
+
+    private TestFiles(){
+    }
+
+    /**
+     * Creates a temporary file holding the ten bytes 0 to 9.
+     */
+    static Path createDigits() throws IOException {
+        Path file = Files.createTempFile(null, ".bin");
+        Files.write(file, new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+        return file;
+    }
+
+    /**
+     * Reads the whole content of the table.
+     */
+    static byte[] content(PieceTable table) throws IOException {
+        byte[] data = new byte[(int) table.length()];
+        table.read(0, data, 0, data.length);
+        return data;
+    }
+}
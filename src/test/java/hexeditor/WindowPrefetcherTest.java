@@ -0,0 +1,86 @@
+package hexeditor;
+
+import org.junit.jupiter.api.*;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WindowPrefetcherTest {
+    private static final int WINDOW_SIZE = 100;
+
+    private final IoExecutor executor = new IoExecutor("prefetch-test");
+    private Path file;
+    private byte[] bytes;
+
+    @BeforeEach public void createFile() throws IOException {
+        bytes = new byte[10 * WINDOW_SIZE];
+        for (int i = 0; i < bytes.length; ++i) bytes[i] = (byte) i;
+        file = Files.createTempFile(null, ".bin");
+        Files.write(file, bytes);
+    }
+
+    @AfterEach public void deleteFile() throws IOException {
+        executor.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Test public void readAheadInMoveDirectionTest() throws Exception {
+        try (PieceTable table = new PieceTable(file)) {
+            WindowPrefetcher prefetcher = onEventThread(() -> new WindowPrefetcher(table, WINDOW_SIZE, executor));
+            onEventThread(() -> {
+                prefetcher.windowMoved(0, WINDOW_SIZE);
+                return null;
+            });
+            waitForReads();
+            assertArrayEquals(Arrays.copyOfRange(bytes, 2 * WINDOW_SIZE, 3 * WINDOW_SIZE)
+                    , onEventThread(() -> prefetcher.take(2 * WINDOW_SIZE)));
+            assertNull(onEventThread(() -> prefetcher.take(0)));
+            assertEquals(1, prefetcher.getHits());
+            assertEquals(1, prefetcher.getMisses());
+        }
+    }
+
+    @Test public void editDropsWindowsTest() throws Exception {
+        try (PieceTable table = new PieceTable(file)) {
+            WindowPrefetcher prefetcher = onEventThread(() -> new WindowPrefetcher(table, WINDOW_SIZE, executor));
+            onEventThread(() -> {
+                prefetcher.windowMoved(5 * WINDOW_SIZE, 4 * WINDOW_SIZE);
+                return null;
+            });
+            waitForReads();
+            onEventThread(() -> {
+                table.delete(0, 1);
+                return null;
+            });
+            assertNull(onEventThread(() -> prefetcher.take(3 * WINDOW_SIZE)));
+        }
+    }
+
+    private void waitForReads() throws Exception {
+        executor.submit(progress -> null, result -> {}).get(5, TimeUnit.SECONDS);
+        SwingUtilities.invokeAndWait(() -> {});
+    }
+
+    private static <T> T onEventThread(Callable<T> action) throws Exception {
+        Object[] result = {null};
+        Exception[] failure = {null};
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                result[0] = action.call();
+            } catch (Exception ex) {
+                failure[0] = ex;
+            }
+        });
+        if (failure[0] != null) throw failure[0];
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+}